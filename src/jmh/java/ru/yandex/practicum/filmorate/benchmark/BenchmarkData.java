@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.PartitionedUserStorage;
+import ru.yandex.practicum.filmorate.storage.SnapshotFilmStorage;
+import ru.yandex.practicum.filmorate.storage.SnapshotUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+
+final class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    static FilmStorage filmStorage(String kind) {
+        return switch (kind) {
+            case "memory" -> new InMemoryFilmStorage();
+            case "snapshot" -> new SnapshotFilmStorage();
+            // One partition per available processor.
+            case "partitioned" -> new PartitionedFilmStorage(0);
+            default -> throw new IllegalArgumentException("Unknown storage: " + kind);
+        };
+    }
+
+    static UserStorage userStorage(String kind) {
+        return switch (kind) {
+            case "memory" -> new InMemoryUserStorage();
+            case "snapshot" -> new SnapshotUserStorage();
+            case "partitioned" -> new PartitionedUserStorage(0);
+            default -> throw new IllegalArgumentException("Unknown storage: " + kind);
+        };
+    }
+
+    static Film film(long index) {
+        Film film = new Film();
+        film.setName("Film " + index);
+        film.setDescription("Description of film " + index);
+        film.setReleaseDate(LocalDate.of(1900, 1, 1).plusDays(index % 40_000));
+        film.setDuration(60 + (int) (index % 120));
+        return film;
+    }
+
+    static User user(long index) {
+        User user = new User();
+        user.setEmail("user" + index + "@mail.com");
+        user.setLogin("user" + index);
+        user.setName("User " + index);
+        user.setBirthday(LocalDate.of(1950, 1, 1).plusDays(index % 20_000));
+        return user;
+    }
+}
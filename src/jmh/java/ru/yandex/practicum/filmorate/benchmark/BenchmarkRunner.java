@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*";
+        String sizes = System.getProperty("jmh.sizes", "");
+        for (String threads : System.getProperty("jmh.threads", "1").split(",")) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-" + threads.trim() + "-threads.json");
+            if (!sizes.isBlank()) {
+                options.param("catalogSize", sizes.split(","));
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
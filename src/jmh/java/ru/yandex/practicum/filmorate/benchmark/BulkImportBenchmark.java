@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.BulkRecord;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkTransfer;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ModelValidator;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per second imported from NDJSON into empty storages: {@code CATALOG_SIZE} users and films, 5 friendships
+ * and 10 likes per user. {@code bulk} is {@link BulkTransfer}; {@code perRecord} parses and validates the same
+ * lines one by one on one thread and stores every record with its own service call, as separate requests would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class BulkImportBenchmark {
+    private static final int CATALOG_SIZE = 10_000;
+    private static final int FRIENDS_PER_USER = 5;
+    private static final int LIKES_PER_USER = 10;
+    private static final int RECORDS = CATALOG_SIZE * (2 + FRIENDS_PER_USER + LIKES_PER_USER);
+
+    @Param({"bulk", "perRecord"})
+    private String path;
+
+    @Param({"memory", "snapshot"})
+    private String storage;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private byte[] input;
+    private FilmService films;
+    private UserService users;
+    private BulkTransfer transfer;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+            for (long i = 1; i <= CATALOG_SIZE; i++) {
+                User user = BenchmarkData.user(i);
+                user.setId(i);
+                writeLine(writer, BulkRecord.of(user));
+            }
+            SplittableRandom random = new SplittableRandom(1);
+            for (long i = 1; i <= CATALOG_SIZE; i++) {
+                for (int f = 0; f < FRIENDS_PER_USER; f++) {
+                    long friendId = 1 + random.nextInt(CATALOG_SIZE - 1);
+                    writeLine(writer, BulkRecord.of(new Friendship(i, friendId < i ? friendId : friendId + 1)));
+                }
+            }
+            for (long i = 1; i <= CATALOG_SIZE; i++) {
+                Film film = BenchmarkData.film(i);
+                film.setId(i);
+                writeLine(writer, BulkRecord.of(film));
+            }
+            for (long i = 1; i <= CATALOG_SIZE; i++) {
+                for (int l = 0; l < LIKES_PER_USER; l++) {
+                    // Skewed towards the first films, as real likes are.
+                    long filmId = 1 + (long) (CATALOG_SIZE * Math.pow(random.nextDouble(), 3));
+                    writeLine(writer, BulkRecord.of(new Like(filmId, i)));
+                }
+            }
+        }
+        input = output.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyStorages() {
+        films = new FilmService(BenchmarkData.filmStorage(storage));
+        users = new UserService(BenchmarkData.userStorage(storage));
+        transfer = new BulkTransfer(films, users, objectMapper);
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopWorkers() {
+        transfer.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public Object importRecords() throws IOException {
+        if (path.equals("bulk")) {
+            return transfer.importRecords(new ByteArrayInputStream(input));
+        }
+        return importOneByOne();
+    }
+
+    private long importOneByOne() throws IOException {
+        ObjectReader reader = objectMapper.readerFor(BulkRecord.class);
+        Map<Long, Long> userIds = new HashMap<>();
+        Map<Long, Long> filmIds = new HashMap<>();
+        long stored = 0;
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                BulkRecord record = reader.readValue(line);
+                if (!validator.validate(record).isEmpty()) {
+                    continue;
+                }
+                if (record.getUser() != null) {
+                    ModelValidator.validateUser(record.getUser());
+                    long sourceId = record.getUser().getId();
+                    userIds.put(sourceId, users.createUser(record.getUser()).getId());
+                } else if (record.getFriendship() != null) {
+                    users.addFriend(userIds.get(record.getFriendship().getUserId()),
+                            userIds.get(record.getFriendship().getFriendId()));
+                } else if (record.getFilm() != null) {
+                    ModelValidator.validateFilm(record.getFilm());
+                    long sourceId = record.getFilm().getId();
+                    filmIds.put(sourceId, films.addFilm(record.getFilm()).getId());
+                } else {
+                    films.addLike(filmIds.get(record.getLike().getFilmId()),
+                            userIds.get(record.getLike().getUserId()));
+                }
+                stored++;
+            }
+        }
+        return stored;
+    }
+
+    private void writeLine(Writer writer, BulkRecord record) throws IOException {
+        writer.write(objectMapper.writeValueAsString(record));
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class FilmStorageBenchmark {
+    private static final int USERS = 1_000_000;
+    private static final int BATCH = 1000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int catalogSize;
+
+    @Param({"memory", "snapshot", "partitioned"})
+    private String storage;
+
+    private FilmStorage films;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        films = BenchmarkData.filmStorage(storage);
+        SplittableRandom random = new SplittableRandom(1);
+        for (long i = 0; i < catalogSize; i++) {
+            films.addFilm(BenchmarkData.film(i));
+        }
+        // Skewed like distribution: a few films get most of the likes, as on the real leaderboard.
+        for (long i = 0; i < catalogSize * 2L; i++) {
+            long filmId = 1 + (long) (catalogSize * Math.pow(random.nextDouble(), 3));
+            films.addLike(filmId, 1L + random.nextInt(USERS));
+        }
+    }
+
+    @Benchmark
+    public void addLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        films.addLike(1L + random.nextInt(catalogSize), 1L + random.nextInt(USERS));
+    }
+
+    @Benchmark
+    public void addAndRemoveLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = 1L + random.nextInt(catalogSize);
+        long userId = USERS + 1L + random.nextInt(USERS);
+        films.addLike(filmId, userId);
+        films.removeLike(filmId, userId);
+    }
+
+    // Per-like throughput of the batch path, comparable with addLike.
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object applyLikeBatch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<LikeOperation> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(new LikeOperation(1L + random.nextInt(catalogSize), 1L + random.nextInt(USERS),
+                    LikeOperation.Action.ADD));
+        }
+        return films.applyLikes(batch);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return films.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilmsOfYear() {
+        return films.getPopularFilms(10, 1900 + ThreadLocalRandom.current().nextInt(110));
+    }
+
+    // "Released in a given month, under 100 minutes": a narrow range answered from the release date index.
+    @Benchmark
+    public List<Film> findFilmsOfMonth() {
+        LocalDate from = LocalDate.of(1900 + ThreadLocalRandom.current().nextInt(110), 1, 1);
+        return films.findFilms(new FilmFilter(from, from.plusMonths(1).minusDays(1), null, 99), 0, 50);
+    }
+
+    // Most films match, so the first page is found walking films in id order.
+    @Benchmark
+    public List<Film> findFilmsSinceYear() {
+        LocalDate from = LocalDate.of(1900 + ThreadLocalRandom.current().nextInt(50), 1, 1);
+        return films.findFilms(new FilmFilter(from, null, null, null), 0, 50);
+    }
+
+    @Benchmark
+    public void getAllFilms(Blackhole blackhole) {
+        blackhole.consume(films.getAllFilms());
+    }
+}
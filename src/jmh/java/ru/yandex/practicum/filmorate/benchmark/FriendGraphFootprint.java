@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.*;
+
+/**
+ * Retained heap per friendship of {@link InMemoryUserStorage} against a {@code HashMap<Long, Set<Long>>} holding
+ * the same random graph, measured with JOL by walking both object graphs.
+ * Usage: {@code mvn -P jmh test-compile exec:exec
+ * -Djmh.runner=ru.yandex.practicum.filmorate.benchmark.FriendGraphFootprint -Djmh.args="20000 200000"}
+ * (users, friendships).
+ */
+public class FriendGraphFootprint {
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int edges = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        long[][] friendships = randomEdges(users, edges);
+
+        Map<Long, Set<Long>> boxed = new HashMap<>();
+        for (long id = 1; id <= users; id++) {
+            boxed.put(id, new HashSet<>());
+        }
+        long boxedBefore = GraphLayout.parseInstance(boxed).totalSize();
+        for (long[] edge : friendships) {
+            boxed.get(edge[0]).add(edge[1]);
+            boxed.get(edge[1]).add(edge[0]);
+        }
+        long boxedBytes = GraphLayout.parseInstance(boxed).totalSize() - boxedBefore;
+
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (long id = 1; id <= users; id++) {
+            storage.addUser(BenchmarkData.user(id));
+        }
+        long storageBefore = GraphLayout.parseInstance(storage).totalSize();
+        for (long[] edge : friendships) {
+            storage.addFriend(edge[0], edge[1]);
+        }
+        long storageBytes = GraphLayout.parseInstance(storage).totalSize() - storageBefore;
+
+        System.out.printf("Friendship heap per edge, %d users, %d edges: HashMap<Long, Set<Long>> %.1f bytes, "
+                + "InMemoryUserStorage %.1f bytes%n", users, edges, (double) boxedBytes / edges,
+                (double) storageBytes / edges);
+    }
+
+    private static long[][] randomEdges(int users, int count) {
+        Random random = new Random(7);
+        Set<Long> seen = new HashSet<>();
+        long[][] edges = new long[count][];
+        int size = 0;
+        while (size < count) {
+            long a = random.nextInt(users) + 1;
+            long b = random.nextInt(users) + 1;
+            if (a == b || !seen.add(Math.min(a, b) * (users + 1) + Math.max(a, b))) {
+                continue;
+            }
+            edges[size++] = new long[]{a, b};
+        }
+        return edges;
+    }
+}
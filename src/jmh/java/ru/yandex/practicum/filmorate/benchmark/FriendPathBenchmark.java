@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shortest friendship chains between random users on synthetic social graphs: {@code uniform} links random
+ * pairs, {@code preferential} attaches each new user to users picked in proportion to their friend count, which
+ * produces the hubs of real social graphs. {@code naiveBfs} is a one-sided search with boxed collections for
+ * comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class FriendPathBenchmark {
+    private static final int LINKS_PER_USER = 5;
+    private static final Duration BUDGET = Duration.ofSeconds(10);
+
+    @Param({"100000", "1000000"})
+    private int userCount;
+
+    @Param({"uniform", "preferential"})
+    private String graph;
+
+    private InMemoryUserStorage users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = new InMemoryUserStorage();
+        for (long i = 0; i < userCount; i++) {
+            users.addUser(BenchmarkData.user(i));
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        if (graph.equals("uniform")) {
+            for (long i = 0; i < (long) userCount * LINKS_PER_USER; i++) {
+                link(1L + random.nextInt(userCount), 1L + random.nextInt(userCount));
+            }
+            return;
+        }
+        // Every friendship end is listed once, so a uniform pick from the list favors users with many friends.
+        long[] ends = new long[userCount * LINKS_PER_USER * 2];
+        int size = 0;
+        for (long userId = 1; userId <= userCount; userId++) {
+            for (int i = 0; i < LINKS_PER_USER && userId > 1; i++) {
+                long friendId = size == 0 ? 1 : ends[random.nextInt(size)];
+                if (link(userId, friendId)) {
+                    ends[size++] = userId;
+                    ends[size++] = friendId;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<User> bidirectional() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return users.getFriendPath(1L + random.nextInt(userCount), 1L + random.nextInt(userCount), 12, BUDGET);
+    }
+
+    @Benchmark
+    public int naiveBfs() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long from = 1L + random.nextInt(userCount);
+        long to = 1L + random.nextInt(userCount);
+        Map<Long, Long> parents = new HashMap<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        parents.put(from, from);
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            long current = queue.poll();
+            if (current == to) {
+                int length = 0;
+                for (long node = to; node != from; node = parents.get(node)) {
+                    length++;
+                }
+                return length;
+            }
+            for (long friendId : users.getFriendIds(current)) {
+                if (parents.putIfAbsent(friendId, current) == null) {
+                    queue.add(friendId);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean link(long userId, long friendId) {
+        if (userId == friendId) {
+            return false;
+        }
+        users.addFriend(userId, friendId);
+        return true;
+    }
+}
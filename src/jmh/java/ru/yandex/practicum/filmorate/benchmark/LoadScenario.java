@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop HTTP load against a locally started application, run once per variant of the chosen scenario.
+ * Usage: {@code mvn -P jmh test-compile exec:exec -Djmh.runner=ru.yandex.practicum.filmorate.benchmark.LoadScenario
+ * -Djmh.args="threads 1000 30"} (scenario, concurrent clients, measured seconds).
+ */
+public class LoadScenario {
+    private static final int FILMS = 10_000;
+    private static final int USERS = 10_000;
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+
+    private static final Map<String, Object> BASE_PROPERTIES = Map.of(
+            "server.port", 0,
+            "logging.level.org.zalando.logbook", "INFO",
+            "logging.level.ru.yandex.practicum", "WARN");
+
+    private static final Map<String, List<Variant>> SCENARIOS = Map.of(
+            "threads", List.of(
+                    new Variant("platform-threads", Map.of("spring.threads.virtual.enabled", false)),
+                    new Variant("virtual-threads", Map.of("spring.threads.virtual.enabled", true))),
+            "likes", List.of(
+                    new Variant("sync-likes", Map.of("filmorate.likes.async", false)),
+                    new Variant("async-likes", Map.of("filmorate.likes.async", true))),
+            "logging", List.of(
+                    new Variant("full-logging", Map.of(
+                            "logging.level.org.zalando.logbook", "TRACE",
+                            "logging.level.ru.yandex.practicum", "INFO")),
+                    new Variant("sampled-logging", Map.of(
+                            "spring.profiles.active", "prod",
+                            "logging.level.org.zalando.logbook", "TRACE",
+                            "logging.level.ru.yandex.practicum", "INFO"))));
+
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "threads";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        List<Variant> variants = SCENARIOS.get(scenario);
+        if (variants == null) {
+            throw new IllegalArgumentException("Unknown scenario " + scenario + ", expected one of " + SCENARIOS.keySet());
+        }
+
+        List<String> report = new ArrayList<>();
+        for (Variant variant : variants) {
+            Result result = run(variant, clients, duration);
+            report.add(String.format("%-20s %12.0f %10.2f %10.2f %10.2f %8d",
+                    variant.name(), result.throughput(), result.percentileMillis(0.50),
+                    result.percentileMillis(0.99), result.percentileMillis(1.0), result.errors()));
+        }
+        System.out.printf("%n%d clients, %d s per variant%n", clients, duration.toSeconds());
+        System.out.printf("%-20s %12s %10s %10s %10s %8s%n", "variant", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        report.forEach(System.out::println);
+    }
+
+    private static Result run(Variant variant, int clients, Duration duration) throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>(BASE_PROPERTIES);
+        properties.putAll(variant.properties());
+        // Passed as command line arguments so that they override application.properties.
+        String[] arguments = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .run(arguments)) {
+            seed(context);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String base = "http://localhost:" + port;
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            drive(client, base, clients, WARMUP);
+            return drive(client, base, clients, duration);
+        }
+    }
+
+    private static void seed(ConfigurableApplicationContext context) {
+        FilmService films = context.getBean(FilmService.class);
+        UserService users = context.getBean(UserService.class);
+        for (long i = 0; i < FILMS; i++) {
+            films.addFilm(BenchmarkData.film(i));
+        }
+        for (long i = 0; i < USERS; i++) {
+            users.createUser(BenchmarkData.user(i));
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < USERS * 5; i++) {
+            films.addLike(1L + random.nextInt(FILMS), 1L + random.nextInt(USERS));
+            long userId = 1L + random.nextInt(USERS);
+            long friendId = 1L + random.nextInt(USERS);
+            if (userId != friendId) {
+                users.addFriend(userId, friendId);
+            }
+        }
+    }
+
+    private static Result drive(HttpClient client, String base, int clients, Duration duration)
+            throws InterruptedException {
+        long started = System.nanoTime();
+        long deadline = started + duration.toNanos();
+        LatencyRecorder[] recorders = new LatencyRecorder[clients];
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                LatencyRecorder recorder = new LatencyRecorder();
+                recorders[i] = recorder;
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = nextRequest(base, ThreadLocalRandom.current());
+                        long start = System.nanoTime();
+                        boolean failed;
+                        try {
+                            failed = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 500;
+                        } catch (Exception e) {
+                            failed = true;
+                        }
+                        recorder.record(System.nanoTime() - start, failed);
+                    }
+                    return null;
+                });
+            }
+        }
+        return Result.merge(recorders, System.nanoTime() - started);
+    }
+
+    private static HttpRequest nextRequest(String base, ThreadLocalRandom random) {
+        long filmId = 1L + random.nextInt(FILMS);
+        long userId = 1L + random.nextInt(USERS);
+        int kind = random.nextInt(10);
+        if (kind < 5) {
+            return HttpRequest.newBuilder(URI.create(base + "/films/popular?count=10")).GET().build();
+        } else if (kind < 7) {
+            return HttpRequest.newBuilder(URI.create(base + "/films/" + filmId)).GET().build();
+        } else if (kind < 9) {
+            return HttpRequest.newBuilder(URI.create(base + "/films/" + filmId + "/like/" + userId))
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(base + "/users/" + userId + "/friends")).GET().build();
+    }
+
+    private record Variant(String name, Map<String, Object> properties) {
+    }
+
+    private static final class LatencyRecorder {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        void record(long nanos, boolean failed) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (failed) {
+                errors++;
+            }
+        }
+    }
+
+    private record Result(long[] sortedLatencies, long errors, long elapsedNanos) {
+        static Result merge(LatencyRecorder[] recorders, long elapsedNanos) {
+            int total = 0;
+            long errors = 0;
+            for (LatencyRecorder recorder : recorders) {
+                total += recorder.size;
+                errors += recorder.errors;
+            }
+            long[] all = new long[total];
+            int offset = 0;
+            for (LatencyRecorder recorder : recorders) {
+                System.arraycopy(recorder.latencies, 0, all, offset, recorder.size);
+                offset += recorder.size;
+            }
+            Arrays.sort(all);
+            return new Result(all, errors, elapsedNanos);
+        }
+
+        double throughput() {
+            return sortedLatencies.length * 1e9 / elapsedNanos;
+        }
+
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
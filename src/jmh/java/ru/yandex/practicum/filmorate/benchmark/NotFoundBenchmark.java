@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.controller.ClientErrorLog;
+import ru.yandex.practicum.filmorate.controller.GlobalExceptionHandler;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The server-side work of answering {@code GET /films/{id}} for ids that do not exist, as probing bots send
+ * them: {@code miss} is the current path through the service and the exception handler, {@code stackTraceMiss}
+ * the previous one, which built a stack trace per miss, printed it into the ERROR log and serialized a fresh
+ * body. Its stack is only as deep as the benchmark's, far shallower than a request thread's, so it understates
+ * the previous cost. {@code hit} serializes an existing film for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotFoundBenchmark {
+    private static final int FILMS = 10_000;
+
+    private FilmService films;
+    private GlobalExceptionHandler handler;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (long i = 0; i < FILMS; i++) {
+            storage.addFilm(BenchmarkData.film(i));
+        }
+        films = new FilmService(storage);
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        // Not started: counts pile up unreported, as they would between two reports.
+        ClientErrorLog clientErrorLog = new ClientErrorLog(Duration.ofSeconds(10));
+        handler = new GlobalExceptionHandler(objectMapper, clientErrorLog, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public byte[] miss() {
+        try {
+            films.getFilmById(missingId());
+            throw new IllegalStateException();
+        } catch (NotFoundException e) {
+            return handler.handleNotFound(e).getBody();
+        }
+    }
+
+    @Benchmark
+    public byte[] stackTraceMiss() throws JsonProcessingException {
+        try {
+            films.getFilmById(missingId());
+            throw new IllegalStateException();
+        } catch (NotFoundException e) {
+            RuntimeException previous = new RuntimeException(e.getMessage());
+            StringWriter log = new StringWriter();
+            previous.printStackTrace(new PrintWriter(log));
+            return objectMapper.writeValueAsBytes(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Benchmark
+    public byte[] hit() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(films.getFilmById(1L + ThreadLocalRandom.current().nextInt(FILMS)));
+    }
+
+    private static long missingId() {
+        return FILMS + 1L + ThreadLocalRandom.current().nextInt(1_000_000);
+    }
+}
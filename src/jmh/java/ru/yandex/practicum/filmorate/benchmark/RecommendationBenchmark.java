@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.FilmRecommendations;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries against a co-like matrix that is already built, the cost of keeping it up to date per like, and a
+ * full parallel rebuild ({@code rebuild}, one invocation per iteration).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class RecommendationBenchmark {
+    private static final int USERS = 100_000;
+    private static final int LIKES_PER_USER = 20;
+
+    @Param({"10000", "100000"})
+    private int catalogSize;
+
+    private InMemoryFilmStorage films;
+    private FilmRecommendations recommendations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        films = new InMemoryFilmStorage();
+        for (long i = 0; i < catalogSize; i++) {
+            films.addFilm(BenchmarkData.film(i));
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        for (long userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                films.addLike(1 + (long) (catalogSize * Math.pow(random.nextDouble(), 3)), userId);
+            }
+        }
+        recommendations = new FilmRecommendations(films, 50);
+        recommendations.rebuild();
+    }
+
+    @Benchmark
+    public List<Long> similar() {
+        return recommendations.similar(1L + ThreadLocalRandom.current().nextInt(catalogSize), 10);
+    }
+
+    @Benchmark
+    public List<Long> recommendFor() {
+        return recommendations.recommendFor(1L + ThreadLocalRandom.current().nextInt(USERS), 10);
+    }
+
+    @Benchmark
+    public void likeAddedAndRemoved() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = 1L + random.nextInt(catalogSize);
+        long userId = 1L + random.nextInt(USERS);
+        recommendations.likeAdded(filmId, userId);
+        recommendations.likeRemoved(filmId, userId);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void rebuild() {
+        recommendations.rebuild();
+    }
+}
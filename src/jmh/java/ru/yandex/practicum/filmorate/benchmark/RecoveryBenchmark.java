@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.wal.DurabilityManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup time of the durable in-memory storages: loading the snapshot and replaying the log tail written
+ * after it. {@code logShare} is the fraction of likes that only exist in the log. Run with
+ * {@code -Djmh.threads=1}: each invocation is one full recovery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class RecoveryBenchmark {
+    private static final int FILMS = 100_000;
+    private static final int USERS = 1_000_000;
+
+    @Param({"10000000"})
+    private int likeCount;
+
+    @Param({"0.0", "0.1"})
+    private double logShare;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("filmorate-recovery");
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        DurabilityManager manager = new DurabilityManager(films, users, directory, false, Duration.ZERO);
+        manager.start();
+        for (long i = 0; i < FILMS; i++) {
+            films.addFilm(BenchmarkData.film(i));
+        }
+        for (long i = 0; i < USERS; i++) {
+            users.addUser(BenchmarkData.user(i));
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < USERS; i++) {
+            long userId = 1L + random.nextInt(USERS);
+            long friendId = 1L + random.nextInt(USERS);
+            if (userId != friendId) {
+                users.addFriend(userId, friendId);
+            }
+        }
+        long snapshotted = (long) (likeCount * (1 - logShare));
+        for (long i = 0; i < likeCount; i++) {
+            if (i == snapshotted) {
+                manager.snapshot();
+            }
+            long filmId = 1 + (long) (FILMS * Math.pow(random.nextDouble(), 3));
+            films.addLike(filmId, 1L + random.nextInt(USERS));
+        }
+        if (snapshotted == likeCount) {
+            manager.snapshot();
+        }
+        manager.stop();
+    }
+
+    @Benchmark
+    public List<Film> recover() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        new DurabilityManager(films, users, directory, false, Duration.ZERO).recover();
+        return films.getPopularFilms(10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.ReplicatedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.cluster.LoopbackTransport;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Likes on a cluster of {@code nodes} replicated storages in one JVM connected by the loopback transport. Every
+ * invocation toggles {@code BATCH} likes on one node and ships them, so the score includes merging them into every
+ * other node. The trial fails if the nodes have not converged at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReplicationBenchmark {
+    private static final int BATCH = 1000;
+    private static final int USERS = 100_000;
+
+    @Param({"1", "2", "4"})
+    private int nodes;
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    private ReplicatedFilmStorage[] cluster;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String name = UUID.randomUUID().toString();
+        cluster = new ReplicatedFilmStorage[nodes];
+        for (int i = 0; i < nodes; i++) {
+            cluster[i] = new ReplicatedFilmStorage(new LoopbackTransport(name), "node" + i);
+            cluster[i].start();
+            for (long f = 0; f < catalogSize; f++) {
+                cluster[i].addFilm(BenchmarkData.film(f));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void checkConverged() {
+        for (ReplicatedFilmStorage node : cluster) {
+            node.flush();
+        }
+        for (ReplicatedFilmStorage node : cluster) {
+            node.stop();
+            if (node.countLikes() != cluster[0].countLikes()) {
+                throw new IllegalStateException(node.getNodeId() + " has not converged");
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void toggleLikesAndFlush() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ReplicatedFilmStorage node = cluster[random.nextInt(nodes)];
+        for (int i = 0; i < BATCH; i++) {
+            long filmId = 1L + random.nextInt(catalogSize);
+            long userId = 1L + random.nextInt(USERS);
+            if (!node.addLike(filmId, userId)) {
+                node.removeLike(filmId, userId);
+            }
+        }
+        node.flush();
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search queries against an index of films whose names and descriptions draw words from a skewed vocabulary
+ * and whose likes are skewed towards a few films, next to {@code scanBaseline}: filtering all films by
+ * substring as clients had to before. {@code commonWord} queries one of the ten most frequent words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class SearchBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int USERS = 100_000;
+    private static final int LIKES_PER_USER = 20;
+
+    @Param({"100000", "1000000"})
+    private int catalogSize;
+
+    private InMemoryFilmStorage films;
+    private FilmSearchIndex index;
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        words = new String[VOCABULARY];
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 3 + random.nextInt(6); length > 0; length--) {
+                word.append((char) ((i % 2 == 0 ? 'a' : 'а') + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        films = new InMemoryFilmStorage();
+        for (long i = 0; i < catalogSize; i++) {
+            Film film = BenchmarkData.film(i);
+            film.setName(text(random, 1 + random.nextInt(4)));
+            film.setDescription(text(random, 10));
+            films.addFilm(film);
+        }
+        for (long userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                films.addLike(1 + (long) (catalogSize * Math.pow(random.nextDouble(), 3)), userId);
+            }
+        }
+        index = new FilmSearchIndex(films);
+        index.rebuild();
+    }
+
+    @Benchmark
+    public List<Long> rareWord() {
+        return index.search(word(ThreadLocalRandom.current().nextInt(1000, VOCABULARY)), 10);
+    }
+
+    @Benchmark
+    public List<Long> twoWords() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.search(word(random.nextInt(100)) + " " + word(random.nextInt(100, VOCABULARY)), 10);
+    }
+
+    @Benchmark
+    public List<Long> commonWord() {
+        return index.search(word(ThreadLocalRandom.current().nextInt(10)), 10);
+    }
+
+    @Benchmark
+    public List<Long> complete() {
+        String word = word(ThreadLocalRandom.current().nextInt(VOCABULARY));
+        return index.complete(word.substring(0, 3), 10);
+    }
+
+    @Benchmark
+    public List<Film> scanBaseline() {
+        String word = word(ThreadLocalRandom.current().nextInt(1000, VOCABULARY));
+        List<Film> found = new ArrayList<>();
+        for (Film film : films.getAllFilms()) {
+            if (film.getName().toLowerCase(Locale.ROOT).contains(word)
+                    || film.getDescription().toLowerCase(Locale.ROOT).contains(word)) {
+                found.add(film);
+            }
+        }
+        return found;
+    }
+
+    // Word ranks follow a power law, so a few words appear in a large share of the films.
+    private String text(SplittableRandom random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word((int) (VOCABULARY * Math.pow(random.nextDouble(), 4))));
+        }
+        return text.toString();
+    }
+
+    private String word(int rank) {
+        return words[rank];
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class UserStorageBenchmark {
+    private static final int AVERAGE_FRIENDS = 10;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int catalogSize;
+
+    @Param({"memory", "snapshot", "partitioned"})
+    private String storage;
+
+    private UserStorage users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = BenchmarkData.userStorage(storage);
+        SplittableRandom random = new SplittableRandom(1);
+        for (long i = 0; i < catalogSize; i++) {
+            users.addUser(BenchmarkData.user(i));
+        }
+        for (long i = 0; i < (long) catalogSize * AVERAGE_FRIENDS / 2; i++) {
+            long userId = 1L + random.nextInt(catalogSize);
+            long friendId = 1L + random.nextInt(catalogSize);
+            if (userId != friendId) {
+                users.addFriend(userId, friendId);
+            }
+        }
+    }
+
+    @Benchmark
+    public void addFriend() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = 1L + random.nextInt(catalogSize);
+        long friendId = 1L + random.nextInt(catalogSize);
+        if (userId != friendId) {
+            users.addFriend(userId, friendId);
+        }
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return users.getFriends(1L + ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return users.getCommonFriends(1L + random.nextInt(catalogSize), 1L + random.nextInt(catalogSize));
+    }
+
+    @Benchmark
+    public List<User> getFriendSuggestions() {
+        return users.getFriendSuggestions(1L + ThreadLocalRandom.current().nextInt(catalogSize), 10);
+    }
+
+    @Benchmark
+    public void getAllUsers(Blackhole blackhole) {
+        blackhole.consume(users.getAllUsers());
+    }
+}
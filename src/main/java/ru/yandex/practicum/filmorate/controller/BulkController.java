@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.service.BulkTransfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("/bulk")
+@Slf4j
+public class BulkController {
+    private final BulkTransfer bulkTransfer;
+
+    @Autowired
+    public BulkController(BulkTransfer bulkTransfer) {
+        this.bulkTransfer = bulkTransfer;
+    }
+
+    // The body is read as a stream, so it is never held in memory as a whole.
+    @PostMapping(value = "/import", consumes = PagedResponses.NDJSON)
+    public BulkTransfer.Report importRecords(InputStream body) throws IOException {
+        log.info("Importing records");
+        return bulkTransfer.importRecords(body);
+    }
+
+    @GetMapping("/import")
+    public List<BulkTransfer.Report> getRunningImports() {
+        return bulkTransfer.runningImports();
+    }
+
+    @GetMapping(value = "/export", produces = PagedResponses.NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportRecords() {
+        log.info("Exporting all records");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(PagedResponses.NDJSON))
+                .body(bulkTransfer::exportRecords);
+    }
+}
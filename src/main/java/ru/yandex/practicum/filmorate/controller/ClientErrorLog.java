@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts 4xx responses per status and message and logs the counts once per interval from a background thread,
+ * so a flood of probes for missing ids costs a counter increment per request and a few log lines in total.
+ */
+@Slf4j
+@Component
+public class ClientErrorLog {
+    // Bounds the distinct messages kept between flushes; messages may echo request input.
+    private static final int MAX_KEYS = 1000;
+    private static final String OTHER = "(other messages)";
+
+    private final Duration interval;
+    private final Map<Key, LongAdder> counts = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public ClientErrorLog(@Value("${filmorate.client-errors.log-interval:10s}") Duration interval) {
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("client-error-log").daemon()
+                .factory());
+        scheduler.scheduleWithFixedDelay(this::flush, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    public void record(int status, String message) {
+        Key key = new Key(status, message);
+        LongAdder count = counts.get(key);
+        if (count == null) {
+            if (counts.size() >= MAX_KEYS) {
+                key = new Key(status, OTHER);
+            }
+            count = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Logs and resets the counts recorded since the last flush.
+     *
+     * @return the logged counts keyed by status and message
+     */
+    public Map<String, Long> flush() {
+        Map<String, Long> flushed = new LinkedHashMap<>();
+        for (Map.Entry<Key, LongAdder> entry : counts.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count == 0) {
+                // Idle for a whole interval. An increment racing with the removal is lost, which a log tolerates.
+                counts.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            Key key = entry.getKey();
+            flushed.put(key.status() + " " + key.message(), count);
+            log.warn("{} responses \"{}\": {} since the last report", key.status(), key.message(), count);
+        }
+        return flushed;
+    }
+
+    private record Key(int status, String message) {
+    }
+}
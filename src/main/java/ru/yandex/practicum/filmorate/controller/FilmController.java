@@ -1,50 +1,132 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikePipeline;
+import ru.yandex.practicum.filmorate.service.ModelValidator;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmRecommendations;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.TrendingFilms;
 
-import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/films")
 @Slf4j
 @Validated
 public class FilmController {
+    static final int MAX_LIKE_BATCH = 10_000;
+    static final String USER_ID_HEADER = "X-User-Id";
+
     private final FilmService filmService;
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final PopularFilmsCache popularFilmsCache;
+    private final LikePipeline likePipeline;
+    private final TrendingFilms trendingFilms;
+    private final FilmRecommendations filmRecommendations;
+    private final FilmSearchIndex filmSearchIndex;
 
     public FilmController() {
-        this.filmService = new FilmService(new InMemoryFilmStorage());
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        this.trendingFilms = new TrendingFilms();
+        this.filmRecommendations = new FilmRecommendations(filmStorage, 50);
+        this.filmSearchIndex = new FilmSearchIndex(filmStorage);
+        this.filmService = new FilmService(filmStorage,
+                List.of(trendingFilms, filmRecommendations, filmSearchIndex));
         this.userService = new UserService(new InMemoryUserStorage());
+        this.objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        this.popularFilmsCache = new PopularFilmsCache(filmService, objectMapper, 64);
+        this.likePipeline = new LikePipeline(filmService);
     }
 
     @Autowired
-    public FilmController(FilmService filmService, UserService userService) {
+    public FilmController(FilmService filmService, UserService userService, ObjectMapper objectMapper,
+                          PopularFilmsCache popularFilmsCache, LikePipeline likePipeline,
+                          TrendingFilms trendingFilms, FilmRecommendations filmRecommendations,
+                          FilmSearchIndex filmSearchIndex) {
         this.filmService = filmService;
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.popularFilmsCache = popularFilmsCache;
+        this.likePipeline = likePipeline;
+        this.trendingFilms = trendingFilms;
+        this.filmRecommendations = filmRecommendations;
+        this.filmSearchIndex = filmSearchIndex;
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.info("Fetching all films");
-        return filmService.getAllFilms();
+    public List<Film> getAllFilms(@Valid FilmFilter filter) {
+        if (!filter.hasReleaseDateRange() && !filter.hasDurationRange()) {
+            log.info("Fetching all films");
+            return filmService.getAllFilms();
+        }
+        log.info("Fetching films matching {}", filter);
+        return filmService.findFilms(filter, 0, Integer.MAX_VALUE);
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<Film>> getFilmsPage(@RequestParam(defaultValue = "0") @PositiveOrZero long after,
+                                                   @RequestParam @Positive @Max(PagedResponses.MAX_PAGE_SIZE)
+                                                   int limit,
+                                                   @Valid FilmFilter filter) {
+        if (!filter.hasReleaseDateRange() && !filter.hasDurationRange()) {
+            log.info("Fetching {} films after id {}", limit, after);
+            return PagedResponses.page("/films", filmService.getFilmsPage(after, limit), limit, Film::getId);
+        }
+        log.info("Fetching {} films after id {} matching {}", limit, after, filter);
+        UriComponentsBuilder next = UriComponentsBuilder.fromPath("/films")
+                .queryParamIfPresent("releasedFrom", Optional.ofNullable(filter.getReleasedFrom()))
+                .queryParamIfPresent("releasedTo", Optional.ofNullable(filter.getReleasedTo()))
+                .queryParamIfPresent("minDuration", Optional.ofNullable(filter.getMinDuration()))
+                .queryParamIfPresent("maxDuration", Optional.ofNullable(filter.getMaxDuration()));
+        return PagedResponses.page(next, filmService.findFilms(filter, after, limit), limit, Film::getId);
+    }
+
+    @GetMapping(value = "/stream", produces = PagedResponses.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        log.info("Streaming all films");
+        return PagedResponses.stream(objectMapper, filmService::getFilmsPage, Film::getId);
     }
 
     @GetMapping("/{id}")
-    public Film getFilm(@Positive @PathVariable Long id) {
+    public Film getFilm(@Positive @PathVariable Long id,
+                        @RequestHeader(value = USER_ID_HEADER, required = false) Long actingUserId) {
         log.info("Fetching film with id {}", id);
+        likePipeline.awaitApplied(actingUserId);
         return filmService.getFilmById(id);
     }
 
@@ -59,12 +141,7 @@ public class FilmController {
     public Film updateFilm(@Valid @RequestBody Film film) {
         log.info("Updating film: {}", film);
         validateFilm(film);
-        try {
-            return filmService.updateFilm(film);
-        } catch (NotFoundException e) {
-            log.warn("Film not found: {}", film.getId());
-            throw new ValidationException("Film not found");
-        }
+        return filmService.updateFilm(film);
     }
 
     @DeleteMapping("/{id}")
@@ -74,48 +151,106 @@ public class FilmController {
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public void addLike(@Positive @PathVariable Long id,
-                        @Positive @PathVariable Long userId) {
+    public ResponseEntity<Void> addLike(@Positive @PathVariable Long id,
+                                        @Positive @PathVariable Long userId) {
         log.info("User {} likes film {}", userId, id);
         userService.getUserById(userId);
-        filmService.addLike(id, userId);
+        return likeResponse(likePipeline.submit(new LikeOperation(id, userId, LikeOperation.Action.ADD)));
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public void removeLike(@Positive @PathVariable Long id,
-                           @Positive @PathVariable Long userId) {
+    public ResponseEntity<Void> removeLike(@Positive @PathVariable Long id,
+                                           @Positive @PathVariable Long userId) {
         log.info("User {} removes like from film {}", userId, id);
         userService.getUserById(userId);
-        filmService.removeLike(id, userId);
+        return likeResponse(likePipeline.submit(new LikeOperation(id, userId, LikeOperation.Action.REMOVE)));
     }
 
-    @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") @Positive int count) {
-        log.info("Fetching top {} popular films", count);
-        return filmService.getPopularFilms(count);
+    @GetMapping("/likes/pipeline")
+    public LikePipeline.Stats getLikePipelineStats() {
+        return likePipeline.getStats();
     }
 
-    private void validateFilm(Film film) {
-        if (film == null) {
-            throw new ValidationException("Film cannot be null");
-        }
-        if (film.getName() == null || film.getName().isBlank()) {
-            log.warn("Film name is invalid");
-            throw new ValidationException("Film name is invalid");
-        }
-        if (film.getDescription() != null && film.getDescription().length() > 200) {
-            log.warn("Film description is too long");
-            throw new ValidationException("Description length exceeds 200 characters");
-        }
-        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            log.warn("Film release date is invalid");
-            throw new ValidationException("Release date is invalid");
+    @PostMapping("/likes/batch")
+    public List<LikeOperationResult> applyLikes(@RequestBody @Size(max = MAX_LIKE_BATCH)
+                                                List<@Valid @NotNull LikeOperation> operations) {
+        log.info("Applying a batch of {} like operations", operations.size());
+        List<Long> userIds = operations.stream().map(LikeOperation::getUserId).distinct().toList();
+        return filmService.applyLikes(operations, userService.findExistingIds(userIds));
+    }
+
+    @GetMapping("/popular")
+    public ResponseEntity<byte[]> getPopularFilms(@RequestParam(defaultValue = "10") @Positive int count,
+                                                  @RequestParam(required = false) @Min(1895) @Max(9999)
+                                                  Integer year,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                  String ifNoneMatch,
+                                                  @RequestHeader(value = USER_ID_HEADER, required = false)
+                                                  Long actingUserId) {
+        log.info("Fetching top {} popular films of year {}", count, year);
+        likePipeline.awaitApplied(actingUserId);
+        PopularFilmsCache.Rendered popular = popularFilmsCache.get(count, year);
+        if (popular.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(popular.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
         }
-        if (film.getDuration() <= 0) {
-            log.warn("Film duration is invalid");
-            throw new ValidationException("Duration must be positive");
+        return ResponseEntity.ok()
+                .eTag(popular.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(popular.body());
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                       @RequestParam(defaultValue = "10") @Positive int count,
+                                       @RequestHeader(value = USER_ID_HEADER, required = false)
+                                       Long actingUserId) {
+        log.info("Fetching top {} trending films for {}", count, window);
+        TrendingFilms.Window parsed = TrendingFilms.Window.parse(window);
+        if (parsed == null) {
+            throw new ValidationException("Unknown window " + window + ", expected 1h, 24h or 7d");
         }
+        likePipeline.awaitApplied(actingUserId);
+        return filmService.getFilmsByIds(trendingFilms.top(parsed, count));
+    }
+
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(@Positive @PathVariable Long id,
+                                      @RequestParam(defaultValue = "10") @Positive int count) {
+        log.info("Fetching {} films similar to film {}", count, id);
+        filmService.getFilmById(id);
+        return filmService.getFilmsByIds(filmRecommendations.similar(id, count));
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam @NotBlank String q,
+                                  @RequestParam(defaultValue = "10") @Positive @Max(PagedResponses.MAX_PAGE_SIZE)
+                                  int count) {
+        log.info("Searching {} films for '{}'", count, q);
+        return filmService.getFilmsByIds(filmSearchIndex.search(q, count));
     }
-}
 
+    @GetMapping("/search/complete")
+    public List<Film> completeFilmNames(@RequestParam @NotBlank String q,
+                                        @RequestParam(defaultValue = "10") @Positive
+                                        @Max(PagedResponses.MAX_PAGE_SIZE) int count) {
+        log.info("Completing {} film names for '{}'", count, q);
+        return filmService.getFilmsByIds(filmSearchIndex.complete(q, count));
+    }
+
+    private static ResponseEntity<Void> likeResponse(boolean queued) {
+        return queued ? ResponseEntity.accepted().build() : ResponseEntity.ok().build();
+    }
 
+    private void validateFilm(Film film) {
+        try {
+            ModelValidator.validateFilm(film);
+        } catch (ValidationException e) {
+            log.warn("Invalid film: {}", e.getMessage());
+            throw e;
+        }
+    }
+}
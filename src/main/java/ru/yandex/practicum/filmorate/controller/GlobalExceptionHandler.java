@@ -1,57 +1,149 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.validation.FieldError;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.exception.TimeBudgetExceededException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 
+import java.io.UncheckedIOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Client errors (4xx) are counted and logged in aggregate by {@link ClientErrorLog} instead of one stack trace
+ * per request, and their {@code {"error": ...}} bodies are serialized once per message.
+ */
 @Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
+    // Bounds the cache for messages that echo request input; further messages are serialized every time.
+    private static final int MAX_CACHED_BODIES = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final ClientErrorLog clientErrorLog;
+    private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+    private final Counter methodArgumentNotValid;
+    private final Counter constraintViolation;
+    private final Counter validation;
+    private final Counter notFound;
+
+    @Autowired
+    public GlobalExceptionHandler(ObjectMapper objectMapper, ClientErrorLog clientErrorLog, MeterRegistry registry) {
+        this.objectMapper = objectMapper;
+        this.clientErrorLog = clientErrorLog;
+        methodArgumentNotValid = errorCounter(registry, MethodArgumentNotValidException.class);
+        constraintViolation = errorCounter(registry, ConstraintViolationException.class);
+        validation = errorCounter(registry, ValidationException.class);
+        notFound = errorCounter(registry, NotFoundException.class);
+    }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, String>> handleMethodArgumentNotValid(MethodArgumentNotValidException ex) {
-        log.error("MethodArgumentNotValidException: {}", ex.getMessage(), ex);
+    public ResponseEntity<byte[]> handleMethodArgumentNotValid(MethodArgumentNotValidException ex) {
+        methodArgumentNotValid.increment();
         String errorMsg = ex.getBindingResult()
                 .getFieldErrors()
                 .stream()
                 .findFirst()
                 .map(FieldError::getDefaultMessage)
                 .orElse("Validation failed");
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body(Map.of("error", errorMsg));
+        return clientError(HttpStatus.BAD_REQUEST, errorMsg);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<byte[]> handleConstraintViolation(ConstraintViolationException ex) {
+        constraintViolation.increment();
+        String errorMsg = ex.getConstraintViolations()
+                .stream()
+                .findFirst()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .orElse("Validation failed");
+        return clientError(HttpStatus.BAD_REQUEST, errorMsg);
     }
 
     @ExceptionHandler(ValidationException.class)
-    public ResponseEntity<Map<String, String>> handleValidation(ValidationException ex) {
-        log.error("ValidationException: {}", ex.getMessage(), ex);
-        String msg = ex.getMessage();
-        if (msg != null && msg.toLowerCase().contains("not found")) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", msg));
-        }
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body(Map.of("error", msg));
+    public ResponseEntity<byte[]> handleValidation(ValidationException ex) {
+        validation.increment();
+        return clientError(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
     @ExceptionHandler(NotFoundException.class)
-    public ResponseEntity<Map<String, String>> handleNotFound(NotFoundException ex) {
-        log.error("NotFoundException: {}", ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(Map.of("error", ex.getMessage()));
+    public ResponseEntity<byte[]> handleNotFound(NotFoundException ex) {
+        notFound.increment();
+        return clientError(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<byte[]> handleOverloaded(OverloadedException ex) {
+        log.warn("OverloadedException: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(ex.getMessage()));
+    }
+
+    @ExceptionHandler(TimeBudgetExceededException.class)
+    public ResponseEntity<byte[]> handleTimeBudgetExceeded(TimeBudgetExceededException ex) {
+        log.warn("TimeBudgetExceededException: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(ex.getMessage()));
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, String>> handleOther(Exception ex) {
+    public ResponseEntity<byte[]> handleOther(Exception ex) {
         log.error("Unexpected exception: {}", ex.getMessage(), ex);
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "An unexpected error occurred"));
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body("An unexpected error occurred"));
+    }
+
+    private ResponseEntity<byte[]> clientError(HttpStatus status, String message) {
+        clientErrorLog.record(status.value(), message);
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(message));
+    }
+
+    private byte[] body(String message) {
+        String error = message == null ? "" : message;
+        byte[] cached = bodies.get(error);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] serialized = serialize(error);
+        if (bodies.size() < MAX_CACHED_BODIES) {
+            bodies.putIfAbsent(error, serialized);
+        }
+        return serialized;
+    }
+
+    private byte[] serialize(String error) {
+        try {
+            return objectMapper.writeValueAsBytes(Map.of("error", error));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Counter errorCounter(MeterRegistry registry, Class<? extends Exception> type) {
+        return Counter.builder("filmorate.errors")
+                .description("Requests rejected by an exception handler")
+                .tag("exception", type.getSimpleName())
+                .register(registry);
     }
 }
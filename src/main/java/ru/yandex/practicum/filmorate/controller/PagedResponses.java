@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Responses for collections walked in id order: a single page with a {@code Link} to the next one, or the
+ * whole collection as newline-delimited JSON fetched page by page, so that at most one page is in memory.
+ */
+final class PagedResponses {
+    static final String NDJSON = "application/x-ndjson";
+    private static final MediaType NDJSON_TYPE = MediaType.parseMediaType(NDJSON);
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    private PagedResponses() {
+    }
+
+    static <T> ResponseEntity<List<T>> page(String path, List<T> page, int limit, ToLongFunction<T> idOf) {
+        return page(UriComponentsBuilder.fromPath(path), page, limit, idOf);
+    }
+
+    /**
+     * @param next the next page's URI without paging parameters, e.g. with the filters of this page
+     */
+    static <T> ResponseEntity<List<T>> page(UriComponentsBuilder next, List<T> page, int limit,
+                                            ToLongFunction<T> idOf) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!page.isEmpty() && page.size() == limit) {
+            long lastId = idOf.applyAsLong(page.get(page.size() - 1));
+            String uri = next.queryParam("after", lastId).queryParam("limit", limit).build().toUriString();
+            response.header(HttpHeaders.LINK, "<" + uri + ">; rel=\"next\"");
+        }
+        return response.body(page);
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, PageSource<T> pages,
+                                                            ToLongFunction<T> idOf) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                long afterId = 0;
+                List<T> page;
+                do {
+                    page = pages.fetch(afterId, STREAM_PAGE_SIZE);
+                    for (T item : page) {
+                        generator.writeObject(item);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                    if (!page.isEmpty()) {
+                        afterId = idOf.applyAsLong(page.get(page.size() - 1));
+                    }
+                } while (page.size() == STREAM_PAGE_SIZE);
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON_TYPE).body(body);
+    }
+
+    interface PageSource<T> {
+        List<T> fetch(long afterId, int limit);
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serialized popular-film responses per requested count and release year, least recently used evicted first.
+ * An entry stays valid while the film storage version it was rendered at is current.
+ */
+@Component
+public class PopularFilmsCache {
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, Rendered> entries;
+
+    @Autowired
+    public PopularFilmsCache(FilmService filmService, ObjectMapper objectMapper,
+                             @Value("${filmorate.popular-cache.max-entries:64}") int maxEntries) {
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Rendered> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param year release year to rank within, or null for all films
+     */
+    public Rendered get(int count, Integer year) {
+        Key key = new Key(count, year);
+        // Read before rendering: a change racing with it only makes the entry look older than it is.
+        long version = filmService.getVersion();
+        Rendered cached;
+        lock.lock();
+        try {
+            cached = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+        Rendered rendered = render(key, version);
+        lock.lock();
+        try {
+            Rendered current = entries.get(key);
+            if (current == null || current.version() < version) {
+                entries.put(key, rendered);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return rendered;
+    }
+
+    private Rendered render(Key key, long version) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(key.year() == null
+                    ? filmService.getPopularFilms(key.count())
+                    : filmService.getPopularFilms(key.count(), key.year()));
+            return new Rendered(version, body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Key(int count, Integer year) {
+    }
+
+    /**
+     * The ETag is derived from the body rather than the version, so it stays valid across restarts.
+     */
+    public record Rendered(long version, byte[] body, String etag) {
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
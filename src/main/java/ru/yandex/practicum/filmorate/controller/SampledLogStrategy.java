@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logbook strategy of {@code logbook.strategy=sampled}: bodies are never buffered, and an exchange is logged as
+ * one entry after its response only if it failed, was slow or falls into the sample. Everything else costs no
+ * formatting at all.
+ */
+@Component
+@ConditionalOnProperty(name = "logbook.strategy", havingValue = "sampled")
+public class SampledLogStrategy implements Strategy {
+    private final double sampleRate;
+    private final long slowNanos;
+    private final int minimumStatus;
+
+    @Autowired
+    public SampledLogStrategy(@Value("${filmorate.logging.sample-rate:0.01}") double sampleRate,
+                              @Value("${filmorate.logging.slow-threshold:500ms}") Duration slowThreshold,
+                              @Value("${logbook.minimum-status:400}") int minimumStatus) {
+        this.sampleRate = sampleRate;
+        this.slowNanos = slowThreshold.toNanos();
+        this.minimumStatus = minimumStatus;
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) {
+        return request.withoutBody();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+        // Written together with the response, once it is known whether the exchange is logged.
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) {
+        return response.withoutBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (shouldLog(response.getStatus(), correlation.getDuration())) {
+            sink.writeBoth(correlation, request, response);
+        }
+    }
+
+    public boolean shouldLog(int status, Duration duration) {
+        return status >= minimumStatus
+                || duration.toNanos() >= slowNanos
+                || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
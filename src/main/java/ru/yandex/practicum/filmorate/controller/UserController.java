@@ -1,19 +1,31 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ModelValidator;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmRecommendations;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
-import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/users")
@@ -21,14 +33,28 @@ import java.util.List;
 @Validated
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final FilmRecommendations filmRecommendations;
+    private final ObjectMapper objectMapper;
 
     public UserController() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
         this.userService = new UserService(new InMemoryUserStorage());
+        this.filmRecommendations = new FilmRecommendations(filmStorage, 50);
+        this.filmService = new FilmService(filmStorage, List.of(filmRecommendations));
+        this.objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
     }
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService,
+                          FilmRecommendations filmRecommendations, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.filmRecommendations = filmRecommendations;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
@@ -37,6 +63,20 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<User>> getUsersPage(@RequestParam(defaultValue = "0") @PositiveOrZero long after,
+                                                   @RequestParam @Positive @Max(PagedResponses.MAX_PAGE_SIZE)
+                                                   int limit) {
+        log.info("Fetching {} users after id {}", limit, after);
+        return PagedResponses.page("/users", userService.getUsersPage(after, limit), limit, User::getId);
+    }
+
+    @GetMapping(value = "/stream", produces = PagedResponses.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        log.info("Streaming all users");
+        return PagedResponses.stream(objectMapper, userService::getUsersPage, User::getId);
+    }
+
     @GetMapping("/{id}")
     public User getUser(@Positive @PathVariable Long id) {
         log.info("Fetching user with id {}", id);
@@ -54,12 +94,7 @@ public class UserController {
     public User updateUser(@Valid @RequestBody User user) {
         log.info("Updating user: {}", user);
         validateUser(user);
-        try {
-            return userService.updateUser(user);
-        } catch (NotFoundException e) {
-            log.warn("User not found: {}", user.getId());
-            throw new ValidationException("User not found");
-        }
+        return userService.updateUser(user);
     }
 
     @DeleteMapping("/{id}")
@@ -95,25 +130,42 @@ public class UserController {
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/common")
+    public Map<Long, Integer> getCommonFriendCounts(@Positive @PathVariable Long id,
+                                                    @RequestParam @Size(max = 1000) List<Long> ids) {
+        log.info("Counting common friends of user {} with {} candidates", id, ids.size());
+        return userService.getCommonFriendCounts(id, ids);
+    }
+
+    @GetMapping("/{id}/suggestions")
+    public List<User> getFriendSuggestions(@Positive @PathVariable Long id,
+                                           @RequestParam(defaultValue = "10") @Positive
+                                           @Max(PagedResponses.MAX_PAGE_SIZE) int limit) {
+        log.info("Fetching {} friend suggestions for user {}", limit, id);
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/path/{otherId}")
+    public List<User> getFriendPath(@Positive @PathVariable Long id,
+                                    @Positive @PathVariable Long otherId) {
+        log.info("Searching friendship path from user {} to {}", id, otherId);
+        return userService.getFriendPath(id, otherId);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@Positive @PathVariable Long id,
+                                         @RequestParam(defaultValue = "10") @Positive int count) {
+        log.info("Fetching {} film recommendations for user {}", count, id);
+        userService.getUserById(id);
+        return filmService.getFilmsByIds(filmRecommendations.recommendFor(id, count));
+    }
+
     private void validateUser(User user) {
-        if (user == null) {
-            throw new ValidationException("User cannot be null");
-        }
-        if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
-            log.warn("Email is invalid");
-            throw new ValidationException("Email is invalid");
-        }
-        if (user.getLogin() == null || user.getLogin().isBlank() || user.getLogin().contains(" ")) {
-            log.warn("Login is invalid");
-            throw new ValidationException("Login is invalid");
-        }
-        if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
-            log.info("Name set to login for user {}", user.getLogin());
-        }
-        if (user.getBirthday() == null || user.getBirthday().isAfter(LocalDate.now())) {
-            log.warn("Birthday is invalid");
-            throw new ValidationException("Birthday is invalid");
+        try {
+            ModelValidator.validateUser(user);
+        } catch (ValidationException e) {
+            log.warn("Invalid user: {}", e.getMessage());
+            throw e;
         }
     }
 }
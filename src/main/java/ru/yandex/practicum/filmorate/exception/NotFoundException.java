@@ -1,20 +1,14 @@
 package ru.yandex.practicum.filmorate.exception;
 
-
+/**
+ * Thrown for missing entities. Misses are an expected, often bot-driven outcome rather than a bug, so the
+ * exception carries no stack trace and the common ones are shared instances.
+ */
 public class NotFoundException extends RuntimeException {
-    public NotFoundException() {
-        super();
-    }
+    public static final NotFoundException FILM = new NotFoundException("Film not found");
+    public static final NotFoundException USER = new NotFoundException("User not found");
 
     public NotFoundException(String message) {
-        super(message);
-    }
-
-    public NotFoundException(String message, Throwable cause) {
-        super(message, cause);
-    }
-
-    public NotFoundException(Throwable cause) {
-        super(cause);
+        super(message, null, false, false);
     }
 }
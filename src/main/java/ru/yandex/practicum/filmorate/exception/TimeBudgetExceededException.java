@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.exception;
+
+/**
+ * Thrown when a search gives up after its time budget without an answer, which says nothing about whether the
+ * answer exists.
+ */
+public class TimeBudgetExceededException extends RuntimeException {
+    public TimeBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,10 @@
 package ru.yandex.practicum.filmorate.exception;
 
+/**
+ * Thrown for invalid input. Like {@link NotFoundException} it is a client error, so it skips the stack trace.
+ */
 public class ValidationException extends RuntimeException {
     public ValidationException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
-}
\ No newline at end of file
+}
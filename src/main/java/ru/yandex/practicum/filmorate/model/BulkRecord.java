@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.Valid;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a bulk import or export, holding exactly one of the records.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkRecord {
+    @Valid
+    private User user;
+
+    @Valid
+    private Friendship friendship;
+
+    @Valid
+    private Film film;
+
+    @Valid
+    private Like like;
+
+    public static BulkRecord of(User user) {
+        BulkRecord record = new BulkRecord();
+        record.setUser(user);
+        return record;
+    }
+
+    public static BulkRecord of(Friendship friendship) {
+        BulkRecord record = new BulkRecord();
+        record.setFriendship(friendship);
+        return record;
+    }
+
+    public static BulkRecord of(Film film) {
+        BulkRecord record = new BulkRecord();
+        record.setFilm(film);
+        return record;
+    }
+
+    public static BulkRecord of(Like like) {
+        BulkRecord record = new BulkRecord();
+        record.setLike(like);
+        return record;
+    }
+}
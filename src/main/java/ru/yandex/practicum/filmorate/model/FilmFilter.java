@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Conditions on film attributes; bounds are inclusive and absent ones are not checked.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmFilter {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedTo;
+
+    @Positive
+    private Integer minDuration;
+
+    @Positive
+    private Integer maxDuration;
+
+    public boolean hasReleaseDateRange() {
+        return releasedFrom != null || releasedTo != null;
+    }
+
+    public boolean hasDurationRange() {
+        return minDuration != null || maxDuration != null;
+    }
+
+    public boolean matches(Film film) {
+        LocalDate releaseDate = film.getReleaseDate();
+        if (hasReleaseDateRange() && releaseDate == null) {
+            return false;
+        }
+        return (releasedFrom == null || !releaseDate.isBefore(releasedFrom))
+                && (releasedTo == null || !releaseDate.isAfter(releasedTo))
+                && (minDuration == null || film.getDuration() >= minDuration)
+                && (maxDuration == null || film.getDuration() <= maxDuration);
+    }
+}
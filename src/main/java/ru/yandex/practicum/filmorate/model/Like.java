@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Like {
+    @NotNull
+    @Positive
+    private Long filmId;
+
+    @NotNull
+    @Positive
+    private Long userId;
+}
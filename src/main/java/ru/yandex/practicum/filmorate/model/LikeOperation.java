@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeOperation {
+    @NotNull
+    @Positive
+    private Long filmId;
+
+    @NotNull
+    @Positive
+    private Long userId;
+
+    @NotNull
+    private Action action;
+
+    public enum Action {
+        ADD,
+        REMOVE
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeOperationResult {
+    private Long filmId;
+    private Long userId;
+    private Status status;
+
+    public enum Status {
+        APPLIED,
+        UNCHANGED,
+        FILM_NOT_FOUND,
+        USER_NOT_FOUND
+    }
+}
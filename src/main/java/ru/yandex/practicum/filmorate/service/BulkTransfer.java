@@ -0,0 +1,481 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BulkRecord;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Imports and exports users, friendships, films and likes as newline-delimited JSON, one {@link BulkRecord} per
+ * line. An import reads the input in chunks of lines that a pool of workers parses and validates while earlier
+ * chunks are being stored; the chunks are then stored in input order, in batches of consecutive records of one
+ * kind. Records are added with new ids: the ids in the input only link friendships and likes to the users and
+ * films of the same input, which must come first. Lines that fail are reported with their number and skipped.
+ */
+@Slf4j
+@Service
+public class BulkTransfer {
+    static final int CHUNK_LINES = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final long PROGRESS_LOG_INTERVAL = 100_000;
+    private static final int EXPORT_PAGE_SIZE = 500;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader recordReader;
+    private final Validator validator;
+    private final int workers;
+    private final int batchSize;
+    private final ExecutorService workerPool;
+    private final AtomicLong importIds = new AtomicLong();
+    private final Map<Long, Progress> running = new ConcurrentHashMap<>();
+
+    public BulkTransfer(FilmService filmService, UserService userService, ObjectMapper objectMapper) {
+        this(filmService, userService, objectMapper, Validation.buildDefaultValidatorFactory().getValidator(), 0,
+                5000);
+    }
+
+    /**
+     * @param workers   threads parsing and validating lines, or 0 for one per available processor
+     * @param batchSize most records stored with one storage call
+     */
+    @Autowired
+    public BulkTransfer(FilmService filmService, UserService userService, ObjectMapper objectMapper,
+                        Validator validator,
+                        @Value("${filmorate.bulk.workers:0}") int workers,
+                        @Value("${filmorate.bulk.batch-size:5000}") int batchSize) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.recordReader = objectMapper.readerFor(BulkRecord.class);
+        this.validator = validator;
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.batchSize = batchSize;
+        this.workerPool = Executors.newFixedThreadPool(this.workers,
+                Thread.ofPlatform().name("bulk-worker-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    public void stop() {
+        workerPool.shutdownNow();
+    }
+
+    public Report importRecords(InputStream input) throws IOException {
+        long id = importIds.incrementAndGet();
+        Progress progress = new Progress(id);
+        running.put(id, progress);
+        Deque<Future<List<ParsedLine>>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Importer importer = new Importer(progress);
+            List<String> chunk = new ArrayList<>(CHUNK_LINES);
+            long firstLine = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == CHUNK_LINES) {
+                    inFlight.add(submit(chunk, firstLine));
+                    firstLine += CHUNK_LINES;
+                    chunk = new ArrayList<>(CHUNK_LINES);
+                    // Parsing runs at most two chunks per worker ahead of storing, which bounds memory.
+                    if (inFlight.size() >= workers * 2) {
+                        importer.apply(await(inFlight.poll()));
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(submit(chunk, firstLine));
+            }
+            while (!inFlight.isEmpty()) {
+                importer.apply(await(inFlight.poll()));
+            }
+            importer.flush();
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+            running.remove(id);
+        }
+        Report report = progress.report();
+        log.info("Import {} finished: {}", id, report);
+        return report;
+    }
+
+    /**
+     * Progress of the imports still running, oldest first.
+     */
+    public List<Report> runningImports() {
+        return running.values().stream()
+                .sorted(Comparator.comparingLong(progress -> progress.id))
+                .map(Progress::report)
+                .toList();
+    }
+
+    /**
+     * Writes every user, then every friendship once, then every film and then every like, so the output can
+     * be imported as it is.
+     */
+    public void exportRecords(OutputStream output) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+            List<User> users;
+            long afterId = 0;
+            do {
+                users = userService.getUsersPage(afterId, EXPORT_PAGE_SIZE);
+                for (User user : users) {
+                    write(generator, BulkRecord.of(user));
+                    afterId = user.getId();
+                }
+                generator.flush();
+            } while (users.size() == EXPORT_PAGE_SIZE);
+            afterId = 0;
+            do {
+                users = userService.getUsersPage(afterId, EXPORT_PAGE_SIZE);
+                for (User user : users) {
+                    afterId = user.getId();
+                    for (long friendId : friendIds(afterId)) {
+                        if (friendId > afterId) {
+                            write(generator, BulkRecord.of(new Friendship(afterId, friendId)));
+                        }
+                    }
+                }
+                generator.flush();
+            } while (users.size() == EXPORT_PAGE_SIZE);
+            List<Film> films;
+            afterId = 0;
+            do {
+                films = filmService.getFilmsPage(afterId, EXPORT_PAGE_SIZE);
+                for (Film film : films) {
+                    write(generator, BulkRecord.of(film));
+                    afterId = film.getId();
+                }
+                generator.flush();
+            } while (films.size() == EXPORT_PAGE_SIZE);
+            afterId = 0;
+            do {
+                films = filmService.getFilmsPage(afterId, EXPORT_PAGE_SIZE);
+                for (Film film : films) {
+                    afterId = film.getId();
+                    for (long userId : likedBy(afterId)) {
+                        write(generator, BulkRecord.of(new Like(afterId, userId)));
+                    }
+                }
+                generator.flush();
+            } while (films.size() == EXPORT_PAGE_SIZE);
+        }
+    }
+
+    private Future<List<ParsedLine>> submit(List<String> lines, long firstLine) {
+        return workerPool.submit(() -> {
+            List<ParsedLine> parsed = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                if (!lines.get(i).isBlank()) {
+                    parsed.add(parse(firstLine + i, lines.get(i)));
+                }
+            }
+            return parsed;
+        });
+    }
+
+    private ParsedLine parse(long number, String line) {
+        BulkRecord record;
+        try {
+            record = recordReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return new ParsedLine(number, null, "Malformed JSON: " + e.getOriginalMessage());
+        }
+        int kinds = (record.getUser() != null ? 1 : 0) + (record.getFriendship() != null ? 1 : 0)
+                + (record.getFilm() != null ? 1 : 0) + (record.getLike() != null ? 1 : 0);
+        if (kinds != 1) {
+            return new ParsedLine(number, null, "Expected exactly one of user, friendship, film or like");
+        }
+        Set<ConstraintViolation<BulkRecord>> violations = validator.validate(record);
+        if (!violations.isEmpty()) {
+            return new ParsedLine(number, null, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        try {
+            if (record.getUser() != null) {
+                ModelValidator.validateUser(record.getUser());
+            } else if (record.getFilm() != null) {
+                ModelValidator.validateFilm(record.getFilm());
+            }
+        } catch (ValidationException e) {
+            return new ParsedLine(number, null, e.getMessage());
+        }
+        return new ParsedLine(number, record, null);
+    }
+
+    private static List<ParsedLine> await(Future<List<ParsedLine>> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private long[] friendIds(long userId) {
+        try {
+            return userService.getFriends(userId).stream().mapToLong(User::getId).toArray();
+        } catch (NotFoundException ignore) {
+            // Removed during the export.
+            return new long[0];
+        }
+    }
+
+    private long[] likedBy(long filmId) {
+        try {
+            return filmService.getLikes(filmId).stream().mapToLong(Long::longValue).sorted().toArray();
+        } catch (NotFoundException ignore) {
+            // Removed during the export.
+            return new long[0];
+        }
+    }
+
+    private static void write(JsonGenerator generator, BulkRecord record) throws IOException {
+        generator.writeObject(record);
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * @param records non-blank lines read so far, stored or failed
+     * @param errors  the first failed lines, at most 1000
+     */
+    public record Report(long id, long records, long users, long friendships, long films, long likes,
+                         long failed, long elapsedMillis, long recordsPerSecond, List<LineError> errors) {
+    }
+
+    public record LineError(long line, String error) {
+    }
+
+    private record ParsedLine(long number, BulkRecord record, String error) {
+    }
+
+    private enum Kind {
+        USER,
+        FRIENDSHIP,
+        FILM,
+        LIKE
+    }
+
+    // Counters are written by the importing thread and read by runningImports().
+    private static final class Progress {
+        private final long id;
+        private final long started = System.nanoTime();
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong users = new AtomicLong();
+        private final AtomicLong friendships = new AtomicLong();
+        private final AtomicLong films = new AtomicLong();
+        private final AtomicLong likes = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<LineError> errors = new CopyOnWriteArrayList<>();
+
+        private Progress(long id) {
+            this.id = id;
+        }
+
+        private void fail(long line, String error) {
+            if (failed.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+                errors.add(new LineError(line, error));
+            }
+        }
+
+        private Report report() {
+            long elapsedNanos = Math.max(System.nanoTime() - started, 1);
+            long done = records.get();
+            return new Report(id, done, users.get(), friendships.get(), films.get(), likes.get(), failed.get(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    (long) (done * 1e9 / elapsedNanos), List.copyOf(errors));
+        }
+    }
+
+    /**
+     * Stores parsed lines in order on the importing thread. Records are collected while they are of one kind
+     * and stored together when the kind changes or the batch is full, so a friendship or like always finds the
+     * ids of the users and films above it.
+     */
+    private final class Importer {
+        private final Progress progress;
+        private final Map<Long, Long> userIds = new HashMap<>();
+        private final Map<Long, Long> filmIds = new HashMap<>();
+        private final List<Long> batchLines = new ArrayList<>();
+        private final List<Long> batchSourceIds = new ArrayList<>();
+        private final List<User> users = new ArrayList<>();
+        private final List<Friendship> friendships = new ArrayList<>();
+        private final List<Film> films = new ArrayList<>();
+        private final List<LikeOperation> likes = new ArrayList<>();
+        private Kind batchKind;
+
+        private Importer(Progress progress) {
+            this.progress = progress;
+        }
+
+        private void apply(List<ParsedLine> chunk) {
+            for (ParsedLine line : chunk) {
+                if (line.error() != null) {
+                    progress.fail(line.number(), line.error());
+                } else {
+                    add(line.number(), line.record());
+                }
+                if (progress.records.incrementAndGet() % PROGRESS_LOG_INTERVAL == 0) {
+                    Report report = progress.report();
+                    log.info("Import {}: {} records, {} failed, {} records/s", report.id(), report.records(),
+                            report.failed(), report.recordsPerSecond());
+                }
+            }
+        }
+
+        private void add(long number, BulkRecord record) {
+            Kind kind = record.getUser() != null ? Kind.USER
+                    : record.getFriendship() != null ? Kind.FRIENDSHIP
+                    : record.getFilm() != null ? Kind.FILM
+                    : Kind.LIKE;
+            if (kind != batchKind || batchLines.size() >= batchSize) {
+                flush();
+                batchKind = kind;
+            }
+            switch (kind) {
+                case USER -> {
+                    batchSourceIds.add(record.getUser().getId());
+                    users.add(record.getUser());
+                }
+                case FILM -> {
+                    batchSourceIds.add(record.getFilm().getId());
+                    films.add(record.getFilm());
+                }
+                case FRIENDSHIP -> {
+                    Long userId = userIds.get(record.getFriendship().getUserId());
+                    Long friendId = userIds.get(record.getFriendship().getFriendId());
+                    if (userId == null || friendId == null) {
+                        progress.fail(number, "Friendship of a user not imported above");
+                        return;
+                    }
+                    friendships.add(new Friendship(userId, friendId));
+                }
+                case LIKE -> {
+                    Long filmId = filmIds.get(record.getLike().getFilmId());
+                    Long userId = userIds.get(record.getLike().getUserId());
+                    if (filmId == null || userId == null) {
+                        progress.fail(number, "Like of a film or by a user not imported above");
+                        return;
+                    }
+                    likes.add(new LikeOperation(filmId, userId, LikeOperation.Action.ADD));
+                }
+            }
+            batchLines.add(number);
+        }
+
+        private void flush() {
+            if (batchLines.isEmpty()) {
+                return;
+            }
+            try {
+                switch (batchKind) {
+                    case USER -> {
+                        userService.createUsers(users);
+                        remember(userIds, users.stream().map(User::getId).toList());
+                        progress.users.addAndGet(users.size());
+                    }
+                    case FILM -> {
+                        filmService.addFilms(films);
+                        remember(filmIds, films.stream().map(Film::getId).toList());
+                        progress.films.addAndGet(films.size());
+                    }
+                    case FRIENDSHIP -> {
+                        userService.addFriendships(friendships);
+                        progress.friendships.addAndGet(friendships.size());
+                    }
+                    case LIKE -> {
+                        List<LikeOperationResult.Status> statuses = filmService.applyCheckedLikes(likes);
+                        // A repeated like line changes nothing and is neither counted nor failed.
+                        for (int i = 0; i < statuses.size(); i++) {
+                            if (statuses.get(i) == LikeOperationResult.Status.FILM_NOT_FOUND) {
+                                progress.fail(batchLines.get(i), "Film was removed during the import");
+                            } else if (statuses.get(i) == LikeOperationResult.Status.APPLIED) {
+                                progress.likes.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Import {} failed to store lines {} to {}", progress.id, batchLines.get(0),
+                        batchLines.get(batchLines.size() - 1), e);
+                // A failed batch of users or films stores none of them, so they are retried one by one and only
+                // the failing lines are reported.
+                switch (batchKind) {
+                    case USER -> storeOneByOne(users, userService::createUser, User::getId, userIds, progress.users);
+                    case FILM -> storeOneByOne(films, filmService::addFilm, Film::getId, filmIds, progress.films);
+                    default -> {
+                        for (long line : batchLines) {
+                            progress.fail(line, "Batch failed: " + e.getMessage());
+                        }
+                    }
+                }
+            } finally {
+                batchLines.clear();
+                batchSourceIds.clear();
+                users.clear();
+                friendships.clear();
+                films.clear();
+                likes.clear();
+            }
+        }
+
+        private <T> void storeOneByOne(List<T> records, UnaryOperator<T> store, Function<T, Long> storedId,
+                                       Map<Long, Long> ids, AtomicLong stored) {
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    Long id = storedId.apply(store.apply(records.get(i)));
+                    if (batchSourceIds.get(i) != null) {
+                        ids.put(batchSourceIds.get(i), id);
+                    }
+                    stored.incrementAndGet();
+                } catch (RuntimeException e) {
+                    progress.fail(batchLines.get(i), e.getMessage());
+                }
+            }
+        }
+
+        // Records without an id in the input can be added but not referred to.
+        private void remember(Map<Long, Long> ids, List<Long> storedIds) {
+            for (int i = 0; i < storedIds.size(); i++) {
+                Long sourceId = batchSourceIds.get(i);
+                if (sourceId != null) {
+                    ids.put(sourceId, storedIds.get(i));
+                }
+            }
+        }
+    }
+}
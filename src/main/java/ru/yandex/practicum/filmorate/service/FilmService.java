@@ -1,48 +1,236 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.storage.FilmEventListener;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class FilmService {
     private final FilmStorage filmStorage;
+    private final List<FilmEventListener> listeners;
+    private final Timer addTimer;
+    private final Timer addBatchTimer;
+    private final Timer updateTimer;
+    private final Timer getTimer;
+    private final Timer getAllTimer;
+    private final Timer getPageTimer;
+    private final Timer getByIdsTimer;
+    private final Timer removeTimer;
+    private final Timer addLikeTimer;
+    private final Timer removeLikeTimer;
+    private final Timer likesTimer;
+    private final Timer applyLikesTimer;
+    private final Timer popularTimer;
+    private final Timer popularOfYearTimer;
+    private final Timer findTimer;
 
     public FilmService(FilmStorage filmStorage) {
+        this(filmStorage, List.of());
+    }
+
+    public FilmService(FilmStorage filmStorage, List<FilmEventListener> listeners) {
+        this(filmStorage, listeners, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public FilmService(FilmStorage filmStorage, List<FilmEventListener> listeners, MeterRegistry registry) {
         this.filmStorage = filmStorage;
+        this.listeners = listeners;
+        OperationTimers timers = new OperationTimers(registry, filmStorage);
+        addTimer = timers.timer("films.add");
+        addBatchTimer = timers.timer("films.addBatch");
+        updateTimer = timers.timer("films.update");
+        getTimer = timers.timer("films.get");
+        getAllTimer = timers.timer("films.getAll");
+        getPageTimer = timers.timer("films.getPage");
+        getByIdsTimer = timers.timer("films.getByIds");
+        removeTimer = timers.timer("films.remove");
+        addLikeTimer = timers.timer("films.addLike");
+        removeLikeTimer = timers.timer("films.removeLike");
+        likesTimer = timers.timer("films.likes");
+        applyLikesTimer = timers.timer("films.applyLikes");
+        popularTimer = timers.timer("films.popular");
+        popularOfYearTimer = timers.timer("films.popularOfYear");
+        findTimer = timers.timer("films.find");
     }
 
     public Film addFilm(Film film) {
-        return filmStorage.addFilm(film);
+        return addTimer.record(() -> {
+            Film added = filmStorage.addFilm(film);
+            for (FilmEventListener listener : listeners) {
+                listener.filmAdded(added);
+            }
+            return added;
+        });
+    }
+
+    public List<Film> addFilms(List<Film> films) {
+        return addBatchTimer.record(() -> {
+            List<Film> added = filmStorage.addFilms(films);
+            for (FilmEventListener listener : listeners) {
+                for (Film film : added) {
+                    listener.filmAdded(film);
+                }
+            }
+            return added;
+        });
     }
 
     public Film updateFilm(Film film) {
-        return filmStorage.updateFilm(film);
+        return updateTimer.record(() -> {
+            Film updated = filmStorage.updateFilm(film);
+            for (FilmEventListener listener : listeners) {
+                listener.filmUpdated(updated);
+            }
+            return updated;
+        });
     }
 
     public Film getFilmById(Long id) {
-        return filmStorage.getFilmById(id);
+        return getTimer.record(() -> filmStorage.getFilmById(id));
     }
 
     public List<Film> getAllFilms() {
-        return filmStorage.getAllFilms();
+        return getAllTimer.record(filmStorage::getAllFilms);
+    }
+
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return getPageTimer.record(() -> filmStorage.getFilmsPage(afterId, limit));
+    }
+
+    /**
+     * Films with the given ids in the same order, skipping ids that no longer exist.
+     */
+    public List<Film> getFilmsByIds(List<Long> ids) {
+        return getByIdsTimer.record(() -> {
+            List<Film> films = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                try {
+                    films.add(filmStorage.getFilmById(id));
+                } catch (NotFoundException ignore) {
+                    // Removed after the ids were collected.
+                }
+            }
+            return films;
+        });
     }
 
     public void removeFilm(Long id) {
-        filmStorage.removeFilm(id);
+        removeTimer.record(() -> {
+            filmStorage.removeFilm(id);
+            for (FilmEventListener listener : listeners) {
+                listener.filmRemoved(id);
+            }
+        });
     }
 
+    // The like methods are the hottest path, so they are timed without allocating a lambda per call.
     public void addLike(Long filmId, Long userId) {
-        filmStorage.addLike(filmId, userId);
+        long started = System.nanoTime();
+        try {
+            if (filmStorage.addLike(filmId, userId)) {
+                for (FilmEventListener listener : listeners) {
+                    listener.likeAdded(filmId, userId);
+                }
+            }
+        } finally {
+            addLikeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
 
     public void removeLike(Long filmId, Long userId) {
-        filmStorage.removeLike(filmId, userId);
+        long started = System.nanoTime();
+        try {
+            if (filmStorage.removeLike(filmId, userId)) {
+                for (FilmEventListener listener : listeners) {
+                    listener.likeRemoved(filmId, userId);
+                }
+            }
+        } finally {
+            removeLikeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Set<Long> getLikes(Long filmId) {
+        return likesTimer.record(() -> filmStorage.getLikes(filmId));
+    }
+
+    /**
+     * Applies the like operations in order. Operations of users outside {@code knownUsers} are reported as
+     * USER_NOT_FOUND and skipped, the rest go to the storage in one call.
+     */
+    public List<LikeOperationResult> applyLikes(List<LikeOperation> operations, Set<Long> knownUsers) {
+        List<LikeOperation> accepted = new ArrayList<>(operations.size());
+        for (LikeOperation operation : operations) {
+            if (knownUsers.contains(operation.getUserId())) {
+                accepted.add(operation);
+            }
+        }
+        List<LikeOperationResult.Status> statuses = applyCheckedLikes(accepted);
+        List<LikeOperationResult> results = new ArrayList<>(operations.size());
+        int next = 0;
+        for (LikeOperation operation : operations) {
+            LikeOperationResult.Status status = knownUsers.contains(operation.getUserId())
+                    ? statuses.get(next++)
+                    : LikeOperationResult.Status.USER_NOT_FOUND;
+            results.add(new LikeOperationResult(operation.getFilmId(), operation.getUserId(), status));
+        }
+        return results;
+    }
+
+    /**
+     * Applies operations whose users have already been checked.
+     */
+    public List<LikeOperationResult.Status> applyCheckedLikes(List<LikeOperation> operations) {
+        return applyLikesTimer.record(() -> {
+            List<LikeOperationResult.Status> statuses = filmStorage.applyLikes(operations);
+            if (listeners.isEmpty()) {
+                return statuses;
+            }
+            for (int i = 0; i < statuses.size(); i++) {
+                if (statuses.get(i) != LikeOperationResult.Status.APPLIED) {
+                    continue;
+                }
+                LikeOperation operation = operations.get(i);
+                for (FilmEventListener listener : listeners) {
+                    if (operation.getAction() == LikeOperation.Action.ADD) {
+                        listener.likeAdded(operation.getFilmId(), operation.getUserId());
+                    } else {
+                        listener.likeRemoved(operation.getFilmId(), operation.getUserId());
+                    }
+                }
+            }
+            return statuses;
+        });
     }
 
     public List<Film> getPopularFilms(int count) {
-        return filmStorage.getPopularFilms(count);
+        return popularTimer.record(() -> filmStorage.getPopularFilms(count));
+    }
+
+    public List<Film> getPopularFilms(int count, int year) {
+        return popularOfYearTimer.record(() -> filmStorage.getPopularFilms(count, year));
+    }
+
+    public List<Film> findFilms(FilmFilter filter, long afterId, int limit) {
+        return findTimer.record(() -> filmStorage.findFilms(filter, afterId, limit));
+    }
+
+    public long getVersion() {
+        return filmStorage.getVersion();
     }
 }
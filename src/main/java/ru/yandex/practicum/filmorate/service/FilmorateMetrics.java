@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+/**
+ * Gauges of the stored data and of the like queue. Values are computed when the registry is scraped, so none of
+ * them costs anything on the request path; the in-memory storages scan their maps to answer, which is fine at
+ * scrape intervals but not for every request.
+ */
+@Component
+public class FilmorateMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikePipeline likePipeline;
+
+    @Autowired
+    public FilmorateMetrics(FilmStorage filmStorage, UserStorage userStorage, LikePipeline likePipeline) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likePipeline = likePipeline;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::countFilms)
+                .description("Stored films")
+                .register(registry);
+        Gauge.builder("filmorate.likes", filmStorage, FilmStorage::countLikes)
+                .description("Stored likes")
+                .register(registry);
+        Gauge.builder("filmorate.likes.max.per.film", filmStorage, FilmStorage::maxLikesPerFilm)
+                .description("Likes of the most liked film")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::countUsers)
+                .description("Stored users")
+                .register(registry);
+        Gauge.builder("filmorate.friendships", userStorage, UserStorage::countFriendships)
+                .description("Stored friendships, each counted once")
+                .register(registry);
+        Gauge.builder("filmorate.friends.max.per.user", userStorage, UserStorage::maxFriendsPerUser)
+                .description("Friends of the user with the most friends")
+                .register(registry);
+
+        Gauge.builder("filmorate.like.queue.depth", likePipeline, pipeline -> pipeline.getStats().queueDepth())
+                .description("Likes queued for the writer thread")
+                .register(registry);
+        Gauge.builder("filmorate.like.queue.capacity", likePipeline,
+                        pipeline -> pipeline.getStats().queueCapacity())
+                .register(registry);
+        Gauge.builder("filmorate.like.queue.drain.lag", likePipeline,
+                        pipeline -> pipeline.getStats().drainLagMillis() / 1000.0)
+                .description("Time the oldest like of the last batch waited in the queue")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("filmorate.like.queue.operations", likePipeline,
+                        pipeline -> pipeline.getStats().accepted())
+                .tag("outcome", "accepted")
+                .register(registry);
+        FunctionCounter.builder("filmorate.like.queue.operations", likePipeline,
+                        pipeline -> pipeline.getStats().rejected())
+                .tag("outcome", "rejected")
+                .register(registry);
+        FunctionCounter.builder("filmorate.like.queue.operations", likePipeline,
+                        pipeline -> pipeline.getStats().applied())
+                .tag("outcome", "applied")
+                .register(registry);
+    }
+}
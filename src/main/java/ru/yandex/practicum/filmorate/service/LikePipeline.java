@@ -0,0 +1,233 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Routes single like and unlike requests to the film storage. In async mode they are acknowledged once queued
+ * in a bounded buffer and a single writer thread applies them in batches, so request threads never wait for
+ * film locks. Users who send {@code X-User-Id} on reads still see their own queued likes applied.
+ */
+@Slf4j
+@Service
+public class LikePipeline {
+    private final FilmService filmService;
+    private final boolean async;
+    private final Backpressure backpressure;
+    private final Duration blockTimeout;
+    private final Duration readYourWritesTimeout;
+    private final int batchSize;
+    private final BlockingQueue<Queued> queue;
+    // Operations queued but not yet applied, per user.
+    private final Map<Long, Integer> pendingByUser = new ConcurrentHashMap<>();
+    private final ReentrantLock appliedLock = new ReentrantLock();
+    private final Condition batchApplied = appliedLock.newCondition();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private volatile long drainLagNanos;
+    private volatile boolean running;
+    private Thread writer;
+
+    public LikePipeline(FilmService filmService) {
+        this(filmService, false, Backpressure.REJECT, 1, Duration.ZERO, Duration.ZERO, 1);
+    }
+
+    @Autowired
+    public LikePipeline(FilmService filmService,
+                        @Value("${filmorate.likes.async:false}") boolean async,
+                        @Value("${filmorate.likes.backpressure:reject}") Backpressure backpressure,
+                        @Value("${filmorate.likes.queue-capacity:65536}") int queueCapacity,
+                        @Value("${filmorate.likes.block-timeout:500ms}") Duration blockTimeout,
+                        @Value("${filmorate.likes.read-your-writes-timeout:1s}") Duration readYourWritesTimeout,
+                        @Value("${filmorate.likes.batch-size:1024}") int batchSize) {
+        this.filmService = filmService;
+        this.async = async;
+        this.backpressure = backpressure;
+        this.blockTimeout = blockTimeout;
+        this.readYourWritesTimeout = readYourWritesTimeout;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("like-writer").daemon().start(this::drain);
+    }
+
+    /**
+     * Applies everything queued so far and stops the writer.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join();
+        }
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Applies the operation right away in sync mode and returns false. In async mode checks that the film
+     * exists, queues the operation and returns true; the user is expected to be checked by the caller.
+     *
+     * @throws OverloadedException if the queue stays full
+     */
+    public boolean submit(LikeOperation operation) {
+        if (!async) {
+            if (operation.getAction() == LikeOperation.Action.ADD) {
+                filmService.addLike(operation.getFilmId(), operation.getUserId());
+            } else {
+                filmService.removeLike(operation.getFilmId(), operation.getUserId());
+            }
+            return false;
+        }
+        filmService.getFilmById(operation.getFilmId());
+        Long userId = operation.getUserId();
+        pendingByUser.merge(userId, 1, Integer::sum);
+        if (!enqueue(new Queued(operation, System.nanoTime()))) {
+            release(userId);
+            rejected.increment();
+            throw new OverloadedException("Like queue is full");
+        }
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * Waits until the operations queued for the user have been applied, at most the read-your-writes timeout.
+     */
+    public void awaitApplied(Long userId) {
+        if (userId == null || !pendingByUser.containsKey(userId)) {
+            return;
+        }
+        long remaining = readYourWritesTimeout.toNanos();
+        appliedLock.lock();
+        try {
+            while (pendingByUser.containsKey(userId)) {
+                if (remaining <= 0) {
+                    log.debug("Likes of user {} are still queued, answering without them", userId);
+                    return;
+                }
+                remaining = batchApplied.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            appliedLock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(async, queue.size(), queue.size() + queue.remainingCapacity(),
+                TimeUnit.NANOSECONDS.toMillis(drainLagNanos), accepted.sum(), rejected.sum(), applied.sum());
+    }
+
+    private boolean enqueue(Queued queued) {
+        if (backpressure == Backpressure.REJECT) {
+            return queue.offer(queued);
+        }
+        try {
+            return queue.offer(queued, blockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drain() {
+        List<Queued> batch = new ArrayList<>(batchSize);
+        List<LikeOperation> operations = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Queued first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (Queued queued : batch) {
+                    operations.add(queued.operation());
+                }
+                apply(operations);
+                drainLagNanos = System.nanoTime() - first.enqueuedNanos();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Failed to apply {} queued like operations", batch.size(), e);
+            } finally {
+                for (Queued queued : batch) {
+                    release(queued.operation().getUserId());
+                }
+                batch.clear();
+                operations.clear();
+                signalApplied();
+            }
+        }
+    }
+
+    private void apply(List<LikeOperation> operations) {
+        List<LikeOperationResult.Status> statuses = filmService.applyCheckedLikes(operations);
+        applied.add(operations.size());
+        for (int i = 0; i < statuses.size(); i++) {
+            if (statuses.get(i) == LikeOperationResult.Status.FILM_NOT_FOUND) {
+                log.debug("Dropped queued like operation {}: the film was removed", operations.get(i));
+            }
+        }
+    }
+
+    private void release(Long userId) {
+        pendingByUser.computeIfPresent(userId, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void signalApplied() {
+        appliedLock.lock();
+        try {
+            batchApplied.signalAll();
+        } finally {
+            appliedLock.unlock();
+        }
+    }
+
+    public enum Backpressure {
+        REJECT,
+        BLOCK
+    }
+
+    /**
+     * Queue depth and capacity, and how long the oldest operation of the last batch waited in the queue.
+     */
+    public record Stats(boolean async, int queueDepth, int queueCapacity, long drainLagMillis, long accepted,
+                        long rejected, long applied) {
+    }
+
+    private record Queued(LikeOperation operation, long enqueuedNanos) {
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Rules for films and users beyond their bean validation annotations, shared by the controllers and bulk imports.
+ */
+public final class ModelValidator {
+    private static final LocalDate FIRST_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
+    private ModelValidator() {
+    }
+
+    public static void validateFilm(Film film) {
+        if (film == null) {
+            throw new ValidationException("Film cannot be null");
+        }
+        if (film.getName() == null || film.getName().isBlank()) {
+            throw new ValidationException("Film name is invalid");
+        }
+        if (film.getDescription() != null && film.getDescription().length() > 200) {
+            throw new ValidationException("Description length exceeds 200 characters");
+        }
+        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(FIRST_RELEASE_DATE)) {
+            throw new ValidationException("Release date is invalid");
+        }
+        if (film.getDuration() <= 0) {
+            throw new ValidationException("Duration must be positive");
+        }
+    }
+
+    /**
+     * Also defaults a blank name to the login.
+     */
+    public static void validateUser(User user) {
+        if (user == null) {
+            throw new ValidationException("User cannot be null");
+        }
+        if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
+            throw new ValidationException("Email is invalid");
+        }
+        if (user.getLogin() == null || user.getLogin().isBlank() || user.getLogin().contains(" ")) {
+            throw new ValidationException("Login is invalid");
+        }
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+        if (user.getBirthday() == null || user.getBirthday().isAfter(LocalDate.now())) {
+            throw new ValidationException("Birthday is invalid");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.aop.support.AopUtils;
+
+/**
+ * Builds the {@value #NAME} timers of one service, tagged with the operation and the storage implementation
+ * behind it. Timers are created once so that recording on the request path is a lookup-free call.
+ */
+class OperationTimers {
+    static final String NAME = "filmorate.operation";
+
+    private final MeterRegistry registry;
+    private final String storage;
+
+    OperationTimers(MeterRegistry registry, Object storage) {
+        this.registry = registry;
+        // Storages with @Transactional methods are proxies; the tag names the class behind the proxy.
+        this.storage = AopUtils.getTargetClass(storage).getSimpleName();
+    }
+
+    Timer timer(String operation) {
+        return Timer.builder(NAME)
+                .description("Latency of service operations, storage calls included")
+                .tag("operation", operation)
+                .tag("storage", storage)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
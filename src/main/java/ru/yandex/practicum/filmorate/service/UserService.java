@@ -1,53 +1,142 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class UserService {
     private final UserStorage userStorage;
+    private final int maxPathDepth;
+    private final Duration pathTimeBudget;
+    private final Timer createTimer;
+    private final Timer createBatchTimer;
+    private final Timer updateTimer;
+    private final Timer getTimer;
+    private final Timer getAllTimer;
+    private final Timer getPageTimer;
+    private final Timer findExistingTimer;
+    private final Timer removeTimer;
+    private final Timer addFriendTimer;
+    private final Timer addFriendshipsTimer;
+    private final Timer removeFriendTimer;
+    private final Timer friendsTimer;
+    private final Timer commonFriendsTimer;
+    private final Timer commonFriendCountsTimer;
+    private final Timer suggestionsTimer;
+    private final Timer pathTimer;
 
     public UserService(UserStorage userStorage) {
+        this(userStorage, 6, Duration.ofMillis(200), Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public UserService(UserStorage userStorage,
+                       @Value("${filmorate.friend-path.max-depth:6}") int maxPathDepth,
+                       @Value("${filmorate.friend-path.time-budget:200ms}") Duration pathTimeBudget,
+                       MeterRegistry registry) {
         this.userStorage = userStorage;
+        this.maxPathDepth = maxPathDepth;
+        this.pathTimeBudget = pathTimeBudget;
+        OperationTimers timers = new OperationTimers(registry, userStorage);
+        createTimer = timers.timer("users.create");
+        createBatchTimer = timers.timer("users.createBatch");
+        updateTimer = timers.timer("users.update");
+        getTimer = timers.timer("users.get");
+        getAllTimer = timers.timer("users.getAll");
+        getPageTimer = timers.timer("users.getPage");
+        findExistingTimer = timers.timer("users.findExisting");
+        removeTimer = timers.timer("users.remove");
+        addFriendTimer = timers.timer("users.addFriend");
+        addFriendshipsTimer = timers.timer("users.addFriendships");
+        removeFriendTimer = timers.timer("users.removeFriend");
+        friendsTimer = timers.timer("users.friends");
+        commonFriendsTimer = timers.timer("users.commonFriends");
+        commonFriendCountsTimer = timers.timer("users.commonFriendCounts");
+        suggestionsTimer = timers.timer("users.suggestions");
+        pathTimer = timers.timer("users.path");
     }
 
     public User createUser(User user) {
-        return userStorage.addUser(user);
+        return createTimer.record(() -> userStorage.addUser(user));
+    }
+
+    public List<User> createUsers(List<User> users) {
+        return createBatchTimer.record(() -> userStorage.addUsers(users));
     }
 
     public User updateUser(User user) {
-        return userStorage.updateUser(user);
+        return updateTimer.record(() -> userStorage.updateUser(user));
     }
 
     public User getUserById(Long id) {
-        return userStorage.getUserById(id);
+        return getTimer.record(() -> userStorage.getUserById(id));
     }
 
     public List<User> getAllUsers() {
-        return userStorage.getAllUsers();
+        return getAllTimer.record(userStorage::getAllUsers);
+    }
+
+    public List<User> getUsersPage(long afterId, int limit) {
+        return getPageTimer.record(() -> userStorage.getUsersPage(afterId, limit));
+    }
+
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return findExistingTimer.record(() -> userStorage.findExistingIds(ids));
     }
 
     public void removeUser(Long id) {
-        userStorage.removeUser(id);
+        removeTimer.record(() -> userStorage.removeUser(id));
     }
 
     public void addFriend(Long userId, Long friendId) {
-        userStorage.addFriend(userId, friendId);
+        addFriendTimer.record(() -> userStorage.addFriend(userId, friendId));
+    }
+
+    public void addFriendships(List<Friendship> friendships) {
+        addFriendshipsTimer.record(() -> userStorage.addFriendships(friendships));
     }
 
     public void removeFriend(Long userId, Long friendId) {
-        userStorage.removeFriend(userId, friendId);
+        removeFriendTimer.record(() -> userStorage.removeFriend(userId, friendId));
     }
 
     public List<User> getFriends(Long userId) {
-        return userStorage.getFriends(userId);
+        return friendsTimer.record(() -> userStorage.getFriends(userId));
     }
 
     public List<User> getCommonFriends(Long userId, Long otherId) {
-        return userStorage.getCommonFriends(userId, otherId);
+        return commonFriendsTimer.record(() -> userStorage.getCommonFriends(userId, otherId));
+    }
+
+    public Map<Long, Integer> getCommonFriendCounts(Long userId, List<Long> otherIds) {
+        return commonFriendCountsTimer.record(() -> userStorage.getCommonFriendCounts(userId, otherIds));
+    }
+
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        return suggestionsTimer.record(() -> userStorage.getFriendSuggestions(userId, limit));
+    }
+
+    public List<User> getFriendPath(Long userId, Long otherId) {
+        List<User> path = pathTimer.record(() -> userStorage.getFriendPath(userId, otherId, maxPathDepth,
+                pathTimeBudget));
+        if (path.isEmpty()) {
+            throw new NotFoundException("No friendship path of at most " + maxPathDepth + " steps");
+        }
+        return path;
     }
 }
 
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage;
+
+final class Adjacency {
+    static final Adjacency EMPTY = new Adjacency(SortedLongs.EMPTY);
+
+    private final long[] ids;
+    private volatile ChunkedBitmap bitmap;
+    private volatile boolean sparse;
+
+    Adjacency(long[] ids) {
+        this.ids = ids;
+    }
+
+    long[] ids() {
+        return ids;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    // Built on first use only: most users never take part in a dense intersection. Null if the ids are spread so
+    // thinly that the bitmap would take more words than the ids themselves.
+    ChunkedBitmap bitmap() {
+        ChunkedBitmap result = bitmap;
+        if (result == null && !sparse) {
+            if ((long) ChunkedBitmap.chunkCount(ids) * ChunkedBitmap.WORDS_PER_CHUNK > ids.length) {
+                sparse = true;
+                return null;
+            }
+            result = ChunkedBitmap.of(ids);
+            bitmap = result;
+        }
+        return result;
+    }
+}
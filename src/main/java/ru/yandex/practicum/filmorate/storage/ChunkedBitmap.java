@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Immutable bitmap over positive ids, split into 4096-bit chunks so that sparse id ranges cost nothing.
+ */
+final class ChunkedBitmap {
+    private static final int CHUNK_SHIFT = 12;
+    static final int WORDS_PER_CHUNK = 1 << (CHUNK_SHIFT - 6);
+
+    private final long[] keys;
+    private final long[][] chunks;
+    private final int cardinality;
+
+    private ChunkedBitmap(long[] keys, long[][] chunks, int cardinality) {
+        this.keys = keys;
+        this.chunks = chunks;
+        this.cardinality = cardinality;
+    }
+
+    static ChunkedBitmap of(long[] sortedIds) {
+        long[] keys = new long[sortedIds.length];
+        long[][] chunks = new long[sortedIds.length][];
+        int size = 0;
+        for (long id : sortedIds) {
+            long key = id >>> CHUNK_SHIFT;
+            if (size == 0 || keys[size - 1] != key) {
+                keys[size] = key;
+                chunks[size] = new long[WORDS_PER_CHUNK];
+                size++;
+            }
+            int bit = (int) (id & ((1 << CHUNK_SHIFT) - 1));
+            chunks[size - 1][bit >>> 6] |= 1L << bit;
+        }
+        return new ChunkedBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(chunks, size), sortedIds.length);
+    }
+
+    /**
+     * Number of chunks a bitmap of the ids would have.
+     */
+    static int chunkCount(long[] sortedIds) {
+        int count = 0;
+        long last = -1;
+        for (long id : sortedIds) {
+            long key = id >>> CHUNK_SHIFT;
+            if (key != last) {
+                count++;
+                last = key;
+            }
+        }
+        return count;
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    int andCardinality(ChunkedBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long[] a = chunks[i++];
+                long[] b = other.chunks[j++];
+                for (int w = 0; w < WORDS_PER_CHUNK; w++) {
+                    count += Long.bitCount(a[w] & b[w]);
+                }
+            }
+        }
+        return count;
+    }
+
+    long[] and(ChunkedBitmap other) {
+        long[] result = new long[Math.min(cardinality, other.cardinality)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long base = keys[i] << CHUNK_SHIFT;
+                long[] a = chunks[i++];
+                long[] b = other.chunks[j++];
+                for (int w = 0; w < WORDS_PER_CHUNK; w++) {
+                    long word = a[w] & b[w];
+                    while (word != 0) {
+                        result[size++] = base + ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
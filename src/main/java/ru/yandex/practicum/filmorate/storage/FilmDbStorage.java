@@ -0,0 +1,363 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class FilmDbStorage implements FilmStorage {
+    private static final String SELECT_FILMS = "SELECT id, name, description, release_date, duration FROM films";
+    private static final String INSERT_FILM =
+            "INSERT INTO films (name, description, release_date, duration) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_LIKE = "INSERT INTO likes (film_id, user_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+    private static final String DELETE_LIKE = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+    private static final String ADD_LIKE_COUNT = "UPDATE films SET like_count = like_count + ? WHERE id = ?";
+    private static final int IN_LIST_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    // Tracks changes made through this instance only, like any other in-process cache of the database.
+    private final LongAdder version = new LongAdder();
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_FILM, new String[]{"id"});
+            setFilm(statement, film);
+            return statement;
+        }, keyHolder);
+        film.setId(keyHolder.getKey().longValue());
+        version.increment();
+        return film;
+    }
+
+    // One JDBC batch in one transaction; the generated ids come back in insertion order.
+    @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_FILM, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        setFilm(statement, films.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        version.increment();
+        return films;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        int updated = jdbcTemplate.update(
+                "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ? WHERE id = ?",
+                film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()), film.getDuration(),
+                film.getId());
+        if (updated == 0) {
+            throw NotFoundException.FILM;
+        }
+        version.increment();
+        return film;
+    }
+
+    @Override
+    public Film getFilmById(Long id) {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " WHERE id = ?", this::mapFilm, id);
+        if (films.isEmpty()) {
+            throw NotFoundException.FILM;
+        }
+        return films.get(0);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return jdbcTemplate.query(SELECT_FILMS + " ORDER BY id", this::mapFilm);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_FILMS + " WHERE id > ? ORDER BY id LIMIT ?", this::mapFilm, afterId, limit);
+    }
+
+    @Override
+    public void removeFilm(Long id) {
+        if (jdbcTemplate.update("DELETE FROM films WHERE id = ?", id) == 0) {
+            throw NotFoundException.FILM;
+        }
+        version.increment();
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
+        // A concurrent request may insert the same like first, which counts as no change.
+        int inserted = inSavepoint(() -> jdbcTemplate.update(
+                "INSERT INTO likes (film_id, user_id) SELECT id, ? FROM films WHERE id = ? "
+                        + "AND NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)",
+                userId, filmId, filmId, userId), 0);
+        if (inserted == 0) {
+            requireFilm(filmId);
+            return false;
+        }
+        jdbcTemplate.update(ADD_LIKE_COUNT, 1, filmId);
+        version.increment();
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(Long filmId, Long userId) {
+        if (jdbcTemplate.update(DELETE_LIKE, filmId, userId) == 0) {
+            requireFilm(filmId);
+            return false;
+        }
+        jdbcTemplate.update(ADD_LIKE_COUNT, -1, filmId);
+        version.increment();
+        return true;
+    }
+
+    @Override
+    public Set<Long> getLikes(Long filmId) {
+        List<Long> users = jdbcTemplate.queryForList("SELECT user_id FROM likes WHERE film_id = ?", Long.class,
+                filmId);
+        if (users.isEmpty()) {
+            requireFilm(filmId);
+        }
+        return new HashSet<>(users);
+    }
+
+    @Override
+    public boolean hasLike(long filmId, long userId) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?", Integer.class,
+                filmId, userId).isEmpty();
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        // Streamed in primary key order, so every film's likes arrive together.
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes ORDER BY film_id, user_id",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong("film_id"), rs.getLong("user_id")));
+    }
+
+    @Override
+    public void forEachLikeCount(LikeCountConsumer consumer) {
+        jdbcTemplate.query("SELECT id, like_count FROM films WHERE like_count > 0",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong("id"), rs.getInt("like_count")));
+    }
+
+    @Override
+    @Transactional
+    public List<LikeOperationResult.Status> applyLikes(List<LikeOperation> operations) {
+        LikeOperationResult.Status[] statuses = new LikeOperationResult.Status[operations.size()];
+        Set<Long> existing = findExistingFilms(operations);
+        // Consecutive operations of the same kind go in one JDBC batch, which keeps their relative order.
+        List<Integer> run = new ArrayList<>();
+        LikeOperation.Action runAction = null;
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            if (!existing.contains(operation.getFilmId())) {
+                statuses[i] = LikeOperationResult.Status.FILM_NOT_FOUND;
+                continue;
+            }
+            if (operation.getAction() != runAction) {
+                applyRun(operations, run, runAction, statuses);
+                run.clear();
+                runAction = operation.getAction();
+            }
+            run.add(i);
+        }
+        applyRun(operations, run, runAction, statuses);
+        return Arrays.asList(statuses);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return jdbcTemplate.query(SELECT_FILMS + " ORDER BY like_count DESC, id LIMIT ?", this::mapFilm, count);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, int year) {
+        return jdbcTemplate.query(SELECT_FILMS + " WHERE release_year = ? ORDER BY like_count DESC, id LIMIT ?",
+                this::mapFilm, year, count);
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, long afterId, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_FILMS).append(" WHERE id > :afterId");
+        MapSqlParameterSource parameters = new MapSqlParameterSource("afterId", afterId).addValue("limit", limit);
+        if (filter.getReleasedFrom() != null) {
+            sql.append(" AND release_date >= :releasedFrom");
+            parameters.addValue("releasedFrom", Date.valueOf(filter.getReleasedFrom()));
+        }
+        if (filter.getReleasedTo() != null) {
+            sql.append(" AND release_date <= :releasedTo");
+            parameters.addValue("releasedTo", Date.valueOf(filter.getReleasedTo()));
+        }
+        if (filter.getMinDuration() != null) {
+            sql.append(" AND duration >= :minDuration");
+            parameters.addValue("minDuration", filter.getMinDuration());
+        }
+        if (filter.getMaxDuration() != null) {
+            sql.append(" AND duration <= :maxDuration");
+            parameters.addValue("maxDuration", filter.getMaxDuration());
+        }
+        return namedJdbcTemplate.query(sql.append(" ORDER BY id LIMIT :limit").toString(), parameters,
+                this::mapFilm);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.sum();
+    }
+
+    @Override
+    public long countFilms() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Long.class);
+    }
+
+    @Override
+    public long countLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class);
+    }
+
+    @Override
+    public int maxLikesPerFilm() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(like_count), 0) FROM films", Integer.class);
+    }
+
+    private Set<Long> findExistingFilms(List<LikeOperation> operations) {
+        List<Long> ids = operations.stream().map(LikeOperation::getFilmId).distinct().toList();
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + IN_LIST_CHUNK));
+            existing.addAll(namedJdbcTemplate.queryForList("SELECT id FROM films WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk), Long.class));
+        }
+        return existing;
+    }
+
+    private static void setFilm(PreparedStatement statement, Film film) throws SQLException {
+        statement.setString(1, film.getName());
+        statement.setString(2, film.getDescription());
+        statement.setDate(3, Date.valueOf(film.getReleaseDate()));
+        statement.setInt(4, film.getDuration());
+    }
+
+    private void applyRun(List<LikeOperation> operations, List<Integer> run, LikeOperation.Action action,
+                          LikeOperationResult.Status[] statuses) {
+        if (run.isEmpty()) {
+            return;
+        }
+        boolean add = action == LikeOperation.Action.ADD;
+        List<Object[]> args = new ArrayList<>(run.size());
+        for (int index : run) {
+            LikeOperation operation = operations.get(index);
+            args.add(add
+                    ? new Object[]{operation.getFilmId(), operation.getUserId(), operation.getFilmId(),
+                            operation.getUserId()}
+                    : new Object[]{operation.getFilmId(), operation.getUserId()});
+        }
+        int[] counts = inSavepoint(() -> jdbcTemplate.batchUpdate(add ? INSERT_LIKE : DELETE_LIKE, args), null);
+        if (counts == null) {
+            // A concurrent request inserted one of the likes first. The batch was rolled back, so every like is
+            // inserted again on its own to tell which one.
+            counts = new int[run.size()];
+            for (int i = 0; i < run.size(); i++) {
+                Object[] like = args.get(i);
+                counts[i] = inSavepoint(() -> jdbcTemplate.update(INSERT_LIKE, like), 0);
+            }
+        }
+        // Films are updated in id order, so concurrent batches lock their rows in the same order.
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (int i = 0; i < run.size(); i++) {
+            boolean applied = counts[i] != 0;
+            statuses[run.get(i)] = applied ? LikeOperationResult.Status.APPLIED : LikeOperationResult.Status.UNCHANGED;
+            if (applied) {
+                deltas.merge(operations.get(run.get(i)).getFilmId(), add ? 1 : -1, Integer::sum);
+            }
+        }
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_LIKE_COUNT, deltas.entrySet().stream()
+                    .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                    .toList());
+            version.increment();
+        }
+    }
+
+    /**
+     * Runs the statement in a savepoint of the current transaction. A duplicate key rolls back only the statement,
+     * so the transaction stays usable and keeps what it did before, and {@code onDuplicate} is returned.
+     */
+    private static <T> T inSavepoint(Supplier<T> statement, T onDuplicate) {
+        TransactionStatus transaction = TransactionAspectSupport.currentTransactionStatus();
+        Object savepoint = transaction.createSavepoint();
+        try {
+            T result = statement.get();
+            transaction.releaseSavepoint(savepoint);
+            return result;
+        } catch (DuplicateKeyException e) {
+            transaction.rollbackToSavepoint(savepoint);
+            return onDuplicate;
+        }
+    }
+
+    private void requireFilm(Long filmId) {
+        Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films WHERE id = ?", Integer.class, filmId);
+        if (found == null || found == 0) {
+            throw NotFoundException.FILM;
+        }
+    }
+
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getLong("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        return film;
+    }
+}
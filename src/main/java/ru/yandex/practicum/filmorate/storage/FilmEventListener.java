@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Notified by {@link ru.yandex.practicum.filmorate.service.FilmService} after a change has been stored. Likes
+ * that did not change anything (repeated or missing) are not reported. Likes received from other instances of a
+ * cluster are reported by {@link ReplicatedFilmStorage} as they are merged. Called on the request or replication
+ * thread, so implementations must be thread-safe and cheap.
+ */
+public interface FilmEventListener {
+    default void filmAdded(Film film) {
+    }
+
+    default void filmUpdated(Film film) {
+    }
+
+    default void likeAdded(long filmId, long userId) {
+    }
+
+    default void likeRemoved(long filmId, long userId) {
+    }
+
+    default void filmRemoved(long filmId) {
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+class FilmPopularityIndex {
+    private static final Comparator<Rank> ORDER = Comparator
+            .comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private final NavigableSet<Rank> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+    void add(long filmId) {
+        add(filmId, 0);
+    }
+
+    void add(long filmId, int likes) {
+        ranking.add(new Rank(filmId, likes));
+    }
+
+    void clear() {
+        ranking.clear();
+    }
+
+    // Callers must serialize updates of the same film; readers may briefly see both ranks of a film.
+    void update(long filmId, int oldLikes, int newLikes) {
+        if (oldLikes == newLikes) {
+            return;
+        }
+        ranking.add(new Rank(filmId, newLikes));
+        ranking.remove(new Rank(filmId, oldLikes));
+    }
+
+    void remove(long filmId, int likes) {
+        ranking.remove(new Rank(filmId, likes));
+    }
+
+    int maxLikes() {
+        for (Rank rank : ranking) {
+            return rank.likes();
+        }
+        return 0;
+    }
+
+    List<Long> top(int count) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Rank rank : ranking) {
+            if (ids.size() >= count) {
+                break;
+            }
+            ids.add(rank.filmId());
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Visits films from the most liked down until the visitor returns false.
+     */
+    void visit(RankVisitor visitor) {
+        for (Rank rank : ranking) {
+            if (!visitor.visit(rank.filmId(), rank.likes())) {
+                return;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface RankVisitor {
+        boolean visit(long filmId, int likes);
+    }
+
+    private record Rank(long filmId, int likes) {
+    }
+}
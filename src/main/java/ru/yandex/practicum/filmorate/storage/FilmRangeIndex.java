@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Film ids ordered by the value of one attribute, for range queries. The indexed value of each film is kept
+ * here rather than read from the film, since callers may have changed the stored object in place before
+ * updating it. Callers must serialize changes of the same film.
+ */
+class FilmRangeIndex {
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingLong(Entry::value)
+            .thenComparingLong(Entry::filmId);
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Long> values = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the film under the value and returns the value it was indexed under before, if any.
+     */
+    Long put(long filmId, long value) {
+        Long previous = values.put(filmId, value);
+        if (previous != null && previous == value) {
+            return previous;
+        }
+        entries.add(new Entry(value, filmId));
+        if (previous != null) {
+            entries.remove(new Entry(previous, filmId));
+        }
+        return previous;
+    }
+
+    Long remove(long filmId) {
+        Long previous = values.remove(filmId);
+        if (previous != null) {
+            entries.remove(new Entry(previous, filmId));
+        }
+        return previous;
+    }
+
+    Long valueOf(long filmId) {
+        return values.get(filmId);
+    }
+
+    void clear() {
+        entries.clear();
+        values.clear();
+    }
+
+    /**
+     * Ids of the films with values in [from, to], in value order.
+     */
+    Iterator<Long> range(long from, long to) {
+        if (from > to) {
+            return Collections.emptyIterator();
+        }
+        Iterator<Entry> inRange = entries.subSet(new Entry(from, Long.MIN_VALUE), true,
+                new Entry(to, Long.MAX_VALUE), true).iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return inRange.hasNext();
+            }
+
+            @Override
+            public Long next() {
+                return inRange.next().filmId();
+            }
+        };
+    }
+
+    private record Entry(long value, long filmId) {
+    }
+}
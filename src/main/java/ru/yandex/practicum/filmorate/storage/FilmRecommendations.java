@@ -0,0 +1,358 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * "Users who liked this also liked": a sparse film-film matrix counting users who liked both films, kept up
+ * to date on every like, and the best neighbors of each film by that count. Neighbor lists and the films of
+ * each user are immutable arrays swapped on change, so queries read them without locking and cost
+ * O(films liked by the user x neighbors) instead of depending on the catalog size.
+ */
+@Slf4j
+@Component
+public class FilmRecommendations implements FilmEventListener {
+    private final FilmStorage filmStorage;
+    private final int neighborCount;
+    // A like takes its user's stripe, then the stripes of the films it touches one at a time. Changes of one user
+    // are serialized; rows of different films are updated in parallel.
+    private final LockStripes userLocks = new LockStripes(64);
+    private final LockStripes filmLocks = new LockStripes(64);
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final Queue<Change> changedDuringRebuild = new ConcurrentLinkedQueue<>();
+    private volatile boolean rebuilding;
+    private volatile Matrix matrix = new Matrix();
+
+    @Autowired
+    public FilmRecommendations(FilmStorage filmStorage,
+                               @Value("${filmorate.recommendations.neighbors:50}") int neighborCount) {
+        this.filmStorage = filmStorage;
+        this.neighborCount = neighborCount;
+    }
+
+    @Override
+    public void likeAdded(long filmId, long userId) {
+        change(filmId, userId);
+    }
+
+    @Override
+    public void likeRemoved(long filmId, long userId) {
+        change(filmId, userId);
+    }
+
+    @Override
+    public void filmRemoved(long filmId) {
+        Matrix current = matrix;
+        long[] users;
+        ReentrantLock filmLock = filmLocks.forId(filmId);
+        filmLock.lock();
+        try {
+            Row row = current.rows.get(filmId);
+            users = row == null ? SortedLongs.EMPTY : row.userIds();
+        } finally {
+            filmLock.unlock();
+        }
+        for (long userId : users) {
+            change(filmId, userId);
+        }
+        filmLock.lock();
+        try {
+            matrix.rows.remove(filmId);
+            matrix.neighbors.remove(filmId);
+        } finally {
+            filmLock.unlock();
+        }
+    }
+
+    /**
+     * Ids of the films most often liked together with the given one, best first.
+     */
+    public List<Long> similar(long filmId, int count) {
+        Neighbors best = matrix.neighbors.getOrDefault(filmId, Neighbors.NONE);
+        List<Long> ids = new ArrayList<>(Math.min(count, best.ids.length));
+        for (int i = 0; i < best.ids.length && i < count; i++) {
+            ids.add(best.ids[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Ids of films the user has not liked, ranked by how often they were liked together with the user's films.
+     */
+    public List<Long> recommendFor(long userId, int count) {
+        Matrix current = matrix;
+        long[] liked = current.filmsByUser.getOrDefault(userId, SortedLongs.EMPTY);
+        LongIntHashMap scores = new LongIntHashMap(Math.min(liked.length * neighborCount, 1 << 16));
+        for (long filmId : liked) {
+            Neighbors best = current.neighbors.getOrDefault(filmId, Neighbors.NONE);
+            for (int i = 0; i < best.ids.length; i++) {
+                if (!SortedLongs.contains(liked, best.ids[i])) {
+                    scores.add(best.ids[i], best.counts[i]);
+                }
+            }
+        }
+        long[] ids = Neighbors.of(scores, count).ids;
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Recomputes the matrix from one pass over the stored likes, its rows on the fork/join pool, while likes keep
+     * updating the current one. The new matrix is then swapped in and the likes that arrived meanwhile are
+     * applied on top; they change nothing if the storage already included them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long started = System.nanoTime();
+            changedDuringRebuild.clear();
+            rebuilding = true;
+            Matrix rebuilt = load();
+            userLocks.lockAll();
+            try {
+                matrix = rebuilt;
+                rebuilding = false;
+                for (Change change; (change = changedDuringRebuild.poll()) != null; ) {
+                    apply(rebuilt, change.filmId, change.userId, change.liked);
+                }
+            } finally {
+                userLocks.unlockAll();
+            }
+            log.info("Rebuilt co-like matrix of {} films and {} users in {} ms", rebuilt.rows.size(),
+                    rebuilt.filmsByUser.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } finally {
+            rebuilding = false;
+            rebuildLock.unlock();
+        }
+    }
+
+    private Matrix load() {
+        Matrix loaded = new Matrix();
+        LongIntHashMap likedCounts = new LongIntHashMap();
+        filmStorage.forEachLike(new FilmStorage.LikeConsumer() {
+            private long lastFilmId;
+            private Row row;
+
+            @Override
+            public void accept(long filmId, long userId) {
+                if (row == null || filmId != lastFilmId) {
+                    lastFilmId = filmId;
+                    row = loaded.rows.computeIfAbsent(filmId, id -> new Row());
+                }
+                row.users.add(userId, 1);
+                likedCounts.add(userId, 1);
+            }
+        });
+        long[] filmIds = loaded.rows.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<Long, long[]> films = new HashMap<>(likedCounts.size() * 2);
+        LongIntHashMap filled = new LongIntHashMap(likedCounts.size());
+        // Films are visited in id order, so every user's array comes out sorted.
+        for (long filmId : filmIds) {
+            loaded.rows.get(filmId).users.forEach((userId, one) -> {
+                long[] userFilms = films.computeIfAbsent(userId, id -> new long[likedCounts.get(id)]);
+                userFilms[filled.add(userId, 1) - 1] = filmId;
+            });
+        }
+        loaded.filmsByUser.putAll(films);
+        loaded.rows.entrySet().parallelStream().forEach(entry -> {
+            long filmId = entry.getKey();
+            LongIntHashMap coLikes = entry.getValue().coLikes;
+            entry.getValue().users.forEach((userId, one) -> {
+                for (long other : films.get(userId)) {
+                    if (other != filmId) {
+                        coLikes.add(other, 1);
+                    }
+                }
+            });
+            if (coLikes.size() > 0) {
+                loaded.neighbors.put(filmId, Neighbors.of(coLikes, neighborCount));
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Brings the like of the user up to date with the storage. Events are sent after the storage call returns, so
+     * two racing changes of one like can arrive in either order; the state read last, under the user's stripe, is
+     * the stored one either way.
+     */
+    private void change(long filmId, long userId) {
+        ReentrantLock userLock = userLocks.forId(userId);
+        userLock.lock();
+        try {
+            boolean liked = filmStorage.hasLike(filmId, userId);
+            if (rebuilding) {
+                changedDuringRebuild.add(new Change(filmId, userId, liked));
+            }
+            apply(matrix, filmId, userId, liked);
+        } finally {
+            userLock.unlock();
+        }
+    }
+
+    // Callers hold the user's stripe.
+    private void apply(Matrix target, long filmId, long userId, boolean liked) {
+        long[] films = target.filmsByUser.getOrDefault(userId, SortedLongs.EMPTY);
+        if (SortedLongs.contains(films, filmId) == liked) {
+            return;
+        }
+        films = liked ? SortedLongs.insert(films, filmId) : SortedLongs.remove(films, filmId);
+        int delta = liked ? 1 : -1;
+        ReentrantLock filmLock = filmLocks.forId(filmId);
+        filmLock.lock();
+        try {
+            Row row = target.rows.computeIfAbsent(filmId, id -> new Row());
+            row.users.add(userId, delta);
+            for (long other : films) {
+                if (other != filmId) {
+                    addCoLikes(target, row, filmId, other, delta);
+                }
+            }
+            removeIfEmpty(target, filmId, row);
+        } finally {
+            filmLock.unlock();
+        }
+        for (long other : films) {
+            if (other == filmId) {
+                continue;
+            }
+            ReentrantLock otherLock = filmLocks.forId(other);
+            otherLock.lock();
+            try {
+                Row row = target.rows.computeIfAbsent(other, id -> new Row());
+                addCoLikes(target, row, other, filmId, delta);
+                removeIfEmpty(target, other, row);
+            } finally {
+                otherLock.unlock();
+            }
+        }
+        if (films.length == 0) {
+            target.filmsByUser.remove(userId);
+        } else {
+            target.filmsByUser.put(userId, films);
+        }
+    }
+
+    // Callers hold the film's stripe.
+    private void addCoLikes(Matrix target, Row row, long filmId, long other, int delta) {
+        int count = row.coLikes.add(other, delta);
+        if (row.coLikes.size() == 0) {
+            target.neighbors.remove(filmId);
+            return;
+        }
+        Neighbors current = target.neighbors.getOrDefault(filmId, Neighbors.NONE);
+        if (delta > 0) {
+            // A grown count can only push another film out of the list, never pull one in.
+            Neighbors updated = current.with(other, count, neighborCount);
+            if (updated != current) {
+                target.neighbors.put(filmId, updated);
+            }
+        } else if (current.indexOf(other) >= 0) {
+            // A shrunk neighbor may now rank below a film outside the list: select again from the row.
+            target.neighbors.put(filmId, Neighbors.of(row.coLikes, neighborCount));
+        }
+    }
+
+    // Callers hold the film's stripe.
+    private static void removeIfEmpty(Matrix target, long filmId, Row row) {
+        if (row.users.size() == 0 && row.coLikes.size() == 0) {
+            target.rows.remove(filmId);
+        }
+    }
+
+    private static final class Matrix {
+        final Map<Long, long[]> filmsByUser = new ConcurrentHashMap<>();
+        // Rows and neighbor lists of a film are only changed under the film's stripe.
+        final Map<Long, Row> rows = new ConcurrentHashMap<>();
+        final Map<Long, Neighbors> neighbors = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The users who liked a film, as a set, and its co-like counts with other films.
+     */
+    private static final class Row {
+        final LongIntHashMap users = new LongIntHashMap();
+        final LongIntHashMap coLikes = new LongIntHashMap();
+
+        long[] userIds() {
+            long[] ids = new long[users.size()];
+            int[] next = new int[1];
+            users.forEach((userId, one) -> ids[next[0]++] = userId);
+            return ids;
+        }
+    }
+
+    private record Change(long filmId, long userId, boolean liked) {
+    }
+
+    /**
+     * Neighbor ids with their co-like counts, highest count first and lower id first among equal counts.
+     */
+    private record Neighbors(long[] ids, int[] counts) {
+        static final Neighbors NONE = new Neighbors(new long[0], new int[0]);
+
+        static Neighbors of(LongIntHashMap row, int limit) {
+            int size = Math.min(limit, row.size());
+            long[] ids = new long[size];
+            int[] counts = new int[size];
+            row.top(ids, counts);
+            return new Neighbors(ids, counts);
+        }
+
+        int indexOf(long id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Neighbors with(long id, int count, int limit) {
+            int existing = indexOf(id);
+            int size = ids.length - (existing >= 0 ? 1 : 0);
+            int position = 0;
+            while (position < ids.length && (position == existing || ranksBefore(position, id, count))) {
+                position++;
+            }
+            if (existing >= 0 && existing < position) {
+                position--;
+            }
+            if (position >= limit) {
+                return this;
+            }
+            int length = Math.min(limit, size + 1);
+            long[] newIds = new long[length];
+            int[] newCounts = new int[length];
+            for (int from = 0, to = 0; to < length; from++) {
+                if (to == position) {
+                    newIds[to] = id;
+                    newCounts[to++] = count;
+                    from--;
+                } else if (from != existing) {
+                    newIds[to] = ids[from];
+                    newCounts[to++] = counts[from];
+                }
+            }
+            return new Neighbors(newIds, newCounts);
+        }
+
+        private boolean ranksBefore(int index, long id, int count) {
+            return LongIntHashMap.ranksBefore(counts[index], ids[index], count, id);
+        }
+    }
+}
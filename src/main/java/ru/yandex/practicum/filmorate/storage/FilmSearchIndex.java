@@ -0,0 +1,463 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Full-text search over film names and descriptions. Every word maps to the films containing it with a weight
+ * that is higher for words of the name, so a query only visits the films of its rarest word instead of the
+ * catalog. Results are ordered by that weight scaled by the logarithm of the film's like count. Like counts are
+ * kept outside the text index, so likes never wait for searches or block them.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex implements FilmEventListener {
+    static final int NAME_WEIGHT = 3;
+    static final int DESCRIPTION_WEIGHT = 1;
+    // Bounds the work of short prefixes such as a single letter; the alphabetically first words win.
+    private static final int MAX_PREFIX_TERMS = 256;
+    private static final int REBUILD_PAGE = 10_000;
+    // Lists longer than this are matched against the most liked films first instead of scanned.
+    private static final int LONG_LIST = 4096;
+
+    private final FilmStorage filmStorage;
+    // Guards the text index. Like counts and their ranking are concurrent and updated under per-film stripes.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LockStripes likeLocks = new LockStripes(64);
+    private final Map<String, LongIntHashMap> postings = new HashMap<>();
+    // The words of postings in order, for prefix lookups.
+    private final NavigableSet<String> sortedWords = new TreeSet<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final Map<Long, Integer> likes = new ConcurrentHashMap<>();
+    private final FilmPopularityIndex popularity = new FilmPopularityIndex();
+
+    @Autowired
+    public FilmSearchIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    public void filmAdded(Film film) {
+        index(film);
+    }
+
+    @Override
+    public void filmUpdated(Film film) {
+        index(film);
+    }
+
+    @Override
+    public void filmRemoved(long filmId) {
+        lock.writeLock().lock();
+        try {
+            unindex(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ReentrantLock likeLock = likeLocks.forId(filmId);
+        likeLock.lock();
+        try {
+            Integer before = likes.remove(filmId);
+            if (before != null) {
+                rankLikes(filmId, before, 0);
+            }
+        } finally {
+            likeLock.unlock();
+        }
+    }
+
+    @Override
+    public void likeAdded(long filmId, long userId) {
+        addLikes(filmId, 1);
+    }
+
+    @Override
+    public void likeRemoved(long filmId, long userId) {
+        addLikes(filmId, -1);
+    }
+
+    /**
+     * Ids of the films whose name or description contains every word of the query, best first.
+     */
+    public List<Long> search(String query, int count) {
+        List<String> words = tokens(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(words.size());
+            for (String word : words) {
+                LongIntHashMap films = postings.get(word);
+                if (films == null) {
+                    return List.of();
+                }
+                lists.add(new Term(films));
+            }
+            return rank(lists, 0, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the films whose name contains the words of the query, the last one only as a prefix, best first.
+     */
+    public List<Long> complete(String query, int count) {
+        List<String> words = tokens(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        String prefix = words.get(words.size() - 1);
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(words.size());
+            for (String word : words.subList(0, words.size() - 1)) {
+                LongIntHashMap films = postings.get(word);
+                if (films == null) {
+                    return List.of();
+                }
+                lists.add(new Term(films));
+            }
+            List<LongIntHashMap> completions = new ArrayList<>();
+            for (String word : sortedWords.subSet(prefix, prefix + Character.MAX_VALUE)) {
+                if (completions.size() == MAX_PREFIX_TERMS) {
+                    break;
+                }
+                completions.add(postings.get(word));
+            }
+            if (completions.isEmpty()) {
+                return List.of();
+            }
+            // Not merged into one list: a short prefix matches much of the catalog, and the popularity walk of
+            // rank() usually settles the result after a few films.
+            lists.add(new AnyNameTerm(completions));
+            return rank(lists, NAME_WEIGHT, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes every film of the storage, then reloads the like counts in one pass. A like stored just before the
+     * counts were read but reported after it is counted twice; like counts only order results, so this is
+     * tolerated.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            sortedWords.clear();
+            documents.clear();
+            long after = 0;
+            List<Film> page;
+            do {
+                page = filmStorage.getFilmsPage(after, REBUILD_PAGE);
+                for (Film film : page) {
+                    put(film);
+                    after = film.getId();
+                }
+            } while (page.size() == REBUILD_PAGE);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        likeLocks.lockAll();
+        try {
+            likes.clear();
+            popularity.clear();
+        } finally {
+            likeLocks.unlockAll();
+        }
+        filmStorage.forEachLikeCount((filmId, count) -> {
+            ReentrantLock likeLock = likeLocks.forId(filmId);
+            likeLock.lock();
+            try {
+                int before = likeCount(filmId);
+                likes.put(filmId, count);
+                rankLikes(filmId, before, count);
+            } finally {
+                likeLock.unlock();
+            }
+        });
+        log.info("Indexed {} films with {} distinct words in {} ms", documents.size(), postings.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Lower-cased words of the text in order of first appearance, without repeats. Letters are folded with the
+     * root locale and "ё" is treated as "е", as Russian texts use both spellings.
+     */
+    static List<String> tokens(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        String folded = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    private void index(Film film) {
+        lock.writeLock().lock();
+        try {
+            unindex(film.getId());
+            put(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers hold the write lock.
+    private void put(Film film) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String word : tokens(film.getName())) {
+            weights.merge(word, NAME_WEIGHT, Integer::sum);
+        }
+        for (String word : tokens(film.getDescription())) {
+            weights.merge(word, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        String[] words = new String[weights.size()];
+        int[] wordWeights = new int[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            words[i] = entry.getKey();
+            wordWeights[i++] = entry.getValue();
+            postings.computeIfAbsent(entry.getKey(), word -> {
+                sortedWords.add(word);
+                return new LongIntHashMap();
+            }).add(film.getId(), entry.getValue());
+        }
+        documents.put(film.getId(), new Document(words, wordWeights));
+    }
+
+    // Callers hold the write lock.
+    private void unindex(long filmId) {
+        Document document = documents.remove(filmId);
+        if (document == null) {
+            return;
+        }
+        for (int i = 0; i < document.words.length; i++) {
+            LongIntHashMap films = postings.get(document.words[i]);
+            films.add(filmId, -document.weights[i]);
+            if (films.size() == 0) {
+                postings.remove(document.words[i]);
+                sortedWords.remove(document.words[i]);
+            }
+        }
+    }
+
+    private void addLikes(long filmId, int delta) {
+        ReentrantLock likeLock = likeLocks.forId(filmId);
+        likeLock.lock();
+        try {
+            int before = likeCount(filmId);
+            int after = before + delta;
+            if (after == 0) {
+                likes.remove(filmId);
+            } else {
+                likes.put(filmId, after);
+            }
+            rankLikes(filmId, before, after);
+        } finally {
+            likeLock.unlock();
+        }
+    }
+
+    private int likeCount(long filmId) {
+        return likes.getOrDefault(filmId, 0);
+    }
+
+    // Callers hold the read lock.
+    private List<Long> rank(List<Postings> lists, int minWeight, int count) {
+        lists.sort(Comparator.comparingInt(Postings::size));
+        Postings shortest = lists.get(0);
+        TopHits best = new TopHits(count);
+        if (shortest.size() <= LONG_LIST) {
+            shortest.forEach((filmId, weight) -> offer(best, lists, minWeight, filmId, likeCount(filmId)));
+            return best.ids();
+        }
+        // A film with L likes scores at most maxTotal * (1 + ln(1 + L)), so walking films from the most liked
+        // down can stop as soon as that bound falls below the worst kept hit. Only when the liked films do not
+        // settle the result are the films without likes scanned.
+        double maxTotal = lists.size() * (NAME_WEIGHT + DESCRIPTION_WEIGHT);
+        boolean[] settled = {false};
+        // A film being re-ranked by a concurrent like may be visited twice; its higher rank comes first and counts.
+        LongIntHashMap visited = new LongIntHashMap();
+        popularity.visit((filmId, filmLikes) -> {
+            if (best.isFull() && maxTotal * (1 + Math.log1p(filmLikes)) < best.worstScore()) {
+                settled[0] = true;
+                return false;
+            }
+            if (visited.add(filmId, 1) == 1) {
+                offer(best, lists, minWeight, filmId, filmLikes);
+            }
+            return true;
+        });
+        if (!settled[0] && !(best.isFull() && maxTotal < best.worstScore())) {
+            shortest.forEach((filmId, weight) -> {
+                if (visited.get(filmId) == 0 && likeCount(filmId) <= 0) {
+                    offer(best, lists, minWeight, filmId, 0);
+                }
+            });
+        }
+        return best.ids();
+    }
+
+    private static void offer(TopHits best, List<Postings> lists, int minWeight, long filmId, int filmLikes) {
+        int total = 0;
+        for (Postings list : lists) {
+            int weight = list.weight(filmId);
+            if (weight == 0 || weight < minWeight) {
+                return;
+            }
+            total += weight;
+        }
+        best.offer(filmId, total * (1 + Math.log1p(Math.max(filmLikes, 0))));
+    }
+
+    // Callers hold the film's like stripe. Only films with likes are ranked.
+    private void rankLikes(long filmId, int before, int after) {
+        if (before > 0 && after > 0) {
+            popularity.update(filmId, before, after);
+        } else if (after > 0) {
+            popularity.add(filmId, after);
+        } else if (before > 0) {
+            popularity.remove(filmId, before);
+        }
+    }
+
+    private record Document(String[] words, int[] weights) {
+    }
+
+    /**
+     * Films matching one word of a query, with their weights.
+     */
+    private interface Postings {
+        // May overcount, it only orders the lists.
+        int size();
+
+        // 0 if the film does not match.
+        int weight(long filmId);
+
+        void forEach(LongIntHashMap.EntryConsumer consumer);
+    }
+
+    private record Term(LongIntHashMap films) implements Postings {
+        @Override
+        public int size() {
+            return films.size();
+        }
+
+        @Override
+        public int weight(long filmId) {
+            return films.get(filmId);
+        }
+
+        @Override
+        public void forEach(LongIntHashMap.EntryConsumer consumer) {
+            films.forEach(consumer);
+        }
+    }
+
+    /**
+     * Films whose name contains any of the words, weighted by the first of them that it contains.
+     */
+    private record AnyNameTerm(List<LongIntHashMap> words) implements Postings {
+        @Override
+        public int size() {
+            int size = 0;
+            for (LongIntHashMap films : words) {
+                size += films.size();
+            }
+            return size;
+        }
+
+        @Override
+        public int weight(long filmId) {
+            for (LongIntHashMap films : words) {
+                int weight = films.get(filmId);
+                if (weight >= NAME_WEIGHT) {
+                    return weight;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public void forEach(LongIntHashMap.EntryConsumer consumer) {
+            LongIntHashMap seen = new LongIntHashMap();
+            for (LongIntHashMap films : words) {
+                films.forEach((filmId, weight) -> {
+                    if (weight >= NAME_WEIGHT && seen.add(filmId, 1) == 1) {
+                        consumer.accept(filmId, weight);
+                    }
+                });
+            }
+        }
+    }
+
+    private record Hit(long filmId, double score) {
+    }
+
+    /**
+     * The best hits seen so far: highest score first, lower id first among equal scores.
+     */
+    private static final class TopHits {
+        private final int limit;
+        private final PriorityQueue<Hit> worstFirst = new PriorityQueue<>(Comparator.comparingDouble(Hit::score)
+                .thenComparing(Hit::filmId, Comparator.reverseOrder()));
+
+        private TopHits(int limit) {
+            this.limit = limit;
+        }
+
+        boolean isFull() {
+            return worstFirst.size() >= limit;
+        }
+
+        double worstScore() {
+            return worstFirst.peek().score();
+        }
+
+        void offer(long filmId, double score) {
+            if (!isFull()) {
+                worstFirst.add(new Hit(filmId, score));
+                return;
+            }
+            Hit worst = worstFirst.peek();
+            if (score > worst.score() || (score == worst.score() && filmId < worst.filmId())) {
+                worstFirst.poll();
+                worstFirst.add(new Hit(filmId, score));
+            }
+        }
+
+        List<Long> ids() {
+            Long[] ids = new Long[worstFirst.size()];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                ids[i] = worstFirst.poll().filmId();
+            }
+            return Arrays.asList(ids);
+        }
+    }
+}
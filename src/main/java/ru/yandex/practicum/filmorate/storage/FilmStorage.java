@@ -1,24 +1,154 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
 import java.util.List;
+import java.util.Set;
 
 public interface FilmStorage {
 
     Film addFilm(Film film);
 
+    /**
+     * Adds the films in order, assigning ids as {@link #addFilm(Film)} does. If one of them fails, the films added
+     * before it are removed again, so a failed batch can be retried film by film.
+     */
+    default List<Film> addFilms(List<Film> films) {
+        int added = 0;
+        try {
+            for (Film film : films) {
+                addFilm(film);
+                added++;
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < added; i++) {
+                try {
+                    removeFilm(films.get(i).getId());
+                } catch (RuntimeException removal) {
+                    e.addSuppressed(removal);
+                }
+            }
+            throw e;
+        }
+        return films;
+    }
+
     Film updateFilm(Film film);
 
     Film getFilmById(Long id);
 
     List<Film> getAllFilms();
 
+    List<Film> getFilmsPage(long afterId, int limit);
+
     void removeFilm(Long id);
 
-    void addLike(Long filmId, Long userId);
+    /**
+     * @return false if the user already liked the film
+     */
+    boolean addLike(Long filmId, Long userId);
+
+    /**
+     * @return false if the user did not like the film
+     */
+    boolean removeLike(Long filmId, Long userId);
+
+    /**
+     * Ids of the users who liked the film.
+     */
+    Set<Long> getLikes(Long filmId);
+
+    /**
+     * Whether the user likes the film now; false for a film that does not exist.
+     */
+    default boolean hasLike(long filmId, long userId) {
+        try {
+            return getLikes(filmId).contains(userId);
+        } catch (NotFoundException ignore) {
+            // Removed meanwhile.
+            return false;
+        }
+    }
+
+    /**
+     * Passes every like to the consumer, grouped by film. Rebuilds of derived indexes read all likes in one pass
+     * with it instead of calling {@link #getLikes(Long)} per film.
+     */
+    default void forEachLike(LikeConsumer consumer) {
+        for (Film film : getAllFilms()) {
+            Set<Long> users;
+            try {
+                users = getLikes(film.getId());
+            } catch (NotFoundException ignore) {
+                // Removed meanwhile.
+                continue;
+            }
+            for (Long userId : users) {
+                consumer.accept(film.getId(), userId);
+            }
+        }
+    }
+
+    /**
+     * Passes the like count of every film with likes to the consumer, without reading the likes themselves.
+     */
+    default void forEachLikeCount(LikeCountConsumer consumer) {
+        for (Film film : getAllFilms()) {
+            int likes;
+            try {
+                likes = getLikes(film.getId()).size();
+            } catch (NotFoundException ignore) {
+                // Removed meanwhile.
+                continue;
+            }
+            if (likes > 0) {
+                consumer.accept(film.getId(), likes);
+            }
+        }
+    }
 
-    void removeLike(Long filmId, Long userId);
+    /**
+     * Applies the operations in order and returns one status per operation. User ids are not checked here:
+     * callers leave out operations of unknown users.
+     */
+    List<LikeOperationResult.Status> applyLikes(List<LikeOperation> operations);
 
     List<Film> getPopularFilms(int count);
 
+    /**
+     * The most liked films released in the given year.
+     */
+    List<Film> getPopularFilms(int count, int year);
+
+    /**
+     * Films matching the filter with ids above {@code afterId}, in id order.
+     */
+    List<Film> findFilms(FilmFilter filter, long afterId, int limit);
+
+    /**
+     * Grows whenever films or likes change, so results computed at an unchanged version are still valid.
+     */
+    long getVersion();
+
+    long countFilms();
+
+    long countLikes();
+
+    /**
+     * Like count of the most liked film, 0 without films.
+     */
+    int maxLikesPerFilm();
+
+    @FunctionalInterface
+    interface LikeCountConsumer {
+        void accept(long filmId, int likes);
+    }
+
+    @FunctionalInterface
+    interface LikeConsumer {
+        void accept(long filmId, long userId);
+    }
 }
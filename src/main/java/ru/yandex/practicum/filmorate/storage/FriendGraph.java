@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Undirected friendship graph keeping each user's friends as a sorted {@code long[]}.
+ * Arrays are copied on write and never modified after publication, so readers need no locks,
+ * while writers must hold the stripes of every user whose adjacency they change.
+ */
+class FriendGraph {
+    private final Map<Long, Adjacency> adjacency = new ConcurrentHashMap<>();
+
+    void addVertex(long id) {
+        adjacency.put(id, Adjacency.EMPTY);
+    }
+
+    long[] removeVertex(long id) {
+        Adjacency removed = adjacency.remove(id);
+        return removed == null ? SortedLongs.EMPTY : removed.ids();
+    }
+
+    void setNeighbors(long id, long[] sortedIds) {
+        adjacency.put(id, sortedIds.length == 0 ? Adjacency.EMPTY : new Adjacency(sortedIds));
+    }
+
+    boolean containsVertex(long id) {
+        return adjacency.containsKey(id);
+    }
+
+    boolean addEdge(long from, long to) {
+        long[] current = adjacency.get(from).ids();
+        long[] updated = SortedLongs.insert(current, to);
+        if (updated == current) {
+            return false;
+        }
+        adjacency.put(from, new Adjacency(updated));
+        return true;
+    }
+
+    boolean removeEdge(long from, long to) {
+        Adjacency current = adjacency.get(from);
+        if (current == null) {
+            return false;
+        }
+        long[] updated = SortedLongs.remove(current.ids(), to);
+        if (updated == current.ids()) {
+            return false;
+        }
+        adjacency.put(from, new Adjacency(updated));
+        return true;
+    }
+
+    long[] neighbors(long id) {
+        return adjacency(id).ids();
+    }
+
+    long[] commonNeighbors(long first, long second) {
+        return FriendIntersections.intersect(adjacency(first), adjacency(second));
+    }
+
+    int commonNeighborCount(long first, long second) {
+        return FriendIntersections.count(adjacency(first), adjacency(second));
+    }
+
+    int vertexCount() {
+        return adjacency.size();
+    }
+
+    // Both ends of an edge list it, so this is twice the number of edges.
+    long degreeSum() {
+        long sum = 0;
+        for (Adjacency neighbors : adjacency.values()) {
+            sum += neighbors.size();
+        }
+        return sum;
+    }
+
+    int maxDegree() {
+        int max = 0;
+        for (Adjacency neighbors : adjacency.values()) {
+            max = Math.max(max, neighbors.size());
+        }
+        return max;
+    }
+
+    Adjacency adjacency(long id) {
+        Adjacency result = adjacency.get(id);
+        return result == null ? Adjacency.EMPTY : result;
+    }
+}
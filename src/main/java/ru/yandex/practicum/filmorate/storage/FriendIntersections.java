@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Intersections of sorted adjacency lists. Always drives from the smaller side: a linear merge for
+ * similar sizes, a galloping search when one side is much larger, and a chunked bitmap AND once
+ * both users have many friends packed closely enough in id space for a bitmap to be no larger than their ids.
+ */
+final class FriendIntersections {
+    static final int DENSE_DEGREE = 1024;
+    private static final int GALLOP_RATIO = 32;
+
+    private FriendIntersections() {
+    }
+
+    static long[] intersect(Adjacency first, Adjacency second) {
+        Adjacency small = first.size() <= second.size() ? first : second;
+        Adjacency large = small == first ? second : first;
+        if (small.size() == 0) {
+            return SortedLongs.EMPTY;
+        }
+        if (useBitmaps(small, large)) {
+            return small.bitmap().and(large.bitmap());
+        }
+        long[] result = new long[small.size()];
+        int size = scan(small.ids(), large.ids(), result);
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    static int count(Adjacency first, Adjacency second) {
+        Adjacency small = first.size() <= second.size() ? first : second;
+        Adjacency large = small == first ? second : first;
+        if (small.size() == 0) {
+            return 0;
+        }
+        if (useBitmaps(small, large)) {
+            return small.bitmap().andCardinality(large.bitmap());
+        }
+        return scan(small.ids(), large.ids(), null);
+    }
+
+    private static boolean useBitmaps(Adjacency small, Adjacency large) {
+        return small.size() >= DENSE_DEGREE && small.bitmap() != null && large.bitmap() != null;
+    }
+
+    private static int scan(long[] small, long[] large, long[] out) {
+        if ((long) small.length * GALLOP_RATIO < large.length) {
+            return gallop(small, large, out);
+        }
+        return merge(small, large, out);
+    }
+
+    private static int merge(long[] a, long[] b, long[] out) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                if (out != null) {
+                    out[size] = a[i];
+                }
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static int gallop(long[] small, long[] large, long[] out) {
+        int size = 0;
+        int from = 0;
+        for (long value : small) {
+            int bound = 1;
+            while (from + bound < large.length && large[from + bound] < value) {
+                bound <<= 1;
+            }
+            int pos = Arrays.binarySearch(large, from + (bound >>> 1), Math.min(from + bound + 1, large.length), value);
+            if (pos >= 0) {
+                if (out != null) {
+                    out[size] = value;
+                }
+                size++;
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+            if (from >= large.length) {
+                break;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.exception.TimeBudgetExceededException;
+
+import java.util.Arrays;
+
+/**
+ * Shortest friendship chains by bidirectional breadth-first search: each step expands one whole level of the
+ * side with the smaller frontier, so a chain of length d costs about two searches of depth d/2 instead of
+ * one of depth d. Visited users and their parents live in primitive hash maps, frontiers in plain arrays.
+ */
+final class FriendPaths {
+    private FriendPaths() {
+    }
+
+    /**
+     * @return user ids from {@code from} to {@code to}, both included, or an empty array if no chain of at
+     * most {@code maxDepth} friendships exists
+     * @throws TimeBudgetExceededException if the search runs past the deadline ({@link System#nanoTime()} based),
+     * which is checked before every expanded user because a database storage queries each one
+     */
+    static long[] shortestPath(AdjacencySource graph, long from, long to, int maxDepth, long deadlineNanos) {
+        if (from == to) {
+            return new long[]{from};
+        }
+        Side forward = new Side(from);
+        Side backward = new Side(to);
+        for (int depth = 0; depth < maxDepth; depth++) {
+            Side side = forward.size <= backward.size ? forward : backward;
+            Side other = side == forward ? backward : forward;
+            if (side.size == 0) {
+                break;
+            }
+            long[] next = new long[Math.max(16, side.size * 2)];
+            int nextSize = 0;
+            for (int i = 0; i < side.size; i++) {
+                long current = side.frontier[i];
+                if (System.nanoTime() - deadlineNanos > 0) {
+                    throw new TimeBudgetExceededException("Friendship path search exceeded its time budget");
+                }
+                for (long neighbor : graph.neighbors(current)) {
+                    if (!side.parents.putIfAbsent(neighbor, current)) {
+                        continue;
+                    }
+                    if (other.parents.containsKey(neighbor)) {
+                        return join(forward, backward, neighbor);
+                    }
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize * 2);
+                    }
+                    next[nextSize++] = neighbor;
+                }
+            }
+            side.frontier = next;
+            side.size = nextSize;
+        }
+        return SortedLongs.EMPTY;
+    }
+
+    // The meeting user is known to both sides; parents lead back to each side's start, which is its own parent.
+    private static long[] join(Side forward, Side backward, long meeting) {
+        int forwardLength = chainLength(forward, meeting);
+        int backwardLength = chainLength(backward, meeting);
+        long[] path = new long[forwardLength + backwardLength - 1];
+        long node = meeting;
+        for (int i = forwardLength - 1; i >= 0; i--) {
+            path[i] = node;
+            node = forward.parents.get(node);
+        }
+        node = meeting;
+        for (int i = forwardLength - 1; i < path.length; i++) {
+            path[i] = node;
+            node = backward.parents.get(node);
+        }
+        return path;
+    }
+
+    private static int chainLength(Side side, long node) {
+        int length = 1;
+        while (side.parents.get(node) != node) {
+            node = side.parents.get(node);
+            length++;
+        }
+        return length;
+    }
+
+    @FunctionalInterface
+    interface AdjacencySource {
+        long[] neighbors(long id);
+    }
+
+    private static final class Side {
+        private final LongLongHashMap parents = new LongLongHashMap(64);
+        private long[] frontier;
+        private int size;
+
+        private Side(long start) {
+            parents.putIfAbsent(start, start);
+            frontier = new long[]{start};
+            size = 1;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.stream.IntStream;
+
+/**
+ * Friends of friends ranked by the number of mutual friends. The walk reads at most {@link #MAX_FAN_OUT}
+ * friends of the user and of each friend, picked evenly across the sorted lists, so users with huge friend
+ * lists cost a bounded amount. Large neighborhoods are counted in parallel on the common fork/join pool,
+ * one partial count per slice of friends, merged at the end.
+ */
+final class FriendSuggestions {
+    static final int MAX_FAN_OUT = 1000;
+    static final int PARALLEL_WORK = 50_000;
+
+    private FriendSuggestions() {
+    }
+
+    /**
+     * @return suggested user ids, most mutual friends first and lower id first among equal counts
+     */
+    static long[] suggest(FriendPaths.AdjacencySource graph, long userId, int limit) {
+        long[] friends = graph.neighbors(userId);
+        long[] expanded = sample(friends);
+        long work = 0;
+        for (long friendId : expanded) {
+            work += Math.min(graph.neighbors(friendId).length, MAX_FAN_OUT);
+        }
+        LongIntHashMap counts;
+        if (work < PARALLEL_WORK) {
+            counts = count(graph, expanded, 0, expanded.length);
+        } else {
+            int slices = Math.min(expanded.length, Runtime.getRuntime().availableProcessors() * 4);
+            counts = IntStream.range(0, slices)
+                    .parallel()
+                    .mapToObj(slice -> count(graph, expanded, (int) ((long) expanded.length * slice / slices),
+                            (int) ((long) expanded.length * (slice + 1) / slices)))
+                    .reduce(FriendSuggestions::merge)
+                    .orElseGet(LongIntHashMap::new);
+        }
+        counts.add(userId, -counts.get(userId));
+        for (long friendId : friends) {
+            counts.add(friendId, -counts.get(friendId));
+        }
+        long[] ids = new long[Math.min(limit, counts.size())];
+        counts.top(ids, new int[ids.length]);
+        return ids;
+    }
+
+    private static LongIntHashMap count(FriendPaths.AdjacencySource graph, long[] friends, int from, int to) {
+        LongIntHashMap counts = new LongIntHashMap();
+        for (int i = from; i < to; i++) {
+            for (long candidate : sample(graph.neighbors(friends[i]))) {
+                counts.add(candidate, 1);
+            }
+        }
+        return counts;
+    }
+
+    private static LongIntHashMap merge(LongIntHashMap first, LongIntHashMap second) {
+        if (first.size() < second.size()) {
+            second.addAll(first);
+            return second;
+        }
+        first.addAll(second);
+        return first;
+    }
+
+    private static long[] sample(long[] ids) {
+        if (ids.length <= MAX_FAN_OUT) {
+            return ids;
+        }
+        long[] sample = new long[MAX_FAN_OUT];
+        for (int i = 0; i < MAX_FAN_OUT; i++) {
+            sample[i] = ids[(int) ((long) ids.length * i / MAX_FAN_OUT)];
+        }
+        return sample;
+    }
+}
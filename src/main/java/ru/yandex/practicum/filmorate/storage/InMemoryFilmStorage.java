@@ -1,31 +1,94 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
-    private final Map<Long, Set<Long>> likes = new HashMap<>();
-    private long idCounter = 1L;
+    // Ordered by id so that pages can resume after any id in O(log n).
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final Map<Long, Set<Long>> likes = new ConcurrentHashMap<>();
+    private final FilmPopularityIndex popularity = new FilmPopularityIndex();
+    private final Map<Integer, FilmPopularityIndex> popularityByYear = new ConcurrentHashMap<>();
+    private final FilmRangeIndex releaseDates = new FilmRangeIndex();
+    private final FilmRangeIndex durations = new FilmRangeIndex();
+    private final LockStripes locks = new LockStripes(64);
+    private final AtomicLong idCounter;
+    private final int idStep;
+    // Bumped by every like, so a striped counter keeps writers from contending on one cache line.
+    private final LongAdder version = new LongAdder();
+    private volatile StorageJournal journal = StorageJournal.NONE;
+
+    public InMemoryFilmStorage() {
+        this(1L, 1);
+    }
+
+    // Hands out ids firstId, firstId + idStep, ..., so that partitions of one storage never share an id.
+    InMemoryFilmStorage(long firstId, int idStep) {
+        this.idCounter = new AtomicLong(firstId);
+        this.idStep = idStep;
+    }
+
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public Film addFilm(Film film) {
-        film.setId(idCounter++);
-        films.put(film.getId(), film);
-        likes.put(film.getId(), new HashSet<>());
+        long id = idCounter.getAndAdd(idStep);
+        film.setId(id);
+        long sequence;
+        ReentrantLock lock = locks.forId(id);
+        lock.lock();
+        try {
+            likes.put(id, ConcurrentHashMap.newKeySet());
+            popularity.add(id);
+            rankInYear(id, indexAttributes(film), 0);
+            films.put(id, film);
+            sequence = journal.filmSaved(film);
+            version.increment();
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable(sequence);
         return film;
     }
 
     @Override
     public Film updateFilm(Film film) {
-        if (film.getId() == null || !films.containsKey(film.getId())) {
-            throw new NotFoundException("Film not found");
+        if (film.getId() == null) {
+            throw NotFoundException.FILM;
+        }
+        long sequence;
+        ReentrantLock lock = locks.forId(film.getId());
+        lock.lock();
+        try {
+            if (!films.containsKey(film.getId())) {
+                throw NotFoundException.FILM;
+            }
+            rankInYear(film.getId(), indexAttributes(film), likes.get(film.getId()).size());
+            films.put(film.getId(), film);
+            sequence = journal.filmSaved(film);
+            version.increment();
+        } finally {
+            lock.unlock();
         }
-        films.put(film.getId(), film);
+        journal.awaitDurable(sequence);
         return film;
     }
 
@@ -33,7 +96,7 @@ public class InMemoryFilmStorage implements FilmStorage {
     public Film getFilmById(Long id) {
         Film film = films.get(id);
         if (film == null) {
-            throw new NotFoundException("Film not found");
+            throw NotFoundException.FILM;
         }
         return film;
     }
@@ -43,37 +106,367 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Film film : films.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(film);
+        }
+        return page;
+    }
+
     @Override
     public void removeFilm(Long id) {
-        if (!films.containsKey(id)) {
-            throw new NotFoundException("Film not found");
+        long sequence;
+        ReentrantLock lock = locks.forId(id);
+        lock.lock();
+        try {
+            if (films.remove(id) == null) {
+                throw NotFoundException.FILM;
+            }
+            Set<Long> removed = likes.remove(id);
+            popularity.remove(id, removed.size());
+            durations.remove(id);
+            rankInYear(id, releaseDates.remove(id), removed.size());
+            sequence = journal.filmRemoved(id);
+            version.increment();
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        long sequence = 0;
+        boolean changed;
+        ReentrantLock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            if (!films.containsKey(filmId)) {
+                throw NotFoundException.FILM;
+            }
+            Set<Long> filmLikes = likes.get(filmId);
+            changed = filmLikes.add(userId);
+            if (changed) {
+                rankLikes(filmId, filmLikes.size() - 1, filmLikes.size());
+                sequence = journal.likeAdded(filmId, userId);
+                version.increment();
+            }
+        } finally {
+            lock.unlock();
         }
-        films.remove(id);
-        likes.remove(id);
+        journal.awaitDurable(sequence);
+        return changed;
     }
 
     @Override
-    public void addLike(Long filmId, Long userId) {
-        if (!films.containsKey(filmId)) {
-            throw new NotFoundException("Film not found");
+    public boolean removeLike(Long filmId, Long userId) {
+        long sequence = 0;
+        boolean changed;
+        ReentrantLock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            if (!films.containsKey(filmId)) {
+                throw NotFoundException.FILM;
+            }
+            Set<Long> filmLikes = likes.get(filmId);
+            changed = filmLikes.remove(userId);
+            if (changed) {
+                rankLikes(filmId, filmLikes.size() + 1, filmLikes.size());
+                sequence = journal.likeRemoved(filmId, userId);
+                version.increment();
+            }
+        } finally {
+            lock.unlock();
         }
-        likes.get(filmId).add(userId);
+        journal.awaitDurable(sequence);
+        return changed;
     }
 
     @Override
-    public void removeLike(Long filmId, Long userId) {
-        if (!films.containsKey(filmId)) {
-            throw new NotFoundException("Film not found");
+    public List<LikeOperationResult.Status> applyLikes(List<LikeOperation> operations) {
+        LikeOperationResult.Status[] statuses = new LikeOperationResult.Status[operations.size()];
+        Map<Long, List<Integer>> byFilm = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            byFilm.computeIfAbsent(operations.get(i).getFilmId(), filmId -> new ArrayList<>()).add(i);
+        }
+        long sequence = 0;
+        for (Map.Entry<Long, List<Integer>> group : byFilm.entrySet()) {
+            long filmId = group.getKey();
+            ReentrantLock lock = locks.forId(filmId);
+            lock.lock();
+            try {
+                Set<Long> filmLikes = films.containsKey(filmId) ? likes.get(filmId) : null;
+                int before = filmLikes == null ? 0 : filmLikes.size();
+                boolean changed = false;
+                for (int index : group.getValue()) {
+                    LikeOperation operation = operations.get(index);
+                    if (filmLikes == null) {
+                        statuses[index] = LikeOperationResult.Status.FILM_NOT_FOUND;
+                        continue;
+                    }
+                    long userId = operation.getUserId();
+                    boolean applied;
+                    if (operation.getAction() == LikeOperation.Action.ADD) {
+                        applied = filmLikes.add(userId);
+                        if (applied) {
+                            sequence = journal.likeAdded(filmId, userId);
+                        }
+                    } else {
+                        applied = filmLikes.remove(userId);
+                        if (applied) {
+                            sequence = journal.likeRemoved(filmId, userId);
+                        }
+                    }
+                    statuses[index] = applied ? LikeOperationResult.Status.APPLIED
+                            : LikeOperationResult.Status.UNCHANGED;
+                    changed |= applied;
+                }
+                if (changed) {
+                    // One rank move per film however many of its likes the batch touched.
+                    rankLikes(filmId, before, filmLikes.size());
+                    version.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
         }
-        likes.get(filmId).remove(userId);
+        journal.awaitDurable(sequence);
+        return Arrays.asList(statuses);
     }
 
     @Override
     public List<Film> getPopularFilms(int count) {
-        return films.values().stream()
-                .sorted((f1, f2) -> Integer.compare(
-                        likes.get(f2.getId()).size(), likes.get(f1.getId()).size()))
-                .limit(count)
+        return popularity.top(count).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, int year) {
+        FilmPopularityIndex ranking = popularityByYear.get(year);
+        if (ranking == null) {
+            return List.of();
+        }
+        return ranking.top(count).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
+
+    /**
+     * Walks the films in id order and every requested index range in value order, one step each in turn,
+     * and answers from whichever walk finishes first: a film walk that filled the page, or a range whose ids
+     * are then checked against the whole filter and sorted. The cost thereby follows the cheapest of the
+     * walks, whether the filter is selective or not.
+     */
+    @Override
+    public List<Film> findFilms(FilmFilter filter, long afterId, int limit) {
+        List<Iterator<Long>> ranges = new ArrayList<>(2);
+        if (filter.hasReleaseDateRange()) {
+            ranges.add(releaseDates.range(
+                    filter.getReleasedFrom() == null ? Long.MIN_VALUE : filter.getReleasedFrom().toEpochDay(),
+                    filter.getReleasedTo() == null ? Long.MAX_VALUE : filter.getReleasedTo().toEpochDay()));
+        }
+        if (filter.hasDurationRange()) {
+            ranges.add(durations.range(filter.getMinDuration() == null ? Long.MIN_VALUE : filter.getMinDuration(),
+                    filter.getMaxDuration() == null ? Long.MAX_VALUE : filter.getMaxDuration()));
+        }
+        List<List<Long>> rangeIds = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            rangeIds.add(new ArrayList<>());
+        }
+        Iterator<Film> inIdOrder = films.tailMap(afterId, false).values().iterator();
+        List<Film> page = new ArrayList<>(Math.min(limit, 1024));
+        while (page.size() < limit && inIdOrder.hasNext()) {
+            Film film = inIdOrder.next();
+            if (filter.matches(film)) {
+                page.add(film);
+            }
+            for (int i = 0; i < ranges.size(); i++) {
+                Iterator<Long> range = ranges.get(i);
+                if (!range.hasNext()) {
+                    return matchingFilms(rangeIds.get(i), filter, afterId, limit);
+                }
+                rangeIds.get(i).add(range.next());
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public long getVersion() {
+        return version.sum();
+    }
+
+    @Override
+    public long countFilms() {
+        return likes.size();
+    }
+
+    // Summed when asked rather than counted on every like, which keeps the like path free of shared counters.
+    @Override
+    public long countLikes() {
+        long count = 0;
+        for (Set<Long> filmLikes : likes.values()) {
+            count += filmLikes.size();
+        }
+        return count;
+    }
+
+    @Override
+    public int maxLikesPerFilm() {
+        return popularity.maxLikes();
+    }
+
+    // -1 for a missing film. Lets the rankings of several storages be merged.
+    int likeCount(long filmId) {
+        Set<Long> filmLikes = likes.get(filmId);
+        return filmLikes == null ? -1 : filmLikes.size();
+    }
+
+    @Override
+    public Set<Long> getLikes(Long filmId) {
+        Set<Long> filmLikes = likes.get(filmId);
+        if (filmLikes == null) {
+            throw NotFoundException.FILM;
+        }
+        return Collections.unmodifiableSet(filmLikes);
+    }
+
+    private List<Film> matchingFilms(List<Long> ids, FilmFilter filter, long afterId, int limit) {
+        long[] sorted = ids.stream()
+                .mapToLong(Long::longValue)
+                .filter(id -> id > afterId)
+                .sorted()
+                .toArray();
+        List<Film> page = new ArrayList<>(Math.min(limit, sorted.length));
+        for (int i = 0; i < sorted.length && page.size() < limit; i++) {
+            Film film = films.get(sorted[i]);
+            if (film != null && filter.matches(film)) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    // Indexes the film's attributes and returns the release date it was indexed under before, if any.
+    // Callers hold the film's lock.
+    private Long indexAttributes(Film film) {
+        long id = film.getId();
+        durations.put(id, film.getDuration());
+        return film.getReleaseDate() == null ? releaseDates.remove(id)
+                : releaseDates.put(id, film.getReleaseDate().toEpochDay());
+    }
+
+    // Moves the film between the rankings of its previous and current release years. Callers hold its lock.
+    private void rankInYear(long filmId, Long previousDay, int likeCount) {
+        Integer previousYear = yearOf(previousDay);
+        Integer year = yearOf(releaseDates.valueOf(filmId));
+        if (Objects.equals(previousYear, year)) {
+            return;
+        }
+        // Absent while restoring, as the rankings are only built by finishRestore.
+        FilmPopularityIndex previous = previousYear == null ? null : popularityByYear.get(previousYear);
+        if (previous != null) {
+            previous.remove(filmId, likeCount);
+        }
+        if (year != null) {
+            popularityByYear.computeIfAbsent(year, y -> new FilmPopularityIndex()).add(filmId, likeCount);
+        }
+    }
+
+    // Callers hold the film's lock.
+    private void rankLikes(long filmId, int before, int after) {
+        popularity.update(filmId, before, after);
+        Integer year = yearOf(releaseDates.valueOf(filmId));
+        if (year != null) {
+            popularityByYear.get(year).update(filmId, before, after);
+        }
+    }
+
+    private static Integer yearOf(Long epochDay) {
+        return epochDay == null ? null : LocalDate.ofEpochDay(epochDay).getYear();
+    }
+
+    public long getNextId() {
+        return idCounter.get();
+    }
+
+    public void restoreNextId(long nextId) {
+        idCounter.accumulateAndGet(nextId, Math::max);
+    }
+
+    /**
+     * Inserts or replaces a film keeping its id and likes. Like the other restore methods it is meant for
+     * recovery only: they skip the popularity indexes, which cost far more per like than the like sets, and
+     * {@link #finishRestore()} rebuilds them once every record is applied.
+     */
+    public void restoreFilm(Film film) {
+        long id = film.getId();
+        ReentrantLock lock = locks.forId(id);
+        lock.lock();
+        try {
+            likes.putIfAbsent(id, ConcurrentHashMap.newKeySet());
+            indexAttributes(film);
+            films.put(id, film);
+        } finally {
+            lock.unlock();
+        }
+        restoreNextId(id + 1);
+    }
+
+    public void restoreLikes(long filmId, long[] userIds) {
+        ReentrantLock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            Set<Long> filmLikes = likes.get(filmId);
+            if (filmLikes == null) {
+                return;
+            }
+            if (filmLikes.isEmpty()) {
+                // Sized up front: a snapshot entry of a popular film holds hundreds of thousands of likes.
+                filmLikes = ConcurrentHashMap.newKeySet(userIds.length);
+                likes.put(filmId, filmLikes);
+            }
+            for (long userId : userIds) {
+                filmLikes.add(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void restoreLike(long filmId, long userId, boolean liked) {
+        ReentrantLock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            Set<Long> filmLikes = likes.get(filmId);
+            if (filmLikes == null) {
+                return;
+            }
+            if (liked) {
+                filmLikes.add(userId);
+            } else {
+                filmLikes.remove(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void finishRestore() {
+        version.increment();
+        popularity.clear();
+        popularityByYear.clear();
+        for (Map.Entry<Long, Set<Long>> entry : likes.entrySet()) {
+            popularity.add(entry.getKey(), entry.getValue().size());
+            rankInYear(entry.getKey(), null, entry.getValue().size());
+        }
+    }
 }
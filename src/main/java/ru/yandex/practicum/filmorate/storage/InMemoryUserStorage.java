@@ -1,31 +1,68 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+// Cluster instances replicate likes only and keep their users locally.
 @Component
+@ConditionalOnExpression("'${filmorate.storage:memory}' == 'memory' or '${filmorate.storage:memory}' == 'cluster'")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
-    private final Map<Long, Set<Long>> friends = new HashMap<>();
-    private long idCounter = 1L;
+    // Ordered by id so that pages can resume after any id in O(log n).
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    private final FriendGraph friends = new FriendGraph();
+    private final LockStripes locks = new LockStripes(64);
+    private final AtomicLong idCounter = new AtomicLong(1L);
+    private volatile StorageJournal journal = StorageJournal.NONE;
+
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public User addUser(User user) {
-        user.setId(idCounter++);
-        users.put(user.getId(), user);
-        friends.put(user.getId(), new HashSet<>());
+        long id = idCounter.getAndIncrement();
+        user.setId(id);
+        long sequence;
+        ReentrantLock lock = locks.forId(id);
+        lock.lock();
+        try {
+            friends.addVertex(id);
+            users.put(id, user);
+            sequence = journal.userSaved(user);
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable(sequence);
         return user;
     }
 
     @Override
     public User updateUser(User user) {
-        if (user.getId() == null || !users.containsKey(user.getId())) {
-            throw new NotFoundException("User not found");
+        if (user.getId() == null) {
+            throw NotFoundException.USER;
+        }
+        long sequence;
+        ReentrantLock lock = locks.forId(user.getId());
+        lock.lock();
+        try {
+            if (!users.containsKey(user.getId())) {
+                throw NotFoundException.USER;
+            }
+            users.put(user.getId(), user);
+            sequence = journal.userSaved(user);
+        } finally {
+            lock.unlock();
         }
-        users.put(user.getId(), user);
+        journal.awaitDurable(sequence);
         return user;
     }
 
@@ -33,7 +70,7 @@ public class InMemoryUserStorage implements UserStorage {
     public User getUserById(Long id) {
         User user = users.get(id);
         if (user == null) {
-            throw new NotFoundException("User not found");
+            throw NotFoundException.USER;
         }
         return user;
     }
@@ -43,47 +80,200 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        for (User user : users.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(user);
+        }
+        return page;
+    }
+
     @Override
     public void removeUser(Long id) {
-        if (!users.containsKey(id)) {
-            throw new NotFoundException("User not found");
+        long[] removed;
+        long sequence;
+        ReentrantLock lock = locks.forId(id);
+        lock.lock();
+        try {
+            if (users.remove(id) == null) {
+                throw NotFoundException.USER;
+            }
+            removed = friends.removeVertex(id);
+            sequence = journal.userRemoved(id);
+        } finally {
+            lock.unlock();
+        }
+        for (long friendId : removed) {
+            ReentrantLock friendLock = locks.forId(friendId);
+            friendLock.lock();
+            try {
+                friends.removeEdge(friendId, id);
+            } finally {
+                friendLock.unlock();
+            }
         }
-        users.remove(id);
-        friends.remove(id);
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (users.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
     }
 
     @Override
     public void addFriend(Long userId, Long friendId) {
-        getUserById(userId);
-        getUserById(friendId);
-        friends.get(userId).add(friendId);
-        friends.get(friendId).add(userId);
+        long sequence = 0;
+        locks.lockPair(userId, friendId);
+        try {
+            getUserById(userId);
+            getUserById(friendId);
+            boolean changed = friends.addEdge(userId, friendId);
+            changed |= friends.addEdge(friendId, userId);
+            if (changed) {
+                sequence = journal.friendAdded(userId, friendId);
+            }
+        } finally {
+            locks.unlockPair(userId, friendId);
+        }
+        journal.awaitDurable(sequence);
     }
 
     @Override
     public void removeFriend(Long userId, Long friendId) {
-        getUserById(userId);
-        getUserById(friendId);
-        friends.get(userId).remove(friendId);
-        friends.get(friendId).remove(userId);
+        long sequence = 0;
+        locks.lockPair(userId, friendId);
+        try {
+            getUserById(userId);
+            getUserById(friendId);
+            boolean changed = friends.removeEdge(userId, friendId);
+            changed |= friends.removeEdge(friendId, userId);
+            if (changed) {
+                sequence = journal.friendRemoved(userId, friendId);
+            }
+        } finally {
+            locks.unlockPair(userId, friendId);
+        }
+        journal.awaitDurable(sequence);
     }
 
     @Override
     public List<User> getFriends(Long userId) {
         getUserById(userId);
-        return friends.get(userId).stream()
-                .map(users::get)
-                .toList();
+        return toUsers(friends.neighbors(userId));
     }
 
     @Override
     public List<User> getCommonFriends(Long userId, Long otherId) {
         getUserById(userId);
         getUserById(otherId);
-        Set<Long> common = new HashSet<>(friends.get(userId));
-        common.retainAll(friends.get(otherId));
-        return common.stream()
-                .map(users::get)
-                .toList();
+        return toUsers(friends.commonNeighbors(userId, otherId));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        getUserById(userId);
+        return toUsers(FriendSuggestions.suggest(friends::neighbors, userId, limit));
+    }
+
+    @Override
+    public List<User> getFriendPath(Long userId, Long otherId, int maxDepth, Duration timeBudget) {
+        getUserById(userId);
+        getUserById(otherId);
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        return toUsers(FriendPaths.shortestPath(friends::neighbors, userId, otherId, maxDepth, deadline));
+    }
+
+    @Override
+    public Map<Long, Integer> getCommonFriendCounts(Long userId, List<Long> otherIds) {
+        getUserById(userId);
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        for (Long otherId : otherIds) {
+            if (friends.containsVertex(otherId)) {
+                counts.put(otherId, friends.commonNeighborCount(userId, otherId));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long countUsers() {
+        return friends.vertexCount();
+    }
+
+    @Override
+    public long countFriendships() {
+        return friends.degreeSum() / 2;
+    }
+
+    @Override
+    public int maxFriendsPerUser() {
+        return friends.maxDegree();
+    }
+
+    public long[] getFriendIds(Long userId) {
+        getUserById(userId);
+        return friends.neighbors(userId);
+    }
+
+    public long getNextId() {
+        return idCounter.get();
+    }
+
+    public void restoreNextId(long nextId) {
+        idCounter.accumulateAndGet(nextId, Math::max);
+    }
+
+    /**
+     * Inserts or replaces a user keeping its id and existing friendships, used when recovering from a journal.
+     */
+    public void restoreUser(User user) {
+        long id = user.getId();
+        ReentrantLock lock = locks.forId(id);
+        lock.lock();
+        try {
+            if (!users.containsKey(id)) {
+                friends.addVertex(id);
+            }
+            users.put(id, user);
+        } finally {
+            lock.unlock();
+        }
+        restoreNextId(id + 1);
+    }
+
+    /**
+     * Replaces one side of the user's friendships with sorted ids taken from a snapshot, which holds both sides.
+     */
+    public void restoreFriendIds(long userId, long[] sortedFriendIds) {
+        ReentrantLock lock = locks.forId(userId);
+        lock.lock();
+        try {
+            if (users.containsKey(userId)) {
+                friends.setNeighbors(userId, sortedFriendIds);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<User> toUsers(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
     }
 }
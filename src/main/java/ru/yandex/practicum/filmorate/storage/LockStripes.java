@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+class LockStripes {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    LockStripes(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    ReentrantLock forId(long id) {
+        return locks[index(id)];
+    }
+
+    void lockPair(long first, long second) {
+        int a = index(first);
+        int b = index(second);
+        // Always take stripes in index order so that two pair operations cannot deadlock.
+        locks[Math.min(a, b)].lock();
+        if (a != b) {
+            locks[Math.max(a, b)].lock();
+        }
+    }
+
+    void unlockPair(long first, long second) {
+        int a = index(first);
+        int b = index(second);
+        if (a != b) {
+            locks[Math.max(a, b)].unlock();
+        }
+        locks[Math.min(a, b)].unlock();
+    }
+
+    void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private int index(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from positive long keys to int values without boxing. Entries whose value drops to
+ * zero are removed. Not thread-safe.
+ */
+final class LongIntHashMap {
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashMap() {
+        this(8);
+    }
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key) {
+        int slot = find(key);
+        return keys[slot] == FREE ? 0 : values[slot];
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Adds delta to the key's value (absent keys count as zero) and returns the new value.
+     */
+    int add(long key, int delta) {
+        int slot = find(key);
+        if (keys[slot] == FREE) {
+            if (delta == 0) {
+                return 0;
+            }
+            keys[slot] = key;
+            values[slot] = delta;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return delta;
+        }
+        int value = values[slot] + delta;
+        if (value == 0) {
+            removeAt(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Writes the entries with the highest values into the arrays, highest first and lower key first among equal
+     * values, and returns how many were written: at most the length of the arrays.
+     */
+    int top(long[] topKeys, int[] topValues) {
+        int capacity = Math.min(topKeys.length, size);
+        int filled = 0;
+        // A heap with the worst kept entry on top, sorted once all entries have been seen.
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key == FREE) {
+                continue;
+            }
+            if (filled < capacity) {
+                topKeys[filled] = key;
+                topValues[filled] = values[i];
+                siftUp(topKeys, topValues, filled++);
+            } else if (capacity > 0 && ranksBefore(values[i], key, topValues[0], topKeys[0])) {
+                topKeys[0] = key;
+                topValues[0] = values[i];
+                siftDown(topKeys, topValues, capacity);
+            }
+        }
+        for (int end = capacity - 1; end > 0; end--) {
+            swap(topKeys, topValues, 0, end);
+            siftDown(topKeys, topValues, end);
+        }
+        return capacity;
+    }
+
+    /**
+     * Adds all entries of the other map to this one.
+     */
+    void addAll(LongIntHashMap other) {
+        other.forEach(this::add);
+    }
+
+    static boolean ranksBefore(int value, long key, int otherValue, long otherKey) {
+        return value > otherValue || (value == otherValue && key < otherKey);
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward-shift deletion keeps probe sequences intact without tombstones.
+    private void removeAt(int slot) {
+        int gap = slot;
+        for (int i = (slot + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = 0;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static void siftUp(long[] keys, int[] values, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!ranksBefore(values[parent], keys[parent], values[index], keys[index])) {
+                return;
+            }
+            swap(keys, values, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] keys, int[] values, int size) {
+        int index = 0;
+        while (true) {
+            int worst = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (ranksBefore(values[worst], keys[worst], values[child], keys[child])) {
+                    worst = child;
+                }
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(keys, values, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(long[] keys, int[] values, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Insert-only open-addressing map from positive long keys to long values without boxing. Not thread-safe.
+ */
+final class LongLongHashMap {
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(long key) {
+        return keys[find(key)] != FREE;
+    }
+
+    /**
+     * @return the value of the key, or 0 if it is absent
+     */
+    long get(long key) {
+        return values[find(key)];
+    }
+
+    /**
+     * @return false if the key was already present, in which case its value is kept
+     */
+    boolean putIfAbsent(long key, long value) {
+        int slot = find(key);
+        if (keys[slot] != FREE) {
+            return false;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    private int find(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
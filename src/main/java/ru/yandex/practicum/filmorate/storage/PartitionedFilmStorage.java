@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Films split by id across independent {@link InMemoryFilmStorage} partitions, each with its own locks, like sets
+ * and indexes. Partition {@code p} of {@code n} owns the ids {@code p + 1, p + 1 + n, ...}, so single-film
+ * operations go straight to one partition. Queries over the whole catalog run on every partition in parallel on
+ * the common fork/join pool and merge the partial results: by id for lists, by likes for rankings.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "partitioned")
+public class PartitionedFilmStorage implements FilmStorage {
+    private static final Comparator<Film> BY_ID = Comparator.comparing(Film::getId);
+    // The order of InMemoryFilmStorage rankings: most liked first, then by id.
+    private static final Comparator<Ranked> BY_LIKES = Comparator.comparingInt((Ranked ranked) -> -ranked.likes())
+            .thenComparing(ranked -> ranked.film().getId());
+
+    private final InMemoryFilmStorage[] partitions;
+    // New films go to the partitions in turn, which keeps ids close to insertion order.
+    private final AtomicLong nextPartition = new AtomicLong();
+
+    /**
+     * @param partitions number of partitions, or 0 for one per available processor
+     */
+    @Autowired
+    public PartitionedFilmStorage(@Value("${filmorate.partitions:0}") int partitions) {
+        int count = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        this.partitions = new InMemoryFilmStorage[count];
+        for (int i = 0; i < count; i++) {
+            this.partitions[i] = new InMemoryFilmStorage(i + 1, count);
+        }
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        return partitions[(int) (nextPartition.getAndIncrement() % partitions.length)].addFilm(film);
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        if (film.getId() == null) {
+            throw NotFoundException.FILM;
+        }
+        return partition(film.getId()).updateFilm(film);
+    }
+
+    @Override
+    public Film getFilmById(Long id) {
+        return partition(id).getFilmById(id);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return mergeById(gather(InMemoryFilmStorage::getAllFilms), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return mergeById(gather(partition -> partition.getFilmsPage(afterId, limit)), limit);
+    }
+
+    @Override
+    public void removeFilm(Long id) {
+        partition(id).removeFilm(id);
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return partition(filmId).addLike(filmId, userId);
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        return partition(filmId).removeLike(filmId, userId);
+    }
+
+    @Override
+    public Set<Long> getLikes(Long filmId) {
+        return partition(filmId).getLikes(filmId);
+    }
+
+    // Every film lives in one partition, so splitting the batch keeps the order of each film's operations.
+    @Override
+    public List<LikeOperationResult.Status> applyLikes(List<LikeOperation> operations) {
+        List<List<Integer>> indexes = new ArrayList<>(partitions.length);
+        for (int p = 0; p < partitions.length; p++) {
+            indexes.add(new ArrayList<>());
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            indexes.get(partitionIndex(operations.get(i).getFilmId())).add(i);
+        }
+        LikeOperationResult.Status[] statuses = new LikeOperationResult.Status[operations.size()];
+        IntStream.range(0, partitions.length).parallel().forEach(p -> {
+            List<Integer> partitionIndexes = indexes.get(p);
+            if (partitionIndexes.isEmpty()) {
+                return;
+            }
+            List<LikeOperationResult.Status> applied = partitions[p].applyLikes(
+                    partitionIndexes.stream().map(operations::get).toList());
+            for (int i = 0; i < applied.size(); i++) {
+                statuses[partitionIndexes.get(i)] = applied.get(i);
+            }
+        });
+        return Arrays.asList(statuses);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return mergeByLikes(partition -> partition.getPopularFilms(count), count);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, int year) {
+        return mergeByLikes(partition -> partition.getPopularFilms(count, year), count);
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, long afterId, int limit) {
+        return mergeById(gather(partition -> partition.findFilms(filter, afterId, limit)), limit);
+    }
+
+    // Every partition version only grows, so their sum grows whenever any partition changes.
+    @Override
+    public long getVersion() {
+        long version = 0;
+        for (InMemoryFilmStorage partition : partitions) {
+            version += partition.getVersion();
+        }
+        return version;
+    }
+
+    @Override
+    public long countFilms() {
+        long count = 0;
+        for (InMemoryFilmStorage partition : partitions) {
+            count += partition.countFilms();
+        }
+        return count;
+    }
+
+    @Override
+    public long countLikes() {
+        return gather(InMemoryFilmStorage::countLikes).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public int maxLikesPerFilm() {
+        int max = 0;
+        for (InMemoryFilmStorage partition : partitions) {
+            max = Math.max(max, partition.maxLikesPerFilm());
+        }
+        return max;
+    }
+
+    private int partitionIndex(long filmId) {
+        return (int) Math.floorMod(filmId - 1, (long) partitions.length);
+    }
+
+    private InMemoryFilmStorage partition(long filmId) {
+        return partitions[partitionIndex(filmId)];
+    }
+
+    // Results in partition order.
+    private <T> List<T> gather(Function<InMemoryFilmStorage, T> query) {
+        return Arrays.stream(partitions).parallel().map(query).toList();
+    }
+
+    private static List<Film> mergeById(List<List<Film>> parts, int limit) {
+        List<Film> merged = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(merged::addAll);
+        // The parts are sorted runs, which the sort merges instead of sorting from scratch.
+        merged.sort(BY_ID);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    private List<Film> mergeByLikes(Function<InMemoryFilmStorage, List<Film>> top, int count) {
+        List<List<Ranked>> parts = gather(partition -> top.apply(partition).stream()
+                .map(film -> new Ranked(film, partition.likeCount(film.getId())))
+                .toList());
+        return parts.stream()
+                .flatMap(List::stream)
+                .filter(ranked -> ranked.likes() >= 0)
+                .sorted(BY_LIKES)
+                .limit(Math.max(count, 0))
+                .map(Ranked::film)
+                .toList();
+    }
+
+    private record Ranked(Film film, int likes) {
+    }
+}
@@ -0,0 +1,305 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Users split by id across partitions like {@link PartitionedFilmStorage}. A partition keeps its users, their
+ * friend lists and the lock stripes guarding them. A friendship between two partitions takes one stripe in each,
+ * always in partition order, so pair operations cannot deadlock; graph walks look every user up in its own
+ * partition.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "partitioned")
+public class PartitionedUserStorage implements UserStorage {
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+
+    private final Partition[] partitions;
+    private final AtomicLong nextPartition = new AtomicLong();
+
+    /**
+     * @param partitions number of partitions, or 0 for one per available processor
+     */
+    @Autowired
+    public PartitionedUserStorage(@Value("${filmorate.partitions:0}") int partitions) {
+        int count = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        this.partitions = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            this.partitions[i] = new Partition(i + 1);
+        }
+    }
+
+    @Override
+    public User addUser(User user) {
+        Partition partition = partitions[(int) (nextPartition.getAndIncrement() % partitions.length)];
+        long id = partition.idCounter.getAndAdd(partitions.length);
+        user.setId(id);
+        ReentrantLock lock = partition.locks.forId(id);
+        lock.lock();
+        try {
+            partition.friends.addVertex(id);
+            partition.users.put(id, user);
+        } finally {
+            lock.unlock();
+        }
+        return user;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        if (user.getId() == null) {
+            throw NotFoundException.USER;
+        }
+        Partition partition = partition(user.getId());
+        ReentrantLock lock = partition.locks.forId(user.getId());
+        lock.lock();
+        try {
+            if (!partition.users.containsKey(user.getId())) {
+                throw NotFoundException.USER;
+            }
+            partition.users.put(user.getId(), user);
+        } finally {
+            lock.unlock();
+        }
+        return user;
+    }
+
+    @Override
+    public User getUserById(Long id) {
+        User user = partition(id).users.get(id);
+        if (user == null) {
+            throw NotFoundException.USER;
+        }
+        return user;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return mergeById(gather(partition -> new ArrayList<>(partition.users.values())), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        return mergeById(gather(partition -> {
+            List<User> page = new ArrayList<>(Math.min(limit, 1024));
+            for (User user : partition.users.tailMap(afterId, false).values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(user);
+            }
+            return page;
+        }), limit);
+    }
+
+    @Override
+    public void removeUser(Long id) {
+        Partition partition = partition(id);
+        long[] removed;
+        ReentrantLock lock = partition.locks.forId(id);
+        lock.lock();
+        try {
+            if (partition.users.remove(id) == null) {
+                throw NotFoundException.USER;
+            }
+            removed = partition.friends.removeVertex(id);
+        } finally {
+            lock.unlock();
+        }
+        for (long friendId : removed) {
+            Partition friendPartition = partition(friendId);
+            ReentrantLock friendLock = friendPartition.locks.forId(friendId);
+            friendLock.lock();
+            try {
+                friendPartition.friends.removeEdge(friendId, id);
+            } finally {
+                friendLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (partition(id).users.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        lockPair(userId, friendId);
+        try {
+            getUserById(userId);
+            getUserById(friendId);
+            partition(userId).friends.addEdge(userId, friendId);
+            partition(friendId).friends.addEdge(friendId, userId);
+        } finally {
+            unlockPair(userId, friendId);
+        }
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        lockPair(userId, friendId);
+        try {
+            getUserById(userId);
+            getUserById(friendId);
+            partition(userId).friends.removeEdge(userId, friendId);
+            partition(friendId).friends.removeEdge(friendId, userId);
+        } finally {
+            unlockPair(userId, friendId);
+        }
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        getUserById(userId);
+        return toUsers(neighbors(userId));
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        getUserById(userId);
+        getUserById(otherId);
+        return toUsers(FriendIntersections.intersect(adjacency(userId), adjacency(otherId)));
+    }
+
+    @Override
+    public Map<Long, Integer> getCommonFriendCounts(Long userId, List<Long> otherIds) {
+        getUserById(userId);
+        Adjacency friends = adjacency(userId);
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        for (Long otherId : otherIds) {
+            if (partition(otherId).friends.containsVertex(otherId)) {
+                counts.put(otherId, FriendIntersections.count(friends, adjacency(otherId)));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        getUserById(userId);
+        return toUsers(FriendSuggestions.suggest(this::neighbors, userId, limit));
+    }
+
+    @Override
+    public List<User> getFriendPath(Long userId, Long otherId, int maxDepth, Duration timeBudget) {
+        getUserById(userId);
+        getUserById(otherId);
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        return toUsers(FriendPaths.shortestPath(this::neighbors, userId, otherId, maxDepth, deadline));
+    }
+
+    @Override
+    public long countUsers() {
+        long count = 0;
+        for (Partition partition : partitions) {
+            count += partition.friends.vertexCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long countFriendships() {
+        return gather(partition -> partition.friends.degreeSum()).stream().mapToLong(Long::longValue).sum() / 2;
+    }
+
+    @Override
+    public int maxFriendsPerUser() {
+        return gather(partition -> partition.friends.maxDegree()).stream().mapToInt(Integer::intValue).max()
+                .orElse(0);
+    }
+
+    private Partition partition(long userId) {
+        return partitions[partitionIndex(userId)];
+    }
+
+    private int partitionIndex(long userId) {
+        return (int) Math.floorMod(userId - 1, (long) partitions.length);
+    }
+
+    private Adjacency adjacency(long userId) {
+        return partition(userId).friends.adjacency(userId);
+    }
+
+    private long[] neighbors(long userId) {
+        return adjacency(userId).ids();
+    }
+
+    private void lockPair(long first, long second) {
+        int a = partitionIndex(first);
+        int b = partitionIndex(second);
+        if (a == b) {
+            partitions[a].locks.lockPair(first, second);
+        } else if (a < b) {
+            partitions[a].locks.forId(first).lock();
+            partitions[b].locks.forId(second).lock();
+        } else {
+            partitions[b].locks.forId(second).lock();
+            partitions[a].locks.forId(first).lock();
+        }
+    }
+
+    private void unlockPair(long first, long second) {
+        int a = partitionIndex(first);
+        int b = partitionIndex(second);
+        if (a == b) {
+            partitions[a].locks.unlockPair(first, second);
+        } else {
+            partitions[a].locks.forId(first).unlock();
+            partitions[b].locks.forId(second).unlock();
+        }
+    }
+
+    private List<User> toUsers(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = partition(id).users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    private <T> List<T> gather(Function<Partition, T> query) {
+        return Arrays.stream(partitions).parallel().map(query).toList();
+    }
+
+    private static List<User> mergeById(List<? extends List<User>> parts, int limit) {
+        List<User> merged = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(merged::addAll);
+        // The parts are sorted runs, which the sort merges instead of sorting from scratch.
+        merged.sort(BY_ID);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    private static final class Partition {
+        // Ordered by id so that pages can resume after any id in O(log n).
+        private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+        private final FriendGraph friends = new FriendGraph();
+        private final LockStripes locks = new LockStripes(64);
+        private final AtomicLong idCounter;
+
+        private Partition(long firstId) {
+            idCounter = new AtomicLong(firstId);
+        }
+    }
+}
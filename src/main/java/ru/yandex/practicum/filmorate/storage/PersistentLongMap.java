@@ -0,0 +1,293 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable map from non-negative long keys to non-null values, ordered by key: a 32-way trie on the bits of
+ * the key whose nodes only hold their present children. An update copies the few nodes on the path to its key
+ * and shares all others with the previous version, so every version stays valid and readers never lock.
+ * <p>
+ * Updates given an edit token may change nodes created under the same token in place instead of copying them
+ * again. A batch passes one fresh token to all its updates and publishes the result only afterwards, so nodes
+ * reachable from a published version are never changed.
+ */
+final class PersistentLongMap<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null, 0, 0);
+
+    private final Node root;
+    // Shift of the root's digit: the map holds keys below 2^(shift + BITS).
+    private final int shift;
+    private final int size;
+
+    private PersistentLongMap(Node root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        if (root == null || key < 0 || !fits(key, shift)) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            int bit = 1 << ((int) (key >>> level) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[index(node.bitmap, bit)];
+            if (level == 0) {
+                return (V) slot;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param edit token of the running batch, or null to copy every changed node
+     */
+    PersistentLongMap<V> put(long key, V value, Object edit) {
+        Objects.requireNonNull(value);
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key " + key);
+        }
+        boolean added = get(key) == null;
+        Node newRoot = root;
+        int newShift = shift;
+        if (newRoot == null) {
+            newShift = 0;
+            while (!fits(key, newShift)) {
+                newShift += BITS;
+            }
+        } else {
+            // Every present key is below the old capacity, so the old root becomes child 0 of the new one.
+            while (!fits(key, newShift)) {
+                newRoot = new Node(edit, 1, new Object[]{newRoot});
+                newShift += BITS;
+            }
+        }
+        newRoot = put(newRoot, newShift, key, value, edit);
+        if (newRoot == root && !added) {
+            return this;
+        }
+        return new PersistentLongMap<>(newRoot, newShift, added ? size + 1 : size);
+    }
+
+    PersistentLongMap<V> remove(long key, Object edit) {
+        if (get(key) == null) {
+            return this;
+        }
+        Node newRoot = remove(root, shift, key, edit);
+        return newRoot == null ? empty() : new PersistentLongMap<>(newRoot, shift, size - 1);
+    }
+
+    /**
+     * The smallest key, or -1 if the map is empty.
+     */
+    long firstKey() {
+        if (root == null) {
+            return -1;
+        }
+        long key = 0;
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            key |= (long) Integer.numberOfTrailingZeros(node.bitmap) << level;
+            if (level == 0) {
+                return key;
+            }
+            node = (Node) node.slots[0];
+        }
+    }
+
+    /**
+     * Visits the entries with keys above {@code afterKey} in key order until the visitor returns false.
+     * A negative {@code afterKey} visits all entries.
+     */
+    void visitAfter(long afterKey, Visitor<? super V> visitor) {
+        if (root == null) {
+            return;
+        }
+        if (afterKey < 0) {
+            visit(root, shift, 0, 0, false, visitor);
+        } else if (fits(afterKey, shift)) {
+            visit(root, shift, 0, afterKey, true, visitor);
+        }
+    }
+
+    void forEach(Visitor<? super V> visitor) {
+        visitAfter(-1, visitor);
+    }
+
+    /**
+     * Read-only view of the keys. Iterating copies them first; lookups go to the trie.
+     */
+    Set<Long> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Long key && containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Long> iterator() {
+                long[] keys = new long[size];
+                int[] count = {0};
+                PersistentLongMap.this.forEach((key, value) -> {
+                    keys[count[0]++] = key;
+                    return true;
+                });
+                return Arrays.stream(keys).iterator();
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Visitor<V> {
+        boolean visit(long key, V value);
+    }
+
+    private static boolean fits(long key, int shift) {
+        return shift + BITS >= Long.SIZE - 1 || key >>> (shift + BITS) == 0;
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static Node put(Node node, int level, long key, Object value, Object edit) {
+        int bit = 1 << ((int) (key >>> level) & MASK);
+        if (node == null) {
+            Object child = level == 0 ? value : put(null, level - BITS, key, value, edit);
+            return new Node(edit, bit, new Object[]{child});
+        }
+        int index = index(node.bitmap, bit);
+        if ((node.bitmap & bit) != 0) {
+            Object current = node.slots[index];
+            Object child = level == 0 ? value : put((Node) current, level - BITS, key, value, edit);
+            if (child == current) {
+                return node;
+            }
+            Node target = node.editable(edit);
+            target.slots[index] = child;
+            return target;
+        }
+        Object child = level == 0 ? value : put(null, level - BITS, key, value, edit);
+        Object[] slots = new Object[node.slots.length + 1];
+        System.arraycopy(node.slots, 0, slots, 0, index);
+        slots[index] = child;
+        System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+        if (node.ownedBy(edit)) {
+            node.bitmap |= bit;
+            node.slots = slots;
+            return node;
+        }
+        return new Node(edit, node.bitmap | bit, slots);
+    }
+
+    // Returns null when the node ends up empty.
+    private static Node remove(Node node, int level, long key, Object edit) {
+        int bit = 1 << ((int) (key >>> level) & MASK);
+        int index = index(node.bitmap, bit);
+        if (level > 0) {
+            Node current = (Node) node.slots[index];
+            Node child = remove(current, level - BITS, key, edit);
+            if (child == current) {
+                return node;
+            }
+            if (child != null) {
+                Node target = node.editable(edit);
+                target.slots[index] = child;
+                return target;
+            }
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        Object[] slots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, slots, 0, index);
+        System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+        if (node.ownedBy(edit)) {
+            node.bitmap &= ~bit;
+            node.slots = slots;
+            return node;
+        }
+        return new Node(edit, node.bitmap & ~bit, slots);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> boolean visit(Node node, int level, long prefix, long afterKey, boolean bounded,
+                                     Visitor<? super V> visitor) {
+        int bits = node.bitmap;
+        int from = 0;
+        if (bounded) {
+            from = (int) (afterKey >>> level) & MASK;
+            // Inner levels continue into the child holding afterKey; the last level starts past it.
+            int first = level == 0 ? from + 1 : from;
+            bits &= first > MASK ? 0 : -1 << first;
+        }
+        while (bits != 0) {
+            int digit = Integer.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            Object slot = node.slots[index(node.bitmap, 1 << digit)];
+            long key = prefix | (long) digit << level;
+            if (level == 0) {
+                if (!visitor.visit(key, (V) slot)) {
+                    return false;
+                }
+            } else if (!visit((Node) slot, level - BITS, key, afterKey, bounded && digit == from, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Node {
+        // Batch allowed to change this node in place; null for nodes made outside a batch.
+        private final Object edit;
+        private int bitmap;
+        private Object[] slots;
+
+        private Node(Object edit, int bitmap, Object[] slots) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private boolean ownedBy(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+
+        private Node editable(Object edit) {
+            return ownedBy(edit) ? this : new Node(edit, bitmap, slots.clone());
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.storage.cluster.ClusterMember;
+import ru.yandex.practicum.filmorate.storage.cluster.ClusterTransport;
+import ru.yandex.practicum.filmorate.storage.cluster.LikeDelta;
+import ru.yandex.practicum.filmorate.storage.cluster.LikeDeltaBatch;
+import ru.yandex.practicum.filmorate.storage.cluster.LikeOrSet;
+import ru.yandex.practicum.filmorate.storage.cluster.LikeSetState;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link InMemoryFilmStorage} whose likes are shared by every instance of a cluster. The likes of each film are
+ * kept as a {@link LikeOrSet} as well; a local change produces a delta that is queued and shipped to the other
+ * instances in batches, and deltas received from them are merged into the sets. The local storage follows the
+ * sets, so rankings and counts converge once every instance has received every delta. A like and a concurrent
+ * removal of it on another instance resolve in favour of the like.
+ *
+ * <p>An instance that joins or restarts exchanges full like states with the instances already connected, so it
+ * also learns the likes made before it connected. Films are not replicated: every instance must add the same films
+ * in the same order so that ids match. Likes of a film that is not there yet are applied when it is added.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "cluster")
+public class ReplicatedFilmStorage implements FilmStorage {
+    private final InMemoryFilmStorage local = new InMemoryFilmStorage();
+    private final Map<Long, LikeOrSet> likes = new ConcurrentHashMap<>();
+    // Guards the like sets and keeps each film's deltas queued in the order they were made.
+    private final LockStripes locks = new LockStripes(64);
+    private final Queue<LikeDelta> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ClusterTransport transport;
+    private final String nodeId;
+    // Tags the dots of this run. A restarted instance starts its counters from 1 again, so dots tagged with the
+    // node id alone would look already seen to its peers and its new likes would never reach them.
+    private final String replicaId;
+    private final Duration flushInterval;
+    private final int batchSize;
+    private final Iterable<FilmEventListener> listeners;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicatedFilmStorage(ClusterTransport transport, String nodeId) {
+        this(transport, nodeId, Duration.ZERO, 1000, List.of());
+    }
+
+    /**
+     * @param nodeId        name of this instance in the cluster, a random one if blank
+     * @param flushInterval how often queued deltas are shipped, or zero to ship them only on {@link #flush()}
+     * @param listeners     told about likes received from other instances; looked up lazily, as they read this
+     *                      storage themselves
+     */
+    @Autowired
+    public ReplicatedFilmStorage(ClusterTransport transport,
+                                 @Value("${filmorate.cluster.node-id:}") String nodeId,
+                                 @Value("${filmorate.cluster.flush-interval:50ms}") Duration flushInterval,
+                                 @Value("${filmorate.cluster.batch-size:1000}") int batchSize,
+                                 ObjectProvider<FilmEventListener> listeners) {
+        this(transport, nodeId, flushInterval, batchSize, (Iterable<FilmEventListener>) listeners);
+    }
+
+    private ReplicatedFilmStorage(ClusterTransport transport, String nodeId, Duration flushInterval, int batchSize,
+                                  Iterable<FilmEventListener> listeners) {
+        this.transport = transport;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.replicaId = this.nodeId + "/" + UUID.randomUUID();
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        this.listeners = listeners;
+    }
+
+    @PostConstruct
+    public void start() {
+        transport.connect(nodeId, new Member());
+        if (!flushInterval.isZero()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("cluster-flush").daemon()
+                    .factory());
+            scheduler.scheduleWithFixedDelay(this::scheduledFlush, flushInterval.toMillis(),
+                    flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flush();
+        transport.disconnect(nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Ships every queued delta to the other instances.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (!pending.isEmpty()) {
+                List<LikeDelta> batch = new ArrayList<>(Math.min(batchSize, 1024));
+                LikeDelta delta;
+                while (batch.size() < batchSize && (delta = pending.poll()) != null) {
+                    batch.add(delta);
+                }
+                try {
+                    transport.broadcast(new LikeDeltaBatch(nodeId, batch));
+                } catch (RuntimeException e) {
+                    // Shipped again with the next flush; instances that already got it merge it twice harmlessly.
+                    pending.addAll(batch);
+                    throw e;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int pendingDeltas() {
+        return pending.size();
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        local.addFilm(film);
+        long id = film.getId();
+        List<Long> received = new ArrayList<>();
+        ReentrantLock lock = locks.forId(id);
+        lock.lock();
+        try {
+            LikeOrSet set = likes.get(id);
+            // Likes that arrived before the film did; any that arrived since it was stored are already applied.
+            for (Long userId : set == null ? Set.<Long>of() : set.users()) {
+                if (local.addLike(id, userId)) {
+                    received.add(userId);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (FilmEventListener listener : listeners) {
+            for (Long userId : received) {
+                listener.likeAdded(id, userId);
+            }
+        }
+        return film;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        return local.updateFilm(film);
+    }
+
+    @Override
+    public Film getFilmById(Long id) {
+        return local.getFilmById(id);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return local.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return local.getFilmsPage(afterId, limit);
+    }
+
+    // The like set stays: likes of the film may still arrive from instances that have not removed it yet.
+    @Override
+    public void removeFilm(Long id) {
+        local.removeFilm(id);
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        ReentrantLock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            return like(filmId, userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        ReentrantLock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            return unlike(filmId, userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Set<Long> getLikes(Long filmId) {
+        return local.getLikes(filmId);
+    }
+
+    @Override
+    public List<LikeOperationResult.Status> applyLikes(List<LikeOperation> operations) {
+        List<LikeOperationResult.Status> statuses = new ArrayList<>(operations.size());
+        for (LikeOperation operation : operations) {
+            long filmId = operation.getFilmId();
+            ReentrantLock lock = locks.forId(filmId);
+            lock.lock();
+            try {
+                boolean applied = operation.getAction() == LikeOperation.Action.ADD
+                        ? like(filmId, operation.getUserId())
+                        : unlike(filmId, operation.getUserId());
+                statuses.add(applied ? LikeOperationResult.Status.APPLIED : LikeOperationResult.Status.UNCHANGED);
+            } catch (NotFoundException ignore) {
+                statuses.add(LikeOperationResult.Status.FILM_NOT_FOUND);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return statuses;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return local.getPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, int year) {
+        return local.getPopularFilms(count, year);
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, long afterId, int limit) {
+        return local.findFilms(filter, afterId, limit);
+    }
+
+    @Override
+    public long getVersion() {
+        return local.getVersion();
+    }
+
+    @Override
+    public long countFilms() {
+        return local.countFilms();
+    }
+
+    @Override
+    public long countLikes() {
+        return local.countLikes();
+    }
+
+    @Override
+    public int maxLikesPerFilm() {
+        return local.maxLikesPerFilm();
+    }
+
+    /**
+     * Merges a batch from another instance. Duplicates and batches arriving out of order are harmless.
+     */
+    void receive(LikeDeltaBatch batch) {
+        List<ReceivedLike> added = new ArrayList<>();
+        List<ReceivedLike> removed = new ArrayList<>();
+        for (LikeDelta delta : batch.deltas()) {
+            ReentrantLock lock = locks.forId(delta.filmId());
+            lock.lock();
+            try {
+                LikeOrSet set = likes.computeIfAbsent(delta.filmId(), id -> new LikeOrSet());
+                boolean before = set.contains(delta.userId());
+                set.merge(delta);
+                boolean after = set.contains(delta.userId());
+                if (before != after && followLocally(delta.filmId(), delta.userId(), after)) {
+                    (after ? added : removed).add(new ReceivedLike(delta.filmId(), delta.userId()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        notifyListeners(added, removed);
+    }
+
+    /**
+     * Merges the full state of another instance, as received when one of the two joins.
+     */
+    void receive(List<LikeSetState> state) {
+        List<ReceivedLike> added = new ArrayList<>();
+        List<ReceivedLike> removed = new ArrayList<>();
+        for (LikeSetState filmState : state) {
+            long filmId = filmState.filmId();
+            ReentrantLock lock = locks.forId(filmId);
+            lock.lock();
+            try {
+                LikeOrSet set = likes.computeIfAbsent(filmId, id -> new LikeOrSet());
+                Set<Long> before = new HashSet<>(set.users());
+                set.merge(filmState);
+                for (Long userId : set.users()) {
+                    if (!before.remove(userId) && followLocally(filmId, userId, true)) {
+                        added.add(new ReceivedLike(filmId, userId));
+                    }
+                }
+                for (Long userId : before) {
+                    if (followLocally(filmId, userId, false)) {
+                        removed.add(new ReceivedLike(filmId, userId));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        notifyListeners(added, removed);
+    }
+
+    List<LikeSetState> state() {
+        List<LikeSetState> state = new ArrayList<>(likes.size());
+        likes.forEach((filmId, set) -> {
+            ReentrantLock lock = locks.forId(filmId);
+            lock.lock();
+            try {
+                state.add(set.state(filmId));
+            } finally {
+                lock.unlock();
+            }
+        });
+        return state;
+    }
+
+    private void notifyListeners(List<ReceivedLike> added, List<ReceivedLike> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        for (FilmEventListener listener : listeners) {
+            for (ReceivedLike like : added) {
+                listener.likeAdded(like.filmId(), like.userId());
+            }
+            for (ReceivedLike like : removed) {
+                listener.likeRemoved(like.filmId(), like.userId());
+            }
+        }
+    }
+
+    // Callers hold the film's lock.
+    private boolean like(long filmId, long userId) {
+        local.getFilmById(filmId);
+        LikeOrSet set = likes.computeIfAbsent(filmId, id -> new LikeOrSet());
+        if (set.contains(userId)) {
+            return false;
+        }
+        pending.add(set.add(filmId, userId, replicaId));
+        local.addLike(filmId, userId);
+        return true;
+    }
+
+    // Callers hold the film's lock.
+    private boolean unlike(long filmId, long userId) {
+        local.getFilmById(filmId);
+        LikeOrSet set = likes.get(filmId);
+        LikeDelta delta = set == null ? null : set.remove(filmId, userId);
+        if (delta == null) {
+            return false;
+        }
+        pending.add(delta);
+        local.removeLike(filmId, userId);
+        return true;
+    }
+
+    // Callers hold the film's lock. False if the film is not here (yet).
+    private boolean followLocally(long filmId, long userId, boolean liked) {
+        try {
+            return liked ? local.addLike(filmId, userId) : local.removeLike(filmId, userId);
+        } catch (NotFoundException ignore) {
+            // addFilm picks the likes up.
+            return false;
+        }
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Shipping like deltas failed", e);
+        }
+    }
+
+    private record ReceivedLike(long filmId, long userId) {
+    }
+
+    private final class Member implements ClusterMember {
+        @Override
+        public void receive(LikeDeltaBatch batch) {
+            ReplicatedFilmStorage.this.receive(batch);
+        }
+
+        @Override
+        public List<LikeSetState> state() {
+            return ReplicatedFilmStorage.this.state();
+        }
+
+        @Override
+        public void receive(List<LikeSetState> state) {
+            ReplicatedFilmStorage.this.receive(state);
+        }
+    }
+}
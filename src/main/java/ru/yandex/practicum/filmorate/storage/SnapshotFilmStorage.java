@@ -0,0 +1,394 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Films, likes and rankings kept in one immutable {@link State}: a read takes the current state with a single
+ * volatile load and never locks, however many writers there are, and sees films, likes and rankings of the same
+ * version. Writers go through a {@link SnapshotWriter}, which batches concurrent mutations into one new state.
+ * Lists derived from a state are built once and shared by every later read of that state.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "snapshot")
+public class SnapshotFilmStorage implements FilmStorage {
+    private static final Object LIKED = Boolean.TRUE;
+    // Ranking keys hold the inverted like count above the film id, so key order is most liked first, then by id.
+    private static final int ID_BITS = 40;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final long MAX_RANKED_LIKES = (1L << (Long.SIZE - 1 - ID_BITS)) - 1;
+    // Distinct popular lists kept per state.
+    private static final int MAX_CACHED_LISTS = 64;
+
+    private final SnapshotWriter<State, Draft> writer = new SnapshotWriter<>(State.EMPTY, Draft::new, Draft::publish);
+
+    @Override
+    public Film addFilm(Film film) {
+        return writer.write(draft -> {
+            long id = draft.nextId++;
+            film.setId(id);
+            draft.films = draft.films.put(id, film, draft.edit);
+            draft.likes = draft.likes.put(id, PersistentLongMap.empty(), draft.edit);
+            draft.rank(id, yearOf(film), 0);
+            draft.version++;
+            return film;
+        });
+    }
+
+    // One version for the whole batch instead of one per film.
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        return writer.write(draft -> {
+            for (Film film : films) {
+                long id = draft.nextId++;
+                film.setId(id);
+                draft.films = draft.films.put(id, film, draft.edit);
+                draft.likes = draft.likes.put(id, PersistentLongMap.empty(), draft.edit);
+                draft.rank(id, yearOf(film), 0);
+            }
+            draft.version++;
+            return films;
+        });
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        if (film.getId() == null) {
+            throw NotFoundException.FILM;
+        }
+        long id = film.getId();
+        return writer.write(draft -> {
+            Film previous = draft.films.get(id);
+            if (previous == null) {
+                throw NotFoundException.FILM;
+            }
+            Integer previousYear = yearOf(previous);
+            Integer year = yearOf(film);
+            if (!Objects.equals(previousYear, year)) {
+                int likeCount = draft.likes.get(id).size();
+                draft.unrankInYear(id, previousYear, likeCount);
+                draft.rankInYear(id, year, likeCount);
+            }
+            draft.films = draft.films.put(id, film, draft.edit);
+            draft.version++;
+            return film;
+        });
+    }
+
+    @Override
+    public Film getFilmById(Long id) {
+        Film film = writer.current().films.get(id);
+        if (film == null) {
+            throw NotFoundException.FILM;
+        }
+        return film;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        State state = writer.current();
+        List<Film> all = state.allFilms;
+        if (all == null) {
+            List<Film> films = new ArrayList<>(state.films.size());
+            state.films.forEach((id, film) -> films.add(film));
+            all = Collections.unmodifiableList(films);
+            state.allFilms = all;
+        }
+        return all;
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, 1024));
+        if (limit > 0) {
+            writer.current().films.visitAfter(afterId, (id, film) -> {
+                page.add(film);
+                return page.size() < limit;
+            });
+        }
+        return page;
+    }
+
+    @Override
+    public void removeFilm(Long id) {
+        writer.write(draft -> {
+            Film removed = draft.films.get(id);
+            if (removed == null) {
+                throw NotFoundException.FILM;
+            }
+            int likeCount = draft.likes.get(id).size();
+            draft.unrank(id, yearOf(removed), likeCount);
+            draft.films = draft.films.remove(id, draft.edit);
+            draft.likes = draft.likes.remove(id, draft.edit);
+            draft.likeCount -= likeCount;
+            draft.version++;
+            return null;
+        });
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return writer.write(draft -> draft.like(filmId, userId, true));
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        return writer.write(draft -> draft.like(filmId, userId, false));
+    }
+
+    @Override
+    public List<LikeOperationResult.Status> applyLikes(List<LikeOperation> operations) {
+        return writer.write(draft -> {
+            LikeOperationResult.Status[] statuses = new LikeOperationResult.Status[operations.size()];
+            Map<Long, Integer> likesBefore = new HashMap<>();
+            for (int i = 0; i < operations.size(); i++) {
+                LikeOperation operation = operations.get(i);
+                long filmId = operation.getFilmId();
+                PersistentLongMap<Object> filmLikes = draft.likes.get(filmId);
+                if (filmLikes == null) {
+                    statuses[i] = LikeOperationResult.Status.FILM_NOT_FOUND;
+                    continue;
+                }
+                likesBefore.putIfAbsent(filmId, filmLikes.size());
+                PersistentLongMap<Object> updated = operation.getAction() == LikeOperation.Action.ADD
+                        ? filmLikes.put(operation.getUserId(), LIKED, draft.edit)
+                        : filmLikes.remove(operation.getUserId(), draft.edit);
+                boolean applied = updated.size() != filmLikes.size();
+                if (applied) {
+                    draft.likes = draft.likes.put(filmId, updated, draft.edit);
+                }
+                statuses[i] = applied ? LikeOperationResult.Status.APPLIED : LikeOperationResult.Status.UNCHANGED;
+            }
+            for (Map.Entry<Long, Integer> film : likesBefore.entrySet()) {
+                long filmId = film.getKey();
+                int after = draft.likes.get(filmId).size();
+                if (after != film.getValue()) {
+                    // One rank move per film however many of its likes the batch touched.
+                    draft.rankLikes(filmId, film.getValue(), after);
+                    draft.version++;
+                }
+            }
+            return Arrays.asList(statuses);
+        });
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        State state = writer.current();
+        return state.popular(popularKey(Integer.MIN_VALUE, count), () -> top(state, state.ranking, count));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, int year) {
+        State state = writer.current();
+        PersistentLongMap<Object> ranking = state.rankingByYear.get(year);
+        if (ranking == null) {
+            return List.of();
+        }
+        return state.popular(popularKey(year, count), () -> top(state, ranking, count));
+    }
+
+    /**
+     * Scans the films in id order. Unlike the default storage this mode keeps no range indexes, so a selective
+     * filter costs a walk over the films after {@code afterId}.
+     */
+    @Override
+    public List<Film> findFilms(FilmFilter filter, long afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, 1024));
+        if (limit > 0) {
+            writer.current().films.visitAfter(afterId, (id, film) -> {
+                if (filter.matches(film)) {
+                    page.add(film);
+                }
+                return page.size() < limit;
+            });
+        }
+        return page;
+    }
+
+    @Override
+    public long getVersion() {
+        return writer.current().version;
+    }
+
+    @Override
+    public long countFilms() {
+        return writer.current().films.size();
+    }
+
+    @Override
+    public long countLikes() {
+        return writer.current().likeCount;
+    }
+
+    @Override
+    public int maxLikesPerFilm() {
+        long first = writer.current().ranking.firstKey();
+        return first < 0 ? 0 : (int) (MAX_RANKED_LIKES - (first >>> ID_BITS));
+    }
+
+    @Override
+    public Set<Long> getLikes(Long filmId) {
+        PersistentLongMap<Object> filmLikes = writer.current().likes.get(filmId);
+        if (filmLikes == null) {
+            throw NotFoundException.FILM;
+        }
+        return filmLikes.keySet();
+    }
+
+    private static List<Film> top(State state, PersistentLongMap<Object> ranking, int count) {
+        List<Film> top = new ArrayList<>(Math.min(count, ranking.size()));
+        if (count > 0) {
+            ranking.forEach((key, liked) -> {
+                top.add(state.films.get(key & ID_MASK));
+                return top.size() < count;
+            });
+        }
+        return Collections.unmodifiableList(top);
+    }
+
+    private static long rankKey(long filmId, int likeCount) {
+        if (filmId > ID_MASK) {
+            throw new IllegalStateException("Film id " + filmId + " exceeds the ranking key");
+        }
+        return (MAX_RANKED_LIKES - Math.min(likeCount, MAX_RANKED_LIKES)) << ID_BITS | filmId;
+    }
+
+    private static long popularKey(int year, int count) {
+        return (long) year << Integer.SIZE | count & 0xFFFFFFFFL;
+    }
+
+    private static Integer yearOf(Film film) {
+        return film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+    }
+
+    private static final class State {
+        private static final State EMPTY = new State(0, 1, PersistentLongMap.empty(), PersistentLongMap.empty(),
+                PersistentLongMap.empty(), PersistentLongMap.empty(), 0);
+
+        private final long version;
+        private final long nextId;
+        private final PersistentLongMap<Film> films;
+        // Per film the ids of the users who liked it.
+        private final PersistentLongMap<PersistentLongMap<Object>> likes;
+        private final PersistentLongMap<Object> ranking;
+        private final PersistentLongMap<PersistentLongMap<Object>> rankingByYear;
+        private final long likeCount;
+        // Built by readers on first use; racing readers build equal lists and either may win.
+        private volatile List<Film> allFilms;
+        private final Map<Long, List<Film>> popular = new ConcurrentHashMap<>();
+
+        private State(long version, long nextId, PersistentLongMap<Film> films,
+                      PersistentLongMap<PersistentLongMap<Object>> likes, PersistentLongMap<Object> ranking,
+                      PersistentLongMap<PersistentLongMap<Object>> rankingByYear, long likeCount) {
+            this.version = version;
+            this.nextId = nextId;
+            this.films = films;
+            this.likes = likes;
+            this.ranking = ranking;
+            this.rankingByYear = rankingByYear;
+            this.likeCount = likeCount;
+        }
+
+        private List<Film> popular(long key, Supplier<List<Film>> compute) {
+            List<Film> cached = popular.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            List<Film> computed = compute.get();
+            if (popular.size() < MAX_CACHED_LISTS) {
+                popular.putIfAbsent(key, computed);
+            }
+            return computed;
+        }
+    }
+
+    private static final class Draft {
+        // Lets the batch update nodes it created itself in place; the published state never changes afterwards.
+        private final Object edit = new Object();
+        private long version;
+        private long nextId;
+        private PersistentLongMap<Film> films;
+        private PersistentLongMap<PersistentLongMap<Object>> likes;
+        private PersistentLongMap<Object> ranking;
+        private PersistentLongMap<PersistentLongMap<Object>> rankingByYear;
+        private long likeCount;
+
+        private Draft(State state) {
+            version = state.version;
+            nextId = state.nextId;
+            films = state.films;
+            likes = state.likes;
+            ranking = state.ranking;
+            rankingByYear = state.rankingByYear;
+            likeCount = state.likeCount;
+        }
+
+        private State publish() {
+            return new State(version, nextId, films, likes, ranking, rankingByYear, likeCount);
+        }
+
+        private boolean like(long filmId, long userId, boolean liked) {
+            PersistentLongMap<Object> filmLikes = likes.get(filmId);
+            if (filmLikes == null) {
+                throw NotFoundException.FILM;
+            }
+            PersistentLongMap<Object> updated = liked ? filmLikes.put(userId, LIKED, edit)
+                    : filmLikes.remove(userId, edit);
+            if (updated.size() == filmLikes.size()) {
+                return false;
+            }
+            likes = likes.put(filmId, updated, edit);
+            rankLikes(filmId, filmLikes.size(), updated.size());
+            version++;
+            return true;
+        }
+
+        private void rank(long filmId, Integer year, int likeCount) {
+            ranking = ranking.put(rankKey(filmId, likeCount), LIKED, edit);
+            rankInYear(filmId, year, likeCount);
+        }
+
+        private void unrank(long filmId, Integer year, int likeCount) {
+            ranking = ranking.remove(rankKey(filmId, likeCount), edit);
+            unrankInYear(filmId, year, likeCount);
+        }
+
+        private void rankLikes(long filmId, int before, int after) {
+            Integer year = yearOf(films.get(filmId));
+            unrank(filmId, year, before);
+            rank(filmId, year, after);
+            likeCount += after - before;
+        }
+
+        private void rankInYear(long filmId, Integer year, int likeCount) {
+            if (year == null) {
+                return;
+            }
+            PersistentLongMap<Object> yearRanking = rankingByYear.get(year);
+            if (yearRanking == null) {
+                yearRanking = PersistentLongMap.empty();
+            }
+            rankingByYear = rankingByYear.put(year, yearRanking.put(rankKey(filmId, likeCount), LIKED, edit), edit);
+        }
+
+        private void unrankInYear(long filmId, Integer year, int likeCount) {
+            PersistentLongMap<Object> yearRanking = year == null ? null : rankingByYear.get(year);
+            if (yearRanking == null) {
+                return;
+            }
+            yearRanking = yearRanking.remove(rankKey(filmId, likeCount), edit);
+            rankingByYear = yearRanking.isEmpty() ? rankingByYear.remove(year, edit)
+                    : rankingByYear.put(year, yearRanking, edit);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Users and friendships kept in one immutable {@link State}, read without locks and written through a
+ * {@link SnapshotWriter} like {@link SnapshotFilmStorage}. Graph walks such as suggestions and friend paths run
+ * entirely on the state they started with, so concurrent changes never show up half-applied in their results.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "snapshot")
+public class SnapshotUserStorage implements UserStorage {
+    // Friend lists kept per state; a write starts over with an empty cache.
+    private static final int MAX_CACHED_FRIEND_LISTS = 4096;
+
+    private final SnapshotWriter<State, Draft> writer = new SnapshotWriter<>(State.EMPTY, Draft::new, Draft::publish);
+
+    @Override
+    public User addUser(User user) {
+        return writer.write(draft -> {
+            long id = draft.nextId++;
+            user.setId(id);
+            draft.users = draft.users.put(id, user, draft.edit);
+            draft.friends = draft.friends.put(id, Adjacency.EMPTY, draft.edit);
+            return user;
+        });
+    }
+
+    // One version for the whole batch instead of one per user.
+    @Override
+    public List<User> addUsers(List<User> users) {
+        return writer.write(draft -> {
+            for (User user : users) {
+                long id = draft.nextId++;
+                user.setId(id);
+                draft.users = draft.users.put(id, user, draft.edit);
+                draft.friends = draft.friends.put(id, Adjacency.EMPTY, draft.edit);
+            }
+            return users;
+        });
+    }
+
+    @Override
+    public User updateUser(User user) {
+        if (user.getId() == null) {
+            throw NotFoundException.USER;
+        }
+        long id = user.getId();
+        return writer.write(draft -> {
+            if (!draft.users.containsKey(id)) {
+                throw NotFoundException.USER;
+            }
+            draft.users = draft.users.put(id, user, draft.edit);
+            return user;
+        });
+    }
+
+    @Override
+    public User getUserById(Long id) {
+        return user(writer.current(), id);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        State state = writer.current();
+        List<User> all = state.allUsers;
+        if (all == null) {
+            List<User> users = new ArrayList<>(state.users.size());
+            state.users.forEach((id, user) -> users.add(user));
+            all = Collections.unmodifiableList(users);
+            state.allUsers = all;
+        }
+        return all;
+    }
+
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        if (limit > 0) {
+            writer.current().users.visitAfter(afterId, (id, user) -> {
+                page.add(user);
+                return page.size() < limit;
+            });
+        }
+        return page;
+    }
+
+    @Override
+    public void removeUser(Long id) {
+        writer.write(draft -> {
+            Adjacency removed = draft.friends.get(id);
+            if (removed == null) {
+                throw NotFoundException.USER;
+            }
+            for (long friendId : removed.ids()) {
+                draft.removeEdge(friendId, id);
+            }
+            draft.degreeSum -= removed.size();
+            draft.users = draft.users.remove(id, draft.edit);
+            draft.friends = draft.friends.remove(id, draft.edit);
+            return null;
+        });
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        State state = writer.current();
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (state.users.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        writer.write(draft -> {
+            draft.checkUsers(userId, friendId);
+            draft.addEdge(userId, friendId);
+            draft.addEdge(friendId, userId);
+            return null;
+        });
+    }
+
+    @Override
+    public void addFriendships(List<Friendship> friendships) {
+        writer.write(draft -> {
+            for (Friendship friendship : friendships) {
+                draft.checkUsers(friendship.getUserId(), friendship.getFriendId());
+            }
+            for (Friendship friendship : friendships) {
+                draft.addEdge(friendship.getUserId(), friendship.getFriendId());
+                draft.addEdge(friendship.getFriendId(), friendship.getUserId());
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        writer.write(draft -> {
+            draft.checkUsers(userId, friendId);
+            draft.removeEdge(userId, friendId);
+            draft.removeEdge(friendId, userId);
+            return null;
+        });
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        State state = writer.current();
+        user(state, userId);
+        List<User> cached = state.friendLists.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        List<User> friends = Collections.unmodifiableList(toUsers(state, neighbors(state, userId)));
+        if (state.friendLists.size() < MAX_CACHED_FRIEND_LISTS) {
+            state.friendLists.putIfAbsent(userId, friends);
+        }
+        return friends;
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        State state = writer.current();
+        user(state, userId);
+        user(state, otherId);
+        return toUsers(state, FriendIntersections.intersect(adjacency(state, userId), adjacency(state, otherId)));
+    }
+
+    @Override
+    public Map<Long, Integer> getCommonFriendCounts(Long userId, List<Long> otherIds) {
+        State state = writer.current();
+        user(state, userId);
+        Adjacency friends = adjacency(state, userId);
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        for (Long otherId : otherIds) {
+            Adjacency other = state.friends.get(otherId);
+            if (other != null) {
+                counts.put(otherId, FriendIntersections.count(friends, other));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        State state = writer.current();
+        user(state, userId);
+        return toUsers(state, FriendSuggestions.suggest(id -> neighbors(state, id), userId, limit));
+    }
+
+    @Override
+    public List<User> getFriendPath(Long userId, Long otherId, int maxDepth, Duration timeBudget) {
+        State state = writer.current();
+        user(state, userId);
+        user(state, otherId);
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        return toUsers(state, FriendPaths.shortestPath(id -> neighbors(state, id), userId, otherId, maxDepth,
+                deadline));
+    }
+
+    @Override
+    public long countUsers() {
+        return writer.current().users.size();
+    }
+
+    @Override
+    public long countFriendships() {
+        return writer.current().degreeSum / 2;
+    }
+
+    @Override
+    public int maxFriendsPerUser() {
+        int[] max = {0};
+        writer.current().friends.forEach((id, friends) -> {
+            max[0] = Math.max(max[0], friends.size());
+            return true;
+        });
+        return max[0];
+    }
+
+    private static User user(State state, Long id) {
+        User user = state.users.get(id);
+        if (user == null) {
+            throw NotFoundException.USER;
+        }
+        return user;
+    }
+
+    private static Adjacency adjacency(State state, long id) {
+        Adjacency result = state.friends.get(id);
+        return result == null ? Adjacency.EMPTY : result;
+    }
+
+    private static long[] neighbors(State state, long id) {
+        return adjacency(state, id).ids();
+    }
+
+    private static List<User> toUsers(State state, long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = state.users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    private static final class State {
+        private static final State EMPTY = new State(1, PersistentLongMap.empty(), PersistentLongMap.empty(), 0);
+
+        private final long nextId;
+        private final PersistentLongMap<User> users;
+        // Adjacencies are immutable, so consecutive states share every one the batch did not touch.
+        private final PersistentLongMap<Adjacency> friends;
+        // Both ends of a friendship list it, so this is twice the number of friendships.
+        private final long degreeSum;
+        // Built by the first reader of the state; racing readers build equal lists and either may win.
+        private volatile List<User> allUsers;
+        private final Map<Long, List<User>> friendLists = new ConcurrentHashMap<>();
+
+        private State(long nextId, PersistentLongMap<User> users, PersistentLongMap<Adjacency> friends,
+                      long degreeSum) {
+            this.nextId = nextId;
+            this.users = users;
+            this.friends = friends;
+            this.degreeSum = degreeSum;
+        }
+    }
+
+    private static final class Draft {
+        private final Object edit = new Object();
+        private long nextId;
+        private PersistentLongMap<User> users;
+        private PersistentLongMap<Adjacency> friends;
+        private long degreeSum;
+
+        private Draft(State state) {
+            nextId = state.nextId;
+            users = state.users;
+            friends = state.friends;
+            degreeSum = state.degreeSum;
+        }
+
+        private State publish() {
+            return new State(nextId, users, friends, degreeSum);
+        }
+
+        private void checkUsers(long userId, long friendId) {
+            if (!users.containsKey(userId) || !users.containsKey(friendId)) {
+                throw NotFoundException.USER;
+            }
+        }
+
+        private void addEdge(long from, long to) {
+            long[] current = friends.get(from).ids();
+            long[] updated = SortedLongs.insert(current, to);
+            if (updated != current) {
+                friends = friends.put(from, new Adjacency(updated), edit);
+                degreeSum++;
+            }
+        }
+
+        private void removeEdge(long from, long to) {
+            Adjacency current = friends.get(from);
+            if (current == null) {
+                return;
+            }
+            long[] updated = SortedLongs.remove(current.ids(), to);
+            if (updated != current.ids()) {
+                friends = friends.put(from, updated.length == 0 ? Adjacency.EMPTY : new Adjacency(updated), edit);
+                degreeSum--;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Holds the current immutable snapshot of a storage and serializes its writers by flat combining: a writer
+ * queues its mutation and whoever holds the lock applies every queued mutation to one draft, then publishes the
+ * draft as the next snapshot with a single volatile write. Under contention many small mutations thus share one
+ * copy of the touched paths and one publication, and readers only ever read {@link #current()}.
+ *
+ * @param <S> immutable snapshot
+ * @param <D> mutable draft opened from a snapshot
+ */
+final class SnapshotWriter<S, D> {
+    private static final int MAX_BATCH = 1024;
+
+    private final Function<S, D> open;
+    private final Function<D, S> publish;
+    private final Queue<Request<D, ?>> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile S current;
+
+    SnapshotWriter(S initial, Function<S, D> open, Function<D, S> publish) {
+        this.current = initial;
+        this.open = open;
+        this.publish = publish;
+    }
+
+    S current() {
+        return current;
+    }
+
+    /**
+     * Applies the mutation to a draft of the latest snapshot and returns once that draft is published.
+     * A mutation must check its arguments before changing the draft: when it throws, the exception is rethrown
+     * here and the mutations batched with it are published regardless.
+     */
+    <R> R write(Mutation<D, R> mutation) {
+        Request<D, R> request = new Request<>(mutation);
+        pending.add(request);
+        lock.lock();
+        try {
+            while (!request.done) {
+                combine();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (request.failure != null) {
+            throw request.failure;
+        }
+        return request.result;
+    }
+
+    // Callers hold the lock.
+    private void combine() {
+        D draft = open.apply(current);
+        List<Request<D, ?>> batch = new ArrayList<>();
+        Request<D, ?> request;
+        while (batch.size() < MAX_BATCH && (request = pending.poll()) != null) {
+            request.run(draft);
+            batch.add(request);
+        }
+        if (!batch.isEmpty()) {
+            current = publish.apply(draft);
+        }
+        for (Request<D, ?> done : batch) {
+            done.done = true;
+        }
+    }
+
+    @FunctionalInterface
+    interface Mutation<D, R> {
+        R apply(D draft);
+    }
+
+    // Fields are only accessed under the lock, apart from the owner reading them after unlocking.
+    private static final class Request<D, R> {
+        private final Mutation<D, R> mutation;
+        private R result;
+        private RuntimeException failure;
+        private boolean done;
+
+        private Request(Mutation<D, R> mutation) {
+            this.mutation = mutation;
+        }
+
+        private void run(D draft) {
+            try {
+                result = mutation.apply(draft);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+}
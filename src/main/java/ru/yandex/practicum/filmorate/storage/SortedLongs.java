@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+final class SortedLongs {
+    static final long[] EMPTY = new long[0];
+
+    private SortedLongs() {
+    }
+
+    static long[] insert(long[] values, long value) {
+        int pos = Arrays.binarySearch(values, value);
+        if (pos >= 0) {
+            return values;
+        }
+        int at = -pos - 1;
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        return result;
+    }
+
+    static long[] remove(long[] values, long value) {
+        int at = Arrays.binarySearch(values, value);
+        if (at < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, at);
+        System.arraycopy(values, at + 1, result, at, values.length - at - 1);
+        return result;
+    }
+
+    static boolean contains(long[] values, long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+}
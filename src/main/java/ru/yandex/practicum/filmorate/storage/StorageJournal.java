@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Receives every mutation of the in-memory storages. Storages call the record methods while still
+ * holding the entity lock, so records of one entity are journaled in the order they were applied, and
+ * call {@link #awaitDurable(long)} with the returned sequence number after releasing it.
+ */
+public interface StorageJournal {
+    StorageJournal NONE = new StorageJournal() {
+    };
+
+    default long filmSaved(Film film) {
+        return 0;
+    }
+
+    default long filmRemoved(long id) {
+        return 0;
+    }
+
+    default long likeAdded(long filmId, long userId) {
+        return 0;
+    }
+
+    default long likeRemoved(long filmId, long userId) {
+        return 0;
+    }
+
+    default long userSaved(User user) {
+        return 0;
+    }
+
+    default long userRemoved(long id) {
+        return 0;
+    }
+
+    default long friendAdded(long userId, long friendId) {
+        return 0;
+    }
+
+    default long friendRemoved(long userId, long friendId) {
+        return 0;
+    }
+
+    default void awaitDurable(long sequence) {
+    }
+}
@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Films ranked by the likes they gained in the last hour, day and week. Each film with recent activity keeps a
+ * ring of hourly like counters and a running sum per window; a like touches one counter and the three sums.
+ * Once an hour, sums of the films still in the ring are moved past the hours that left their windows, so
+ * a trending query only reads the head of a ranking and never scans the catalog.
+ */
+@Component
+public class TrendingFilms implements FilmEventListener {
+    private static final int HOURS = Window.WEEK.hours;
+    private static final long MILLIS_PER_HOUR = 3_600_000;
+
+    private final Clock clock;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final LockStripes locks = new LockStripes(256);
+    private final FilmPopularityIndex[] rankings = new FilmPopularityIndex[Window.values().length];
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private volatile long sweptHour;
+
+    @Autowired
+    public TrendingFilms() {
+        this(Clock.systemUTC());
+    }
+
+    public TrendingFilms(Clock clock) {
+        this.clock = clock;
+        for (int i = 0; i < rankings.length; i++) {
+            rankings[i] = new FilmPopularityIndex();
+        }
+        sweptHour = currentHour();
+    }
+
+    @Override
+    public void likeAdded(long filmId, long userId) {
+        record(filmId, 1);
+    }
+
+    @Override
+    public void likeRemoved(long filmId, long userId) {
+        record(filmId, -1);
+    }
+
+    @Override
+    public void filmRemoved(long filmId) {
+        ReentrantLock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            Counter counter = counters.remove(filmId);
+            if (counter != null) {
+                for (Window window : Window.values()) {
+                    rank(window, filmId, counter.sums[window.ordinal()], 0);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ids of the films with the highest positive like balance in the window, best first.
+     */
+    public List<Long> top(Window window, int count) {
+        long now = currentHour();
+        if (now > sweptHour) {
+            sweepLock.lock();
+            try {
+                sweep(now);
+            } finally {
+                sweepLock.unlock();
+            }
+        }
+        return rankings[window.ordinal()].top(count);
+    }
+
+    private void record(long filmId, int delta) {
+        long now = currentHour();
+        // Writers leave the hourly sweep to whoever gets there first; their own film is advanced below.
+        if (now > sweptHour && sweepLock.tryLock()) {
+            try {
+                sweep(now);
+            } finally {
+                sweepLock.unlock();
+            }
+        }
+        ReentrantLock lock = locks.forId(filmId);
+        lock.lock();
+        try {
+            Counter counter = counters.computeIfAbsent(filmId, id -> new Counter(now));
+            advance(filmId, counter, now);
+            counter.buckets[(int) (now % HOURS)] += delta;
+            counter.lastEventHour = now;
+            for (Window window : Window.values()) {
+                int before = counter.sums[window.ordinal()];
+                counter.sums[window.ordinal()] = before + delta;
+                rank(window, filmId, before, before + delta);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Callers hold the sweep lock.
+    private void sweep(long now) {
+        if (now <= sweptHour) {
+            return;
+        }
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            long filmId = entry.getKey();
+            ReentrantLock lock = locks.forId(filmId);
+            lock.lock();
+            try {
+                Counter counter = entry.getValue();
+                advance(filmId, counter, now);
+                if (now - counter.lastEventHour >= HOURS) {
+                    counters.remove(filmId, counter);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        sweptHour = now;
+    }
+
+    // Moves the counter's windows forward to the given hour. Callers hold the film's lock.
+    private void advance(long filmId, Counter counter, long now) {
+        if (now <= counter.hour) {
+            return;
+        }
+        for (Window window : Window.values()) {
+            int before = counter.sums[window.ordinal()];
+            int after = before;
+            long lastLeaving = Math.min(counter.hour, now - window.hours);
+            for (long hour = counter.hour - window.hours + 1; hour <= lastLeaving; hour++) {
+                after -= counter.buckets[(int) (hour % HOURS)];
+            }
+            counter.sums[window.ordinal()] = after;
+            rank(window, filmId, before, after);
+        }
+        for (long hour = counter.hour + 1; hour <= Math.min(now, counter.hour + HOURS); hour++) {
+            counter.buckets[(int) (hour % HOURS)] = 0;
+        }
+        counter.hour = now;
+    }
+
+    // Only films with a positive balance are ranked.
+    private void rank(Window window, long filmId, int before, int after) {
+        FilmPopularityIndex ranking = rankings[window.ordinal()];
+        if (before > 0 && after > 0) {
+            ranking.update(filmId, before, after);
+        } else if (after > 0) {
+            ranking.add(filmId, after);
+        } else if (before > 0) {
+            ranking.remove(filmId, before);
+        }
+    }
+
+    private long currentHour() {
+        return clock.millis() / MILLIS_PER_HOUR;
+    }
+
+    public enum Window {
+        HOUR("1h", 1),
+        DAY("24h", 24),
+        WEEK("7d", 168);
+
+        private final String label;
+        private final int hours;
+
+        Window(String label, int hours) {
+            this.label = label;
+            this.hours = hours;
+        }
+
+        public static Window parse(String label) {
+            for (Window window : values()) {
+                if (window.label.equals(label)) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Counter {
+        // Likes gained minus likes removed per hour, indexed by hour modulo the ring size.
+        private final int[] buckets = new int[HOURS];
+        private final int[] sums = new int[Window.values().length];
+        private long hour;
+        private long lastEventHour;
+
+        private Counter(long hour) {
+            this.hour = hour;
+            this.lastEventHour = hour;
+        }
+    }
+}
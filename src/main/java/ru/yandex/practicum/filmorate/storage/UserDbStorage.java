@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class UserDbStorage implements UserStorage {
+    private static final String SELECT_USERS = "SELECT u.id, u.email, u.login, u.name, u.birthday FROM users u";
+    private static final String INSERT_USER = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+
+    private static final int IN_LIST_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    @Override
+    public User addUser(User user) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_USER, new String[]{"id"});
+            setUser(statement, user);
+            return statement;
+        }, keyHolder);
+        user.setId(keyHolder.getKey().longValue());
+        return user;
+    }
+
+    // One JDBC batch in one transaction; the generated ids come back in insertion order.
+    @Override
+    @Transactional
+    public List<User> addUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_USER, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        setUser(statement, users.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        return users;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        int updated = jdbcTemplate.update(
+                "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?",
+                user.getEmail(), user.getLogin(), user.getName(),
+                user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()), user.getId());
+        if (updated == 0) {
+            throw NotFoundException.USER;
+        }
+        return user;
+    }
+
+    @Override
+    public User getUserById(Long id) {
+        List<User> users = jdbcTemplate.query(SELECT_USERS + " WHERE u.id = ?", this::mapUser, id);
+        if (users.isEmpty()) {
+            throw NotFoundException.USER;
+        }
+        return users.get(0);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return jdbcTemplate.query(SELECT_USERS + " ORDER BY u.id", this::mapUser);
+    }
+
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_USERS + " WHERE u.id > ? ORDER BY u.id LIMIT ?", this::mapUser,
+                afterId, limit);
+    }
+
+    @Override
+    @Transactional
+    public void removeUser(Long id) {
+        // The likes go with the user by cascade, so the counts of their films drop first.
+        jdbcTemplate.update("UPDATE films SET like_count = like_count - 1 "
+                + "WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?)", id);
+        if (jdbcTemplate.update("DELETE FROM users WHERE id = ?", id) == 0) {
+            throw NotFoundException.USER;
+        }
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> all = List.copyOf(new HashSet<>(ids));
+        for (int from = 0; from < all.size(); from += IN_LIST_CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + IN_LIST_CHUNK));
+            existing.addAll(namedJdbcTemplate.queryForList("SELECT id FROM users WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk), Long.class));
+        }
+        return existing;
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        requireUsers(userId, friendId);
+        try {
+            jdbcTemplate.batchUpdate(INSERT_FRIENDSHIP, List.of(
+                    new Object[]{userId, friendId, userId, friendId},
+                    new Object[]{friendId, userId, friendId, userId}));
+        } catch (DuplicateKeyException ignore) {
+            // A concurrent request created the same friendship first.
+        }
+    }
+
+    @Override
+    public void addFriendships(List<Friendship> friendships) {
+        Set<Long> ids = new HashSet<>();
+        List<Object[]> args = new ArrayList<>(friendships.size() * 2);
+        for (Friendship friendship : friendships) {
+            long userId = friendship.getUserId();
+            long friendId = friendship.getFriendId();
+            ids.add(userId);
+            ids.add(friendId);
+            args.add(new Object[]{userId, friendId, userId, friendId});
+            args.add(new Object[]{friendId, userId, friendId, userId});
+        }
+        if (findExistingIds(ids).size() < ids.size()) {
+            throw NotFoundException.USER;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_FRIENDSHIP, args);
+        } catch (DuplicateKeyException ignore) {
+            // A concurrent request created one of the friendships first; the rest go one by one.
+            for (Friendship friendship : friendships) {
+                addFriend(friendship.getUserId(), friendship.getFriendId());
+            }
+        }
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        requireUsers(userId, friendId);
+        jdbcTemplate.batchUpdate("DELETE FROM friendships WHERE user_id = ? AND friend_id = ?", List.of(
+                new Object[]{userId, friendId},
+                new Object[]{friendId, userId}));
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        requireUsers(userId);
+        return jdbcTemplate.query(SELECT_USERS + " JOIN friendships f ON f.friend_id = u.id "
+                + "WHERE f.user_id = ? ORDER BY u.id", this::mapUser, userId);
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        requireUsers(userId, otherId);
+        return jdbcTemplate.query(SELECT_USERS + " JOIN friendships a ON a.friend_id = u.id "
+                        + "JOIN friendships b ON b.friend_id = a.friend_id "
+                        + "WHERE a.user_id = ? AND b.user_id = ? ORDER BY u.id",
+                this::mapUser, userId, otherId);
+    }
+
+    @Override
+    public Map<Long, Integer> getCommonFriendCounts(Long userId, List<Long> otherIds) {
+        requireUsers(userId);
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        if (otherIds.isEmpty()) {
+            return counts;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("ids", otherIds);
+        Set<Long> existing = findExistingIds(otherIds);
+        Map<Long, Integer> found = new HashMap<>();
+        namedJdbcTemplate.query("SELECT b.user_id, COUNT(*) AS common FROM friendships a "
+                        + "JOIN friendships b ON b.friend_id = a.friend_id "
+                        + "WHERE a.user_id = :userId AND b.user_id IN (:ids) GROUP BY b.user_id", params,
+                (RowCallbackHandler) rs -> found.put(rs.getLong("user_id"), rs.getInt("common")));
+        for (Long otherId : otherIds) {
+            if (existing.contains(otherId)) {
+                counts.put(otherId, found.getOrDefault(otherId, 0));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        requireUsers(userId);
+        return jdbcTemplate.query(SELECT_USERS + " JOIN (SELECT b.friend_id AS id, COUNT(*) AS mutual "
+                        + "FROM friendships a JOIN friendships b ON b.user_id = a.friend_id "
+                        + "WHERE a.user_id = ? AND b.friend_id <> ? "
+                        + "AND b.friend_id NOT IN (SELECT friend_id FROM friendships WHERE user_id = ?) "
+                        + "GROUP BY b.friend_id) s ON s.id = u.id ORDER BY s.mutual DESC, u.id LIMIT ?",
+                this::mapUser, userId, userId, userId, limit);
+    }
+
+    // One query per expanded user: fine for the short chains the depth limit allows, bounded by the budget.
+    @Override
+    public List<User> getFriendPath(Long userId, Long otherId, int maxDepth, Duration timeBudget) {
+        requireUsers(userId, otherId);
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        long[] path = FriendPaths.shortestPath(id -> jdbcTemplate.queryForList(
+                        "SELECT friend_id FROM friendships WHERE user_id = ?", Long.class, id).stream()
+                        .mapToLong(Long::longValue)
+                        .toArray(),
+                userId, otherId, maxDepth, deadline);
+        List<User> users = new ArrayList<>(path.length);
+        for (long id : path) {
+            users.add(getUserById(id));
+        }
+        return users;
+    }
+
+    @Override
+    public long countUsers() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    // Both directions of a friendship are stored.
+    @Override
+    public long countFriendships() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendships", Long.class) / 2;
+    }
+
+    @Override
+    public int maxFriendsPerUser() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(c), 0) FROM "
+                + "(SELECT COUNT(*) AS c FROM friendships GROUP BY user_id) counts", Integer.class);
+    }
+
+    private static void setUser(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getEmail());
+        statement.setString(2, user.getLogin());
+        statement.setString(3, user.getName());
+        statement.setDate(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+    }
+
+    private void requireUsers(Long... ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", Arrays.asList(ids));
+        Integer found = namedJdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE id IN (:ids)", params, Integer.class);
+        long distinct = Arrays.stream(ids).distinct().count();
+        if (found == null || found < distinct) {
+            throw NotFoundException.USER;
+        }
+    }
+
+    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        Date birthday = rs.getDate("birthday");
+        user.setBirthday(birthday == null ? null : birthday.toLocalDate());
+        return user;
+    }
+}
@@ -1,26 +1,96 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface UserStorage {
 
     User addUser(User user);
 
+    /**
+     * Adds the users in order, assigning ids as {@link #addUser(User)} does. If one of them fails, the users added
+     * before it are removed again, so a failed batch can be retried user by user.
+     */
+    default List<User> addUsers(List<User> users) {
+        int added = 0;
+        try {
+            for (User user : users) {
+                addUser(user);
+                added++;
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < added; i++) {
+                try {
+                    removeUser(users.get(i).getId());
+                } catch (RuntimeException removal) {
+                    e.addSuppressed(removal);
+                }
+            }
+            throw e;
+        }
+        return users;
+    }
+
     User updateUser(User user);
 
     User getUserById(Long id);
 
     List<User> getAllUsers();
 
+    List<User> getUsersPage(long afterId, int limit);
+
     void removeUser(Long id);
 
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     void addFriend(Long userId, Long friendId);
 
+    /**
+     * Adds the friendships in order. Existing ones are left as they are.
+     */
+    default void addFriendships(List<Friendship> friendships) {
+        for (Friendship friendship : friendships) {
+            addFriend(friendship.getUserId(), friendship.getFriendId());
+        }
+    }
+
     void removeFriend(Long userId, Long friendId);
 
     List<User> getFriends(Long userId);
 
     List<User> getCommonFriends(Long userId, Long otherId);
 
+    Map<Long, Integer> getCommonFriendCounts(Long userId, List<Long> otherIds);
+
+    /**
+     * Friends of the user's friends who are not yet friends of the user, most mutual friends first.
+     */
+    List<User> getFriendSuggestions(Long userId, int limit);
+
+    /**
+     * Shortest chain of friends from one user to the other, both included, or an empty list if there is none of
+     * at most {@code maxDepth} friendships.
+     *
+     * @throws ru.yandex.practicum.filmorate.exception.TimeBudgetExceededException if the search takes longer than
+     * the budget
+     */
+    List<User> getFriendPath(Long userId, Long otherId, int maxDepth, Duration timeBudget);
+
+    long countUsers();
+
+    /**
+     * Number of friendships, each counted once although both users list it.
+     */
+    long countFriendships();
+
+    /**
+     * Friend count of the user with the most friends, 0 without users.
+     */
+    int maxFriendsPerUser();
+
 }
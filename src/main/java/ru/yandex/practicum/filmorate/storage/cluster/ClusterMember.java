@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage.cluster;
+
+import java.util.List;
+
+/**
+ * An instance as seen by its {@link ClusterTransport}.
+ */
+public interface ClusterMember {
+
+    void receive(LikeDeltaBatch batch);
+
+    /**
+     * The state of every film's likes, including films whose likes were all removed.
+     */
+    List<LikeSetState> state();
+
+    void receive(List<LikeSetState> state);
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.storage.cluster;
+
+/**
+ * Ships batches of like deltas between the instances of a cluster. Merging deltas is commutative and idempotent,
+ * so batches may arrive in any order and more than once, but every batch must eventually reach every other
+ * instance.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Starts delivering batches to the member, then exchanges full states between it and every instance already
+     * connected, both ways. A batch broadcast meanwhile reaches it either directly or as part of a state.
+     */
+    void connect(String nodeId, ClusterMember member);
+
+    void disconnect(String nodeId);
+
+    /**
+     * Sends the batch to every connected instance except its origin.
+     */
+    void broadcast(LikeDeltaBatch batch);
+}
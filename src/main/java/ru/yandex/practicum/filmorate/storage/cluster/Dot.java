@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage.cluster;
+
+/**
+ * Unique tag of one like added on one instance: the {@code counter}-th like that {@code replica} added to a film.
+ * A replica is one run of an instance, so counters never restart under the same name.
+ */
+public record Dot(String replica, long counter) {
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.storage.cluster;
+
+import java.util.List;
+
+/**
+ * Change of one user's like of one film as shipped to other instances: the dots the like has on the sender after
+ * the change, and every dot the change replaces. An added like carries its new dot in both lists.
+ */
+public record LikeDelta(long filmId, long userId, List<Dot> dots, List<Dot> context) {
+}
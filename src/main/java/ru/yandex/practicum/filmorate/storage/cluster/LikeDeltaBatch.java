@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.storage.cluster;
+
+import java.util.List;
+
+public record LikeDeltaBatch(String origin, List<LikeDelta> deltas) {
+}
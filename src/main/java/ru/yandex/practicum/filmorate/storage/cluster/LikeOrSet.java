@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.storage.cluster;
+
+import java.util.*;
+
+/**
+ * The likes of one film as an add-wins observed-remove set. Every added like is tagged with a new {@link Dot};
+ * a removal drops only the dots its instance had seen, so a like added concurrently elsewhere survives it.
+ * The causal context records every dot ever seen: a contiguous counter per replica plus the dots received out
+ * of order, which are folded into the counter as the gaps fill. Merging deltas is commutative, associative and
+ * idempotent, so instances that received the same deltas hold the same likes whatever the order.
+ *
+ * <p>Not thread-safe: callers hold the film's lock.
+ */
+public final class LikeOrSet {
+    private final Map<Long, List<Dot>> entries = new HashMap<>();
+    private final Map<String, Long> seenUpTo = new HashMap<>();
+    private final Set<Dot> seenOutOfOrder = new HashSet<>();
+
+    /**
+     * Adds the like on {@code replica} and returns the delta to ship. Dots are counted per film, so a replica's
+     * own dots are always contiguous here.
+     */
+    public LikeDelta add(long filmId, long userId, String replica) {
+        Dot dot = new Dot(replica, seenUpTo.getOrDefault(replica, 0L) + 1);
+        List<Dot> context = new ArrayList<>(entries.getOrDefault(userId, List.of()));
+        context.add(dot);
+        LikeDelta delta = new LikeDelta(filmId, userId, List.of(dot), List.copyOf(context));
+        merge(delta);
+        return delta;
+    }
+
+    /**
+     * Removes the like and returns the delta to ship, or null if the user does not like the film.
+     */
+    public LikeDelta remove(long filmId, long userId) {
+        List<Dot> observed = entries.get(userId);
+        if (observed == null) {
+            return null;
+        }
+        LikeDelta delta = new LikeDelta(filmId, userId, List.of(), List.copyOf(observed));
+        merge(delta);
+        return delta;
+    }
+
+    public void merge(LikeDelta delta) {
+        List<Dot> current = entries.getOrDefault(delta.userId(), List.of());
+        List<Dot> merged = new ArrayList<>(current.size() + delta.dots().size());
+        // Keep what both sides have and what the delta did not know about...
+        for (Dot dot : current) {
+            if (delta.dots().contains(dot) || !delta.context().contains(dot)) {
+                merged.add(dot);
+            }
+        }
+        // ...and take the delta's dots this set has not seen, not even as already removed.
+        for (Dot dot : delta.dots()) {
+            if (!merged.contains(dot) && !seen(dot)) {
+                merged.add(dot);
+            }
+        }
+        for (Dot dot : delta.context()) {
+            record(dot);
+        }
+        if (merged.isEmpty()) {
+            entries.remove(delta.userId());
+        } else {
+            entries.put(delta.userId(), merged);
+        }
+    }
+
+    /**
+     * Merges the full state of the same film on another instance, the way {@link #merge(LikeDelta)} merges a
+     * delta: a dot survives if both sides have it or the side lacking it never saw it.
+     */
+    public void merge(LikeSetState state) {
+        Set<Long> users = new HashSet<>(entries.keySet());
+        users.addAll(state.entries().keySet());
+        for (Long userId : users) {
+            List<Dot> current = entries.getOrDefault(userId, List.of());
+            List<Dot> other = state.entries().getOrDefault(userId, List.of());
+            List<Dot> merged = new ArrayList<>(current.size() + other.size());
+            for (Dot dot : current) {
+                if (other.contains(dot) || !seenBy(state, dot)) {
+                    merged.add(dot);
+                }
+            }
+            for (Dot dot : other) {
+                if (!merged.contains(dot) && !seen(dot)) {
+                    merged.add(dot);
+                }
+            }
+            if (merged.isEmpty()) {
+                entries.remove(userId);
+            } else {
+                entries.put(userId, merged);
+            }
+        }
+        state.seenUpTo().forEach((replica, upTo) -> {
+            if (upTo > seenUpTo.getOrDefault(replica, 0L)) {
+                seenOutOfOrder.removeIf(dot -> dot.replica().equals(replica) && dot.counter() <= upTo);
+                long folded = upTo;
+                while (seenOutOfOrder.remove(new Dot(replica, folded + 1))) {
+                    folded++;
+                }
+                seenUpTo.put(replica, folded);
+            }
+        });
+        for (Dot dot : state.seenOutOfOrder()) {
+            record(dot);
+        }
+    }
+
+    public LikeSetState state(long filmId) {
+        Map<Long, List<Dot>> copy = new HashMap<>();
+        entries.forEach((userId, dots) -> copy.put(userId, List.copyOf(dots)));
+        return new LikeSetState(filmId, copy, Map.copyOf(seenUpTo), Set.copyOf(seenOutOfOrder));
+    }
+
+    public boolean contains(long userId) {
+        return entries.containsKey(userId);
+    }
+
+    public Set<Long> users() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    private boolean seen(Dot dot) {
+        return dot.counter() <= seenUpTo.getOrDefault(dot.replica(), 0L) || seenOutOfOrder.contains(dot);
+    }
+
+    private static boolean seenBy(LikeSetState state, Dot dot) {
+        return dot.counter() <= state.seenUpTo().getOrDefault(dot.replica(), 0L)
+                || state.seenOutOfOrder().contains(dot);
+    }
+
+    private void record(Dot dot) {
+        long upTo = seenUpTo.getOrDefault(dot.replica(), 0L);
+        if (dot.counter() <= upTo) {
+            return;
+        }
+        if (dot.counter() > upTo + 1) {
+            seenOutOfOrder.add(dot);
+            return;
+        }
+        upTo++;
+        while (seenOutOfOrder.remove(new Dot(dot.replica(), upTo + 1))) {
+            upTo++;
+        }
+        seenUpTo.put(dot.replica(), upTo);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.storage.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Full state of the likes of one film: the dots of every liking user and the causal context. Sent to an instance
+ * when it joins, so it learns the likes and removals made before it connected.
+ */
+public record LikeSetState(long filmId, Map<Long, List<Dot>> entries, Map<String, Long> seenUpTo,
+                           Set<Dot> seenOutOfOrder) {
+}
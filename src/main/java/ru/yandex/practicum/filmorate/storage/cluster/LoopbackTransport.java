@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connects the instances of one JVM that use the same cluster name, as tests, benchmarks or several application
+ * contexts in one process do. A batch is handed to every receiver on the broadcasting thread.
+ */
+@Component
+@ConditionalOnExpression("'${filmorate.storage:memory}' == 'cluster'"
+        + " and '${filmorate.cluster.transport:loopback}' == 'loopback'")
+public class LoopbackTransport implements ClusterTransport {
+    private static final Map<String, Map<String, ClusterMember>> CLUSTERS = new ConcurrentHashMap<>();
+
+    private final Map<String, ClusterMember> nodes;
+
+    @Autowired
+    public LoopbackTransport(@Value("${filmorate.cluster.name:filmorate}") String cluster) {
+        nodes = CLUSTERS.computeIfAbsent(cluster, name -> new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public void connect(String nodeId, ClusterMember member) {
+        nodes.put(nodeId, member);
+        nodes.forEach((otherId, other) -> {
+            if (!otherId.equals(nodeId)) {
+                member.receive(other.state());
+                other.receive(member.state());
+            }
+        });
+    }
+
+    @Override
+    public void disconnect(String nodeId) {
+        nodes.remove(nodeId);
+    }
+
+    @Override
+    public void broadcast(LikeDeltaBatch batch) {
+        nodes.forEach((nodeId, member) -> {
+            if (!nodeId.equals(batch.origin())) {
+                member.receive(batch);
+            }
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recovers the in-memory storages on startup from the latest snapshot plus the log written after it, then
+ * journals every further mutation and periodically replaces the snapshot so the log stays short.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${filmorate.durability.enabled:false} and '${filmorate.storage:memory}' == 'memory'")
+public class DurabilityManager {
+    private final InMemoryFilmStorage films;
+    private final InMemoryUserStorage users;
+    private final Path directory;
+    private final boolean fsync;
+    private final Duration snapshotInterval;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+    private WriteAheadLog journal;
+
+    @Autowired
+    public DurabilityManager(InMemoryFilmStorage films, InMemoryUserStorage users,
+                             @Value("${filmorate.durability.directory:./data/journal}") Path directory,
+                             @Value("${filmorate.durability.fsync:true}") boolean fsync,
+                             @Value("${filmorate.durability.snapshot-interval:10m}") Duration snapshotInterval) {
+        this.films = films;
+        this.users = users;
+        this.directory = directory;
+        this.fsync = fsync;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        recover();
+        journal = WriteAheadLog.open(directory, fsync);
+        films.setJournal(journal);
+        users.setJournal(journal);
+        if (!snapshotInterval.isZero()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("snapshot").daemon()
+                    .factory());
+            scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotInterval.toMillis(),
+                    snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Loads the newest snapshot into the (empty) storages and replays the log written since it was taken.
+     */
+    public void recover() throws IOException {
+        long started = System.nanoTime();
+        long segment = SnapshotFile.latest(directory);
+        if (segment > 0) {
+            SnapshotFile.read(directory, segment, films, users);
+        }
+        long records = WriteAheadLog.replay(directory, segment, films, users);
+        films.finishRestore();
+        log.info("Recovered storages from snapshot {} and {} log records in {} ms", segment, records,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Writes a snapshot covering everything journaled so far and drops the log segments and snapshots it
+     * supersedes.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long segment = journal.rotate();
+            SnapshotFile.write(directory, segment, films, users);
+            journal.deleteSegmentsBefore(segment);
+            SnapshotFile.deleteBefore(directory, segment);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        films.setJournal(StorageJournal.NONE);
+        users.setJournal(StorageJournal.NONE);
+        journal.close();
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Snapshot failed, the log keeps growing until the next attempt", e);
+        }
+    }
+}
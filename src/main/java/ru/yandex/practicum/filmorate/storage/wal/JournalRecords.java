@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Binary layout shared by log records and snapshot entries. Every record describes the resulting state of
+ * one entity or relation rather than a delta, so replaying a record that is already reflected in a snapshot
+ * leaves the storages unchanged.
+ */
+final class JournalRecords {
+    static final byte FILM_SAVED = 1;
+    static final byte FILM_REMOVED = 2;
+    static final byte LIKE_ADDED = 3;
+    static final byte LIKE_REMOVED = 4;
+    static final byte USER_SAVED = 5;
+    static final byte USER_REMOVED = 6;
+    static final byte FRIEND_ADDED = 7;
+    static final byte FRIEND_REMOVED = 8;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private JournalRecords() {
+    }
+
+    static int filmSize(Film film) {
+        return 8 + stringSize(film.getName()) + stringSize(film.getDescription()) + 8 + 4;
+    }
+
+    static void putFilm(ByteBuffer out, Film film) {
+        out.putLong(film.getId());
+        putString(out, film.getName());
+        putString(out, film.getDescription());
+        putDate(out, film.getReleaseDate());
+        out.putInt(film.getDuration());
+    }
+
+    static Film getFilm(ByteBuffer in) {
+        Film film = new Film();
+        film.setId(in.getLong());
+        film.setName(getString(in));
+        film.setDescription(getString(in));
+        film.setReleaseDate(getDate(in));
+        film.setDuration(in.getInt());
+        return film;
+    }
+
+    static int userSize(User user) {
+        return 8 + stringSize(user.getEmail()) + stringSize(user.getLogin()) + stringSize(user.getName()) + 8;
+    }
+
+    static void putUser(ByteBuffer out, User user) {
+        out.putLong(user.getId());
+        putString(out, user.getEmail());
+        putString(out, user.getLogin());
+        putString(out, user.getName());
+        putDate(out, user.getBirthday());
+    }
+
+    static User getUser(ByteBuffer in) {
+        User user = new User();
+        user.setId(in.getLong());
+        user.setEmail(getString(in));
+        user.setLogin(getString(in));
+        user.setName(getString(in));
+        user.setBirthday(getDate(in));
+        return user;
+    }
+
+    static void replay(ByteBuffer record, InMemoryFilmStorage films, InMemoryUserStorage users) {
+        byte type = record.get();
+        try {
+            switch (type) {
+                case FILM_SAVED -> films.restoreFilm(getFilm(record));
+                case FILM_REMOVED -> films.removeFilm(record.getLong());
+                case LIKE_ADDED -> films.restoreLike(record.getLong(), record.getLong(), true);
+                case LIKE_REMOVED -> films.restoreLike(record.getLong(), record.getLong(), false);
+                case USER_SAVED -> users.restoreUser(getUser(record));
+                case USER_REMOVED -> users.removeUser(record.getLong());
+                case FRIEND_ADDED -> users.addFriend(record.getLong(), record.getLong());
+                case FRIEND_REMOVED -> users.removeFriend(record.getLong(), record.getLong());
+                default -> throw new IllegalStateException("Unknown journal record type " + type);
+            }
+        } catch (NotFoundException ignore) {
+            // The entity was removed later in the log or before the snapshot was taken.
+        }
+    }
+
+    // Upper bound: UTF-8 never needs more than three bytes per UTF-16 char.
+    private static int stringSize(String value) {
+        return 4 + (value == null ? 0 : value.length() * 3);
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putDate(ByteBuffer out, LocalDate date) {
+        out.putLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    private static LocalDate getDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -0,0 +1,249 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Full copy of both in-memory storages written and read through memory-mapped windows. A snapshot named
+ * after segment N is fuzzy: it holds every change journaled before N and possibly some later ones, which is
+ * why recovery replays the log from segment N onwards.
+ */
+public final class SnapshotFile {
+    private static final long MAGIC = 0x46494c4d4f524154L;
+    private static final int VERSION = 1;
+    private static final byte FILM = 1;
+    private static final byte USER = 2;
+    private static final byte END = 0;
+    private static final int WINDOW = 64 << 20;
+    private static final int PAGE_SIZE = 10_000;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Returns the segment number the newest complete snapshot was taken at, or 0 if there is none.
+     */
+    public static long latest(Path directory) throws IOException {
+        List<Long> snapshots = snapshots(directory);
+        return snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+    }
+
+    public static void write(Path directory, long segment, InMemoryFilmStorage films, InMemoryUserStorage users)
+            throws IOException {
+        Path temporary = directory.resolve(name(segment) + ".tmp");
+        try (MappedWriter out = new MappedWriter(temporary)) {
+            out.begin(8 + 4 + 8 + 8 + 8)
+                    .putLong(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(segment)
+                    .putLong(films.getNextId())
+                    .putLong(users.getNextId());
+            out.end();
+            List<Film> filmPage = List.of();
+            do {
+                long afterId = filmPage.isEmpty() ? 0 : filmPage.get(filmPage.size() - 1).getId();
+                filmPage = films.getFilmsPage(afterId, PAGE_SIZE);
+                for (Film film : filmPage) {
+                    long[] userIds;
+                    try {
+                        userIds = films.getLikes(film.getId()).stream().mapToLong(Long::longValue).toArray();
+                    } catch (NotFoundException ignore) {
+                        continue;
+                    }
+                    ByteBuffer entry = out.begin(1 + JournalRecords.filmSize(film) + 4 + userIds.length * 8);
+                    entry.put(FILM);
+                    JournalRecords.putFilm(entry, film);
+                    putIds(entry, userIds);
+                    out.end();
+                }
+            } while (filmPage.size() == PAGE_SIZE);
+            List<User> userPage = List.of();
+            do {
+                long afterId = userPage.isEmpty() ? 0 : userPage.get(userPage.size() - 1).getId();
+                userPage = users.getUsersPage(afterId, PAGE_SIZE);
+                for (User user : userPage) {
+                    long[] friendIds;
+                    try {
+                        friendIds = users.getFriendIds(user.getId());
+                    } catch (NotFoundException ignore) {
+                        continue;
+                    }
+                    ByteBuffer entry = out.begin(1 + JournalRecords.userSize(user) + 4 + friendIds.length * 8);
+                    entry.put(USER);
+                    JournalRecords.putUser(entry, user);
+                    putIds(entry, friendIds);
+                    out.end();
+                }
+            } while (userPage.size() == PAGE_SIZE);
+            out.begin(1).put(END);
+            out.end();
+        }
+        Files.move(temporary, directory.resolve(name(segment)),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static void read(Path directory, long segment, InMemoryFilmStorage films, InMemoryUserStorage users)
+            throws IOException {
+        try (MappedReader in = new MappedReader(directory.resolve(name(segment)))) {
+            ByteBuffer header = in.next();
+            if (header.getLong() != MAGIC || header.getInt() != VERSION || header.getLong() != segment) {
+                throw new IOException("Snapshot " + name(segment) + " has an unexpected header");
+            }
+            films.restoreNextId(header.getLong());
+            users.restoreNextId(header.getLong());
+            while (true) {
+                ByteBuffer entry = in.next();
+                byte type = entry.get();
+                if (type == END) {
+                    return;
+                } else if (type == FILM) {
+                    Film film = JournalRecords.getFilm(entry);
+                    films.restoreFilm(film);
+                    films.restoreLikes(film.getId(), getIds(entry));
+                } else if (type == USER) {
+                    User user = JournalRecords.getUser(entry);
+                    users.restoreUser(user);
+                    users.restoreFriendIds(user.getId(), getIds(entry));
+                } else {
+                    throw new IOException("Snapshot " + name(segment) + " has an unknown entry type " + type);
+                }
+            }
+        }
+    }
+
+    public static void deleteBefore(Path directory, long segment) throws IOException {
+        for (long existing : snapshots(directory)) {
+            if (existing < segment) {
+                Files.deleteIfExists(directory.resolve(name(existing)));
+            }
+        }
+    }
+
+    private static void putIds(ByteBuffer buffer, long[] ids) {
+        buffer.putInt(ids.length);
+        buffer.asLongBuffer().put(ids);
+        buffer.position(buffer.position() + ids.length * 8);
+    }
+
+    private static long[] getIds(ByteBuffer buffer) {
+        long[] ids = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(ids);
+        buffer.position(buffer.position() + ids.length * 8);
+        return ids;
+    }
+
+    private static List<Long> snapshots(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("snapshot-") && name.endsWith(".bin"))
+                    .map(name -> Long.parseLong(name.substring(9, name.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String name(long segment) {
+        return String.format("snapshot-%016d.bin", segment);
+    }
+
+    // Entries are framed as [int length][body] and never span two mapped windows.
+    private static final class MappedWriter implements Closeable {
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private int entryStart;
+
+        MappedWriter(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        ByteBuffer begin(int maxBytes) throws IOException {
+            int required = 4 + maxBytes;
+            if (window == null || window.remaining() < required) {
+                long position = position();
+                if (window != null) {
+                    window.force();
+                }
+                window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(WINDOW, required));
+                windowStart = position;
+            }
+            entryStart = window.position();
+            window.position(entryStart + 4);
+            return window;
+        }
+
+        void end() {
+            window.putInt(entryStart, window.position() - entryStart - 4);
+        }
+
+        private long position() {
+            return window == null ? 0 : windowStart + window.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            long size = position();
+            if (window != null) {
+                window.force();
+            }
+            channel.truncate(size);
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private static final class MappedReader implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedReader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+        }
+
+        ByteBuffer next() throws IOException {
+            ensure(4);
+            int length = window.getInt();
+            ensure(length);
+            ByteBuffer entry = window.slice(window.position(), length);
+            window.position(window.position() + length);
+            return entry;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window != null && window.remaining() >= bytes) {
+                return;
+            }
+            long position = window == null ? 0 : windowStart + window.position();
+            if (bytes < 0 || position + bytes > size) {
+                throw new IOException("Snapshot is truncated at offset " + position);
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(size - position, Math.max(WINDOW, bytes)));
+            windowStart = position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of storage mutations split into numbered segments. Writers only encode their record into
+ * an in-memory buffer; a single flusher thread writes everything accumulated since its previous pass and
+ * fsyncs it once, so concurrent writers share one fsync (group commit). Frames are
+ * {@code [int length][type + payload][int crc32c]}; recovery stops at the first torn or corrupt frame.
+ */
+@Slf4j
+public class WriteAheadLog implements StorageJournal, Closeable {
+    private static final int INITIAL_BUFFER = 1 << 20;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER);
+    private FileChannel channel;
+    private long segment;
+    private int frameStart;
+    private long appended;
+    private long durable;
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    private WriteAheadLog(Path directory, long segment, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+        this.flusher = Thread.ofPlatform().name("wal-flusher").daemon().start(this::flushLoop);
+    }
+
+    /**
+     * Opens a fresh segment numbered after every segment already present in the directory.
+     */
+    public static WriteAheadLog open(Path directory, boolean fsync) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> existing = segments(directory);
+        long next = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        return new WriteAheadLog(directory, next, fsync);
+    }
+
+    /**
+     * Replays every intact record of the segments numbered {@code fromSegment} and above, returns how many.
+     */
+    public static long replay(Path directory, long fromSegment, InMemoryFilmStorage films,
+                              InMemoryUserStorage users) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        long records = 0;
+        for (long segment : segments(directory)) {
+            if (segment >= fromSegment) {
+                records += replaySegment(segmentPath(directory, segment), films, users);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Makes everything appended so far durable and starts a new segment, returning its number. Records in
+     * earlier segments were applied to the storages before this call returned.
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            // Writers are blocked on the lock, so the rest of the buffer belongs to the segment being closed.
+            try {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            durable = appended;
+            flushed.signalAll();
+            segment++;
+            channel = openSegment(segment);
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes segments that are fully covered by a snapshot taken after rotating to {@code segment}.
+     */
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (long existing : segments(directory)) {
+            if (existing < segment) {
+                Files.deleteIfExists(segmentPath(directory, existing));
+            }
+        }
+    }
+
+    @Override
+    public long filmSaved(Film film) {
+        lock.lock();
+        try {
+            ByteBuffer out = begin(JournalRecords.FILM_SAVED, JournalRecords.filmSize(film));
+            JournalRecords.putFilm(out, film);
+            return end(out);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long filmRemoved(long id) {
+        return appendIds(JournalRecords.FILM_REMOVED, id);
+    }
+
+    @Override
+    public long likeAdded(long filmId, long userId) {
+        return appendIds(JournalRecords.LIKE_ADDED, filmId, userId);
+    }
+
+    @Override
+    public long likeRemoved(long filmId, long userId) {
+        return appendIds(JournalRecords.LIKE_REMOVED, filmId, userId);
+    }
+
+    @Override
+    public long userSaved(User user) {
+        lock.lock();
+        try {
+            ByteBuffer out = begin(JournalRecords.USER_SAVED, JournalRecords.userSize(user));
+            JournalRecords.putUser(out, user);
+            return end(out);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long userRemoved(long id) {
+        return appendIds(JournalRecords.USER_REMOVED, id);
+    }
+
+    @Override
+    public long friendAdded(long userId, long friendId) {
+        return appendIds(JournalRecords.FRIEND_ADDED, userId, friendId);
+    }
+
+    @Override
+    public long friendRemoved(long userId, long friendId) {
+        return appendIds(JournalRecords.FRIEND_REMOVED, userId, friendId);
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        if (sequence == 0 || !fsync) {
+            return;
+        }
+        lock.lock();
+        try {
+            awaitFlushed(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Write-ahead log is unavailable", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.force(false);
+        channel.close();
+    }
+
+    private long appendIds(byte type, long... ids) {
+        lock.lock();
+        try {
+            ByteBuffer out = begin(type, ids.length * Long.BYTES);
+            for (long id : ids) {
+                out.putLong(id);
+            }
+            return end(out);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ByteBuffer begin(byte type, int maxPayload) {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        int required = 4 + 1 + maxPayload + 4;
+        if (buffer.remaining() < required) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + required));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        frameStart = buffer.position();
+        buffer.position(frameStart + 4);
+        buffer.put(type);
+        return buffer;
+    }
+
+    private long end(ByteBuffer out) {
+        int length = out.position() - frameStart - 4;
+        CRC32C crc = new CRC32C();
+        crc.update(out.slice(frameStart + 4, length));
+        out.putInt(frameStart, length);
+        out.putInt((int) crc.getValue());
+        pending.signal();
+        return ++appended;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            FileChannel target;
+            long sequence;
+            lock.lock();
+            try {
+                while (buffer.position() == 0 && !closed) {
+                    pending.awaitUninterruptibly();
+                }
+                if (buffer.position() == 0) {
+                    return;
+                }
+                flushing = true;
+                batch = buffer;
+                buffer = spare;
+                spare = null;
+                target = channel;
+                sequence = appended;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    target.write(batch);
+                }
+                if (fsync) {
+                    target.force(false);
+                }
+            } catch (IOException e) {
+                log.error("Write-ahead log flush failed", e);
+                error = e;
+            }
+            batch.clear();
+            lock.lock();
+            try {
+                spare = batch;
+                flushing = false;
+                if (error == null) {
+                    durable = sequence;
+                } else {
+                    failure = error;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void awaitFlushed(long sequence) throws IOException {
+        while (durable < sequence && failure == null) {
+            flushed.awaitUninterruptibly();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static long replaySegment(Path path, InMemoryFilmStorage films, InMemoryUserStorage users)
+            throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                byte[] body;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > 64 << 20) {
+                        break;
+                    }
+                    body = in.readNBytes(length);
+                    if (body.length < length) {
+                        break;
+                    }
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Corrupt record in {} after {} records, ignoring the rest of the segment", path, records);
+                    break;
+                }
+                JournalRecords.replay(ByteBuffer.wrap(body), films, users);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    static List<Long> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("wal-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring(4, name.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("wal-%016d.log", segment));
+    }
+}
@@ -0,0 +1,50 @@
+CREATE TABLE IF NOT EXISTS films (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE         NOT NULL,
+    duration     INT          NOT NULL,
+    like_count   INT          NOT NULL DEFAULT 0,
+    release_year INT GENERATED ALWAYS AS (EXTRACT(YEAR FROM release_date))
+);
+
+-- Databases created before the columns existed get them here, and their counts are recounted once.
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count INT NOT NULL DEFAULT -1;
+ALTER TABLE films ADD COLUMN IF NOT EXISTS release_year INT GENERATED ALWAYS AS (EXTRACT(YEAR FROM release_date));
+
+-- Range filters of GET /films.
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date, id);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration, id);
+-- GET /films/popular reads the first rows of these instead of counting the likes table.
+CREATE INDEX IF NOT EXISTS films_like_count_idx ON films (like_count DESC, id);
+CREATE INDEX IF NOT EXISTS films_year_like_count_idx ON films (release_year, like_count DESC, id);
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE
+);
+
+-- Every insert and delete here also moves films.like_count in the same transaction.
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id, film_id);
+
+UPDATE films f SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id) WHERE like_count < 0;
+ALTER TABLE films ALTER COLUMN like_count SET DEFAULT 0;
+
+-- Friendships are stored in both directions, so the primary key answers "friends of X"
+-- and the reverse index answers "who has X as a friend" for the common friends self-join.
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id, user_id);
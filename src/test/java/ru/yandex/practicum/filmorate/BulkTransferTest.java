@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.BulkTransfer;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkTransferTest {
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private final List<BulkTransfer> transfers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        transfers.forEach(BulkTransfer::stop);
+    }
+
+    @Test
+    void exportedRecordsImportIntoEmptyStorages() throws Exception {
+        InMemoryFilmStorage sourceFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage sourceUsers = new InMemoryUserStorage();
+        FilmService films = new FilmService(sourceFilms);
+        UserService users = new UserService(sourceUsers);
+        Random random = new Random(7);
+        for (int i = 0; i < 2500; i++) {
+            users.createUser(TestData.user("user" + i));
+        }
+        for (int i = 0; i < 1500; i++) {
+            films.addFilm(TestData.film("Film " + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            long a = 1 + random.nextInt(2500);
+            long b = 1 + random.nextInt(2500);
+            if (a != b) {
+                users.addFriend(a, b);
+            }
+            films.addLike(1L + random.nextInt(1500), 1L + random.nextInt(2500));
+        }
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        transfer(films, users).exportRecords(exported);
+
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        FilmSearchIndex searchIndex = new FilmSearchIndex(filmStorage);
+        FilmService importedFilms = new FilmService(filmStorage, List.of(searchIndex));
+        UserService importedUsers = new UserService(new InMemoryUserStorage());
+        BulkTransfer.Report report = transfer(importedFilms, importedUsers)
+                .importRecords(new ByteArrayInputStream(exported.toByteArray()));
+
+        assertEquals(0, report.failed(), report.errors().toString());
+        assertEquals(2500, report.users());
+        assertEquals(1500, report.films());
+        assertEquals(sourceUsers.countFriendships(), report.friendships());
+        assertEquals(sourceFilms.countLikes(), report.likes());
+        assertEquals(users.getAllUsers(), importedUsers.getAllUsers());
+        assertEquals(films.getAllFilms(), importedFilms.getAllFilms());
+        for (long id = 1; id <= 1500; id++) {
+            assertEquals(films.getLikes(id), importedFilms.getLikes(id));
+        }
+        for (long id = 1; id <= 2500; id++) {
+            assertEquals(users.getFriends(id), importedUsers.getFriends(id));
+        }
+        assertEquals(films.getPopularFilms(20), importedFilms.getPopularFilms(20));
+        assertEquals(List.of(1L), searchIndex.search("Film 0", 1));
+    }
+
+    @Test
+    void failedLinesAreReportedAndSkipped() throws Exception {
+        FilmService films = new FilmService(new InMemoryFilmStorage());
+        UserService users = new UserService(new InMemoryUserStorage());
+        String input = String.join("\n",
+                "{\"user\": {\"id\": 10, \"email\": \"a@mail.com\", \"login\": \"a\", \"birthday\": \"1990-01-01\"}}",
+                "{\"user\": {\"id\": 20, \"email\": \"b@mail.com\", \"login\": \"b c\", \"birthday\": \"1990-01-01\"}}",
+                "",
+                "{\"film\": {\"id\": 5, \"name\": \"Film\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\","
+                        + " \"duration\": 90}}",
+                "{\"film\": {\"id\": 6, \"name\": \"\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\","
+                        + " \"duration\": 90}}",
+                "{\"like\": {\"filmId\": 5, \"userId\": 10}}",
+                "{\"like\": {\"filmId\": 6, \"userId\": 10}}",
+                "{\"like\": {\"filmId\": 5",
+                "{\"like\": {\"filmId\": 5, \"userId\": 10}, \"film\": {\"id\": 7}}",
+                "{\"friendship\": {\"userId\": 10, \"friendId\": 20}}");
+
+        BulkTransfer.Report report = transfer(films, users)
+                .importRecords(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(9, report.records());
+        assertEquals(1, report.users());
+        assertEquals(1, report.films());
+        assertEquals(1, report.likes());
+        assertEquals(0, report.friendships());
+        assertEquals(6, report.failed());
+        assertEquals(List.of(2L, 5L, 7L, 8L, 9L, 10L),
+                report.errors().stream().map(BulkTransfer.LineError::line).toList());
+        assertEquals("Login is invalid", report.errors().get(0).error());
+        assertEquals(List.of(1L), films.getLikes(1L).stream().toList());
+        assertEquals("a", users.getUserById(1L).getName());
+    }
+
+    @Test
+    void repeatedLikesAreCountedOnce() throws Exception {
+        FilmService films = new FilmService(new InMemoryFilmStorage());
+        UserService users = new UserService(new InMemoryUserStorage());
+        String input = String.join("\n",
+                "{\"user\": {\"id\": 10, \"email\": \"a@mail.com\", \"login\": \"a\", \"birthday\": \"1990-01-01\"}}",
+                "{\"film\": {\"id\": 5, \"name\": \"Film\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\","
+                        + " \"duration\": 90}}",
+                "{\"like\": {\"filmId\": 5, \"userId\": 10}}",
+                "{\"like\": {\"filmId\": 5, \"userId\": 10}}");
+
+        BulkTransfer.Report report = transfer(films, users)
+                .importRecords(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(4, report.records());
+        assertEquals(1, report.likes());
+        assertEquals(0, report.failed());
+    }
+
+    @Test
+    void failedBatchKeepsTheFilmsAroundTheFailingOne() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage() {
+            @Override
+            public Film addFilm(Film film) {
+                if (film.getName().equals("Broken")) {
+                    throw new IllegalStateException("Storage rejected the film");
+                }
+                return super.addFilm(film);
+            }
+        };
+        FilmService films = new FilmService(filmStorage);
+        UserService users = new UserService(new InMemoryUserStorage());
+        String input = String.join("\n",
+                "{\"user\": {\"id\": 10, \"email\": \"a@mail.com\", \"login\": \"a\", \"birthday\": \"1990-01-01\"}}",
+                "{\"film\": {\"id\": 5, \"name\": \"First\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\","
+                        + " \"duration\": 90}}",
+                "{\"film\": {\"id\": 6, \"name\": \"Broken\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\","
+                        + " \"duration\": 90}}",
+                "{\"film\": {\"id\": 7, \"name\": \"Third\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\","
+                        + " \"duration\": 90}}",
+                "{\"like\": {\"filmId\": 5, \"userId\": 10}}",
+                "{\"like\": {\"filmId\": 7, \"userId\": 10}}");
+
+        BulkTransfer.Report report = transfer(films, users)
+                .importRecords(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, report.films());
+        assertEquals(2, report.likes());
+        assertEquals(1, report.failed());
+        assertEquals(List.of(new BulkTransfer.LineError(3, "Storage rejected the film")), report.errors());
+        List<Film> stored = films.getAllFilms();
+        assertEquals(List.of("First", "Third"), stored.stream().map(Film::getName).toList());
+        for (Film film : stored) {
+            assertEquals(Set.of(1L), films.getLikes(film.getId()));
+        }
+    }
+
+    private BulkTransfer transfer(FilmService films, UserService users) {
+        BulkTransfer transfer = new BulkTransfer(films, users, objectMapper);
+        transfers.add(transfer);
+        return transfer;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.ClientErrorLog;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientErrorLogTest {
+
+    @Test
+    void aggregatesErrorsPerStatusAndMessageBetweenFlushes() {
+        ClientErrorLog errors = new ClientErrorLog(Duration.ofSeconds(10));
+        for (int i = 0; i < 1000; i++) {
+            errors.record(404, "Film not found");
+        }
+        errors.record(404, "User not found");
+        errors.record(400, "Login is invalid");
+
+        assertEquals(Map.of("404 Film not found", 1000L, "404 User not found", 1L, "400 Login is invalid", 1L),
+                errors.flush());
+        errors.record(404, "Film not found");
+        assertEquals(Map.of("404 Film not found", 1L), errors.flush());
+        assertTrue(errors.flush().isEmpty());
+    }
+
+    @Test
+    void missesThrowSharedExceptionsWithoutStackTraces() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+
+        NotFoundException first = assertThrows(NotFoundException.class, () -> storage.getFilmById(1L));
+        NotFoundException second = assertThrows(NotFoundException.class, () -> storage.getFilmById(2L));
+        assertSame(first, second);
+        assertEquals(0, first.getStackTrace().length);
+        assertEquals(0, new NotFoundException("No path").getStackTrace().length);
+    }
+}
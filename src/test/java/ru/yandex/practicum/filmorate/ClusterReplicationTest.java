@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.storage.ReplicatedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.cluster.LoopbackTransport;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterReplicationTest {
+    private static final int FILMS = 50;
+    private final List<ReplicatedFilmStorage> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ReplicatedFilmStorage::stop);
+    }
+
+    @Test
+    void concurrentLikesOnAllNodesConverge() throws Exception {
+        List<ReplicatedFilmStorage> cluster = cluster(3);
+        ExecutorService executor = Executors.newFixedThreadPool(cluster.size() * 2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < cluster.size() * 2; t++) {
+                int thread = t;
+                ReplicatedFilmStorage node = cluster.get(t % cluster.size());
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(thread);
+                    for (int i = 0; i < 5000; i++) {
+                        long filmId = 1 + random.nextInt(FILMS);
+                        long userId = 1 + random.nextInt(40);
+                        if (random.nextInt(3) == 0) {
+                            node.removeLike(filmId, userId);
+                        } else {
+                            node.addLike(filmId, userId);
+                        }
+                        if (i % 100 == 0) {
+                            node.flush();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        cluster.forEach(ReplicatedFilmStorage::flush);
+
+        ReplicatedFilmStorage first = cluster.get(0);
+        assertTrue(first.countLikes() > 0);
+        for (ReplicatedFilmStorage node : cluster.subList(1, cluster.size())) {
+            for (long filmId = 1; filmId <= FILMS; filmId++) {
+                assertEquals(first.getLikes(filmId), node.getLikes(filmId));
+            }
+            assertEquals(first.getPopularFilms(FILMS), node.getPopularFilms(FILMS));
+            assertEquals(first.getPopularFilms(10, 2001), node.getPopularFilms(10, 2001));
+            assertEquals(first.countLikes(), node.countLikes());
+            assertEquals(first.maxLikesPerFilm(), node.maxLikesPerFilm());
+        }
+    }
+
+    @Test
+    void concurrentAddWinsOverRemove() {
+        List<ReplicatedFilmStorage> cluster = cluster(2);
+        ReplicatedFilmStorage a = cluster.get(0);
+        ReplicatedFilmStorage b = cluster.get(1);
+        a.addLike(1L, 7L);
+        a.flush();
+        assertEquals(Set.of(7L), b.getLikes(1L));
+
+        // b removes the like it has seen while a, unaware, likes again from another session.
+        b.removeLike(1L, 7L);
+        a.removeLike(1L, 7L);
+        a.addLike(1L, 7L);
+        a.flush();
+        b.flush();
+
+        assertEquals(Set.of(7L), a.getLikes(1L));
+        assertEquals(Set.of(7L), b.getLikes(1L));
+
+        b.removeLike(1L, 7L);
+        b.flush();
+        assertEquals(Set.of(), a.getLikes(1L));
+        assertEquals(List.of(LikeOperationResult.Status.UNCHANGED, LikeOperationResult.Status.FILM_NOT_FOUND),
+                a.applyLikes(List.of(new LikeOperation(1L, 7L, LikeOperation.Action.REMOVE),
+                        new LikeOperation(999L, 7L, LikeOperation.Action.ADD))));
+    }
+
+    @Test
+    void likesOfFilmNotAddedYetAreAppliedWithIt() {
+        String name = UUID.randomUUID().toString();
+        ReplicatedFilmStorage a = node(name, "a");
+        ReplicatedFilmStorage b = node(name, "b");
+        a.addFilm(TestData.film("Film", 2000));
+        a.addLike(1L, 3L);
+        a.addLike(1L, 4L);
+        a.flush();
+
+        b.addFilm(TestData.film("Film", 2000));
+
+        assertEquals(Set.of(3L, 4L), b.getLikes(1L));
+        assertEquals(2, b.maxLikesPerFilm());
+        assertEquals(List.of(1L), b.getPopularFilms(1).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void likesOfRestartedNodeReachItsPeers() {
+        String name = UUID.randomUUID().toString();
+        ReplicatedFilmStorage a = node(name, "a");
+        ReplicatedFilmStorage b = node(name, "b");
+        a.addFilm(TestData.film("Film", 2000));
+        b.addFilm(TestData.film("Film", 2000));
+        a.addLike(1L, 3L);
+        a.flush();
+        a.stop();
+
+        ReplicatedFilmStorage restarted = node(name, "a");
+        restarted.addFilm(TestData.film("Film", 2000));
+        restarted.addLike(1L, 4L);
+        restarted.flush();
+
+        assertEquals(Set.of(3L, 4L), b.getLikes(1L));
+        assertEquals(Set.of(3L, 4L), restarted.getLikes(1L));
+    }
+
+    @Test
+    void nodeJoiningLateGetsEarlierLikesAndRemovals() {
+        String name = UUID.randomUUID().toString();
+        ReplicatedFilmStorage a = withFilms(node(name, "a"), 3);
+        ReplicatedFilmStorage b = withFilms(node(name, "b"), 3);
+        a.addLike(1L, 1L);
+        a.addLike(1L, 2L);
+        b.addLike(2L, 3L);
+        a.flush();
+        b.flush();
+        b.removeLike(1L, 2L);
+        b.flush();
+        // Not shipped yet: the joining node learns them from a's state.
+        a.addLike(3L, 4L);
+        a.removeLike(2L, 3L);
+
+        ReplicatedFilmStorage c = withFilms(node(name, "c"), 3);
+
+        assertEquals(Set.of(1L), c.getLikes(1L));
+        assertEquals(Set.of(), c.getLikes(2L));
+        assertEquals(Set.of(4L), c.getLikes(3L));
+        assertEquals(Set.of(4L), b.getLikes(3L));
+        a.flush();
+        for (ReplicatedFilmStorage node : List.of(b, c)) {
+            for (long filmId = 1; filmId <= 3; filmId++) {
+                assertEquals(a.getLikes(filmId), node.getLikes(filmId));
+            }
+            assertEquals(a.getPopularFilms(3), node.getPopularFilms(3));
+        }
+    }
+
+    private List<ReplicatedFilmStorage> cluster(int size) {
+        String name = UUID.randomUUID().toString();
+        List<ReplicatedFilmStorage> cluster = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ReplicatedFilmStorage node = node(name, "node" + i);
+            for (int f = 0; f < FILMS; f++) {
+                node.addFilm(TestData.film("Film " + f, 2000 + f % 3));
+            }
+            cluster.add(node);
+        }
+        return cluster;
+    }
+
+    private ReplicatedFilmStorage withFilms(ReplicatedFilmStorage node, int count) {
+        for (int i = 0; i < count; i++) {
+            node.addFilm(TestData.film("Film " + i, 2000));
+        }
+        return node;
+    }
+
+    private ReplicatedFilmStorage node(String cluster, String nodeId) {
+        ReplicatedFilmStorage node = new ReplicatedFilmStorage(new LoopbackTransport(cluster), nodeId);
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentStorageTest {
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 500;
+
+    @Test
+    void concurrentAddsNeverRepeatIds() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Set<Long> filmIds = ConcurrentHashMap.newKeySet();
+        Set<Long> userIds = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                filmIds.add(filmStorage.addFilm(TestData.film("Film " + thread + "-" + i)).getId());
+                userIds.add(userStorage.addUser(TestData.user("user" + thread + "x" + i)).getId());
+            }
+        });
+
+        assertEquals(THREADS * PER_THREAD, filmIds.size());
+        assertEquals(THREADS * PER_THREAD, userIds.size());
+        assertEquals(THREADS * PER_THREAD, filmStorage.getAllFilms().size());
+        assertEquals(THREADS * PER_THREAD, userStorage.getAllUsers().size());
+    }
+
+    @Test
+    void concurrentLikesAreNotLost() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        List<Long> filmIds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            filmIds.add(filmStorage.addFilm(TestData.film("Film " + i)).getId());
+        }
+
+        // Film i receives likes from every thread for users 1..(i + 1) * 10, plus extra like/unlike churn.
+        runConcurrently(thread -> {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < filmIds.size(); i++) {
+                    for (long user = 1; user <= (i + 1) * 10L; user++) {
+                        filmStorage.addLike(filmIds.get(i), user);
+                    }
+                    long churnUser = 1000L + thread;
+                    filmStorage.addLike(filmIds.get(i), churnUser);
+                    filmStorage.removeLike(filmIds.get(i), churnUser);
+                }
+            }
+        });
+
+        List<Film> popular = filmStorage.getPopularFilms(filmIds.size());
+        List<Long> expected = new ArrayList<>(filmIds);
+        Collections.reverse(expected);
+        assertEquals(expected, popular.stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void concurrentFriendshipsStaySymmetric() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(userStorage.addUser(TestData.user("user" + i)).getId());
+        }
+
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < 2000; i++) {
+                Long a = ids.get(random.nextInt(ids.size()));
+                Long b = ids.get(random.nextInt(ids.size()));
+                if (a.equals(b)) {
+                    continue;
+                }
+                userStorage.addFriend(a, b);
+                userStorage.addFriend(b, a);
+                if (random.nextInt(3) == 0) {
+                    userStorage.removeFriend(b, a);
+                }
+            }
+        });
+
+        for (Long id : ids) {
+            for (User friend : userStorage.getFriends(id)) {
+                assertTrue(userStorage.getFriends(friend.getId()).stream()
+                        .anyMatch(user -> user.getId().equals(id)));
+            }
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,247 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest(properties = {"filmorate.storage=jdbc", "spring.sql.init.mode=always"})
+@Import({FilmDbStorage.class, UserDbStorage.class})
+class DbStorageTest {
+    @Autowired
+    private FilmDbStorage filmStorage;
+    @Autowired
+    private UserDbStorage userStorage;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void addAndUpdateFilm() {
+        Film film = filmStorage.addFilm(TestData.film("Film"));
+        assertNotNull(film.getId());
+
+        film.setName("Updated");
+        filmStorage.updateFilm(film);
+
+        assertEquals(film, filmStorage.getFilmById(film.getId()));
+        assertThrows(NotFoundException.class, () -> filmStorage.getFilmById(film.getId() + 100));
+    }
+
+    @Test
+    void pagesFollowIdOrder() {
+        Film first = filmStorage.addFilm(TestData.film("First"));
+        Film second = filmStorage.addFilm(TestData.film("Second"));
+        Film third = filmStorage.addFilm(TestData.film("Third"));
+        User user = userStorage.addUser(TestData.user("user"));
+
+        assertEquals(List.of(first, second), filmStorage.getFilmsPage(0, 2));
+        assertEquals(List.of(third), filmStorage.getFilmsPage(second.getId(), 2));
+        assertEquals(List.of(user), userStorage.getUsersPage(user.getId() - 1, 10));
+        assertTrue(userStorage.getUsersPage(user.getId(), 10).isEmpty());
+    }
+
+    @Test
+    void batchesGetIdsInOrder() {
+        List<Film> films = filmStorage.addFilms(List.of(TestData.film("First"), TestData.film("Second")));
+        List<User> users = userStorage.addUsers(List.of(TestData.user("user1"), TestData.user("user2"),
+                TestData.user("user3")));
+        userStorage.addFriendships(List.of(new Friendship(users.get(0).getId(), users.get(1).getId()),
+                new Friendship(users.get(0).getId(), users.get(2).getId()),
+                new Friendship(users.get(1).getId(), users.get(0).getId())));
+
+        assertEquals(films.get(0).getId() + 1, films.get(1).getId());
+        assertEquals(films, filmStorage.getFilmsPage(films.get(0).getId() - 1, 10));
+        assertEquals(users, userStorage.getUsersPage(users.get(0).getId() - 1, 10));
+        assertEquals(List.of(users.get(1), users.get(2)), userStorage.getFriends(users.get(0).getId()));
+        assertEquals(2, userStorage.countFriendships());
+        assertThrows(NotFoundException.class, () -> userStorage.addFriendships(
+                List.of(new Friendship(users.get(0).getId(), users.get(2).getId() + 100))));
+    }
+
+    @Test
+    void popularFilmsOrderedByLikes() {
+        Film first = filmStorage.addFilm(TestData.film("First"));
+        Film second = filmStorage.addFilm(TestData.film("Second"));
+        Film third = filmStorage.addFilm(TestData.film("Third"));
+        User user1 = userStorage.addUser(TestData.user("user1"));
+        User user2 = userStorage.addUser(TestData.user("user2"));
+
+        filmStorage.addLike(second.getId(), user1.getId());
+        filmStorage.addLike(second.getId(), user2.getId());
+        filmStorage.addLike(second.getId(), user2.getId());
+        filmStorage.addLike(third.getId(), user1.getId());
+        filmStorage.addLike(first.getId(), user1.getId());
+        filmStorage.removeLike(first.getId(), user1.getId());
+
+        assertEquals(List.of(second, third, first), filmStorage.getPopularFilms(10));
+        assertEquals(List.of(second), filmStorage.getPopularFilms(1));
+        assertEquals(3, filmStorage.countFilms());
+        assertEquals(3, filmStorage.countLikes());
+        assertEquals(2, filmStorage.maxLikesPerFilm());
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(first.getId() + 100, user1.getId()));
+    }
+
+    @Test
+    void rangeFiltersAndPopularFilmsOfYear() {
+        Film nineties = TestData.film("Nineties");
+        nineties.setReleaseDate(LocalDate.of(1995, 3, 1));
+        nineties.setDuration(95);
+        filmStorage.addFilm(nineties);
+        Film long90s = TestData.film("Long nineties");
+        long90s.setReleaseDate(LocalDate.of(1999, 12, 31));
+        long90s.setDuration(180);
+        filmStorage.addFilm(long90s);
+        Film recent = filmStorage.addFilm(TestData.film("Recent"));
+        User user = userStorage.addUser(TestData.user("user"));
+        filmStorage.addLike(long90s.getId(), user.getId());
+
+        FilmFilter ninetiesUnder100 = new FilmFilter(LocalDate.of(1990, 1, 1), LocalDate.of(1999, 12, 31),
+                null, 100);
+        FilmFilter atLeast120 = new FilmFilter(null, null, 120, null);
+        assertEquals(List.of(nineties), filmStorage.findFilms(ninetiesUnder100, 0, 10));
+        assertEquals(List.of(long90s, recent), filmStorage.findFilms(atLeast120, 0, 10));
+        assertEquals(List.of(recent), filmStorage.findFilms(atLeast120, long90s.getId(), 10));
+        assertEquals(List.of(long90s), filmStorage.getPopularFilms(10, 1999));
+        assertEquals(List.of(nineties), filmStorage.getPopularFilms(10, 1995));
+    }
+
+    @Test
+    void batchLikesReportPerOperationStatus() {
+        Film first = filmStorage.addFilm(TestData.film("First"));
+        Film second = filmStorage.addFilm(TestData.film("Second"));
+        User user1 = userStorage.addUser(TestData.user("user1"));
+        User user2 = userStorage.addUser(TestData.user("user2"));
+
+        List<LikeOperationResult.Status> statuses = filmStorage.applyLikes(List.of(
+                new LikeOperation(first.getId(), user1.getId(), LikeOperation.Action.ADD),
+                new LikeOperation(second.getId(), user1.getId(), LikeOperation.Action.ADD),
+                new LikeOperation(second.getId(), user2.getId(), LikeOperation.Action.ADD),
+                new LikeOperation(second.getId(), user2.getId(), LikeOperation.Action.ADD),
+                new LikeOperation(first.getId(), user1.getId(), LikeOperation.Action.REMOVE),
+                new LikeOperation(first.getId(), user2.getId(), LikeOperation.Action.REMOVE),
+                new LikeOperation(second.getId() + 100, user1.getId(), LikeOperation.Action.ADD)));
+
+        assertEquals(List.of(LikeOperationResult.Status.APPLIED, LikeOperationResult.Status.APPLIED,
+                LikeOperationResult.Status.APPLIED, LikeOperationResult.Status.UNCHANGED,
+                LikeOperationResult.Status.APPLIED, LikeOperationResult.Status.UNCHANGED,
+                LikeOperationResult.Status.FILM_NOT_FOUND), statuses);
+        assertEquals(List.of(second, first), filmStorage.getPopularFilms(10));
+    }
+
+    @Test
+    void likeCountsFollowRemovedUsers() {
+        Film first = filmStorage.addFilm(TestData.film("First"));
+        Film second = filmStorage.addFilm(TestData.film("Second"));
+        User user1 = userStorage.addUser(TestData.user("user1"));
+        User user2 = userStorage.addUser(TestData.user("user2"));
+        filmStorage.applyLikes(List.of(
+                new LikeOperation(first.getId(), user1.getId(), LikeOperation.Action.ADD),
+                new LikeOperation(first.getId(), user2.getId(), LikeOperation.Action.ADD),
+                new LikeOperation(second.getId(), user2.getId(), LikeOperation.Action.ADD)));
+
+        userStorage.removeUser(user1.getId());
+        filmStorage.addLike(second.getId(), user2.getId());
+
+        Map<Long, Integer> counts = new HashMap<>();
+        filmStorage.forEachLikeCount(counts::put);
+        assertEquals(Map.of(first.getId(), 1, second.getId(), 1), counts);
+        assertEquals(1, filmStorage.maxLikesPerFilm());
+        assertEquals(List.of(first, second), filmStorage.getPopularFilms(10));
+    }
+
+    // Runs outside the test transaction so that the concurrent like can see the film and the users.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void batchLikesRacingAConcurrentLikeKeepTheirCounts() throws Exception {
+        Film film = filmStorage.addFilm(TestData.film("Film"));
+        User user1 = userStorage.addUser(TestData.user("user1"));
+        User user2 = userStorage.addUser(TestData.user("user2"));
+        try (Connection concurrent = dataSource.getConnection()) {
+            concurrent.setAutoCommit(false);
+            try (Statement statement = concurrent.createStatement()) {
+                statement.executeUpdate("INSERT INTO likes (film_id, user_id) VALUES (" + film.getId() + ", "
+                        + user2.getId() + ")");
+                statement.executeUpdate("UPDATE films SET like_count = like_count + 1 WHERE id = " + film.getId());
+            }
+            CompletableFuture<Void> commit = CompletableFuture.runAsync(() -> {
+                try {
+                    Thread.sleep(300);
+                    concurrent.commit();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            List<LikeOperationResult.Status> statuses = filmStorage.applyLikes(List.of(
+                    new LikeOperation(film.getId(), user1.getId(), LikeOperation.Action.ADD),
+                    new LikeOperation(film.getId(), user2.getId(), LikeOperation.Action.ADD)));
+            commit.get();
+
+            assertEquals(List.of(LikeOperationResult.Status.APPLIED, LikeOperationResult.Status.UNCHANGED), statuses);
+            assertEquals(Set.of(user1.getId(), user2.getId()), filmStorage.getLikes(film.getId()));
+            assertEquals(2, filmStorage.maxLikesPerFilm());
+        } finally {
+            userStorage.removeUser(user1.getId());
+            userStorage.removeUser(user2.getId());
+            filmStorage.removeFilm(film.getId());
+        }
+    }
+
+    @Test
+    void friendsAndCommonFriends() {
+        User user1 = userStorage.addUser(TestData.user("user1"));
+        User user2 = userStorage.addUser(TestData.user("user2"));
+        User common = userStorage.addUser(TestData.user("common"));
+        User stranger = userStorage.addUser(TestData.user("stranger"));
+
+        userStorage.addFriend(user1.getId(), common.getId());
+        userStorage.addFriend(user2.getId(), common.getId());
+        userStorage.addFriend(user1.getId(), user2.getId());
+        userStorage.addFriend(user1.getId(), user2.getId());
+
+        assertEquals(List.of(user2, common), userStorage.getFriends(user1.getId()));
+        assertEquals(List.of(user1, user2), userStorage.getFriends(common.getId()));
+        assertEquals(4, userStorage.countUsers());
+        assertEquals(3, userStorage.countFriendships());
+        assertEquals(2, userStorage.maxFriendsPerUser());
+        assertEquals(List.of(common), userStorage.getCommonFriends(user1.getId(), user2.getId()));
+        assertEquals(Map.of(user2.getId(), 1, stranger.getId(), 0),
+                userStorage.getCommonFriendCounts(user1.getId(), List.of(user2.getId(), stranger.getId(), 999L)));
+
+        assertTrue(userStorage.getFriendSuggestions(stranger.getId(), 10).isEmpty());
+        userStorage.addFriend(stranger.getId(), common.getId());
+        assertEquals(List.of(user1, user2), userStorage.getFriendSuggestions(stranger.getId(), 10));
+        assertEquals(List.of(stranger), userStorage.getFriendSuggestions(user1.getId(), 10));
+
+        userStorage.removeFriend(stranger.getId(), common.getId());
+        userStorage.removeFriend(user2.getId(), common.getId());
+        assertTrue(userStorage.getCommonFriends(user1.getId(), user2.getId()).isEmpty());
+
+        userStorage.removeUser(common.getId());
+        assertEquals(List.of(user2), userStorage.getFriends(user1.getId()));
+        assertThrows(NotFoundException.class, () -> userStorage.getFriends(common.getId()));
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.wal.DurabilityManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurabilityTest {
+    private Path directory;
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private DurabilityManager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("filmorate-journal");
+        restart();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        manager.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void recoversSnapshotAndLogTail() throws IOException {
+        Film first = filmStorage.addFilm(TestData.film("First"));
+        Film second = filmStorage.addFilm(TestData.film("Second"));
+        User user1 = userStorage.addUser(TestData.user("user1"));
+        User user2 = userStorage.addUser(TestData.user("user2"));
+        User user3 = userStorage.addUser(TestData.user("user3"));
+        filmStorage.addLike(first.getId(), user1.getId());
+        filmStorage.addLike(second.getId(), user1.getId());
+        filmStorage.addLike(second.getId(), user2.getId());
+        userStorage.addFriend(user1.getId(), user2.getId());
+        userStorage.addFriend(user1.getId(), user3.getId());
+
+        manager.snapshot();
+
+        second.setName("Second, updated");
+        filmStorage.updateFilm(second);
+        filmStorage.removeLike(second.getId(), user2.getId());
+        filmStorage.addLike(first.getId(), user3.getId());
+        Film third = filmStorage.addFilm(TestData.film("Third"));
+        filmStorage.removeFilm(third.getId());
+        userStorage.removeUser(user3.getId());
+        userStorage.removeFriend(user1.getId(), user2.getId());
+
+        restart();
+
+        assertEquals(List.of(first, second), filmStorage.getPopularFilms(10));
+        assertEquals("Second, updated", filmStorage.getFilmById(second.getId()).getName());
+        assertEquals(2, filmStorage.getLikes(first.getId()).size());
+        assertEquals(List.of(user1, user2), userStorage.getAllUsers());
+        assertTrue(userStorage.getFriends(user1.getId()).isEmpty());
+        assertEquals(third.getId() + 1, filmStorage.addFilm(TestData.film("Fourth")).getId());
+        assertEquals(user3.getId() + 1, userStorage.addUser(TestData.user("user4")).getId());
+    }
+
+    @Test
+    void ignoresTornRecordAtLogTail() throws IOException {
+        Film film = filmStorage.addFilm(TestData.film("Film"));
+        filmStorage.addLike(film.getId(), 1L);
+        manager.stop();
+        manager = null;
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.filter(path -> path.getFileName().toString().endsWith(".log"))
+                    .findFirst()
+                    .orElseThrow();
+            Files.write(segment, new byte[]{0, 0, 0, 42, 3, 0, 0}, StandardOpenOption.APPEND);
+        }
+
+        restart();
+
+        assertEquals(List.of(film), filmStorage.getAllFilms());
+        assertEquals(1, filmStorage.getLikes(film.getId()).size());
+    }
+
+    private void restart() throws IOException {
+        if (manager != null) {
+            manager.stop();
+        }
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        manager = new DurabilityManager(filmStorage, userStorage, directory, true, Duration.ZERO);
+        manager.start();
+    }
+}
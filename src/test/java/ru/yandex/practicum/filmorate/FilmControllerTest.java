@@ -3,10 +3,21 @@ package ru.yandex.practicum.filmorate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,7 +39,7 @@ class FilmControllerTest {
 
         Film addedFilm = filmController.addFilm(film);
         assertNotNull(addedFilm.getId());
-        assertEquals(1, filmController.getAllFilms().size());
+        assertEquals(1, filmController.getAllFilms(new FilmFilter()).size());
     }
 
     @Test
@@ -84,7 +95,7 @@ class FilmControllerTest {
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
         film.setDuration(120);
 
-        assertThrows(ValidationException.class, () -> filmController.updateFilm(film));
+        assertThrows(NotFoundException.class, () -> filmController.updateFilm(film));
     }
 
     @Test
@@ -95,7 +106,84 @@ class FilmControllerTest {
         filmController.addFilm(film1);
         filmController.addFilm(film2);
 
-        assertEquals(2, filmController.getAllFilms().size());
+        assertEquals(2, filmController.getAllFilms(new FilmFilter()).size());
+    }
+
+    @Test
+    void filmsPageLinksToNextPage() {
+        filmController.addFilm(createTestFilm("Film 1"));
+        filmController.addFilm(createTestFilm("Film 2"));
+        filmController.addFilm(createTestFilm("Film 3"));
+
+        ResponseEntity<List<Film>> first = filmController.getFilmsPage(0, 2, new FilmFilter());
+        assertEquals(2, first.getBody().size());
+        assertEquals("</films?after=2&limit=2>; rel=\"next\"", first.getHeaders().getFirst(HttpHeaders.LINK));
+
+        ResponseEntity<List<Film>> last = filmController.getFilmsPage(2, 2, new FilmFilter());
+        assertEquals(1, last.getBody().size());
+        assertNull(last.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    void filteredPagesKeepFiltersInNextLink() {
+        for (int i = 0; i < 3; i++) {
+            filmController.addFilm(createTestFilm("Film " + i));
+        }
+        FilmFilter filter = new FilmFilter(LocalDate.of(1990, 1, 1), null, null, 150);
+
+        ResponseEntity<List<Film>> first = filmController.getFilmsPage(0, 2, filter);
+        assertEquals(2, first.getBody().size());
+        assertEquals("</films?releasedFrom=1990-01-01&maxDuration=150&after=2&limit=2>; rel=\"next\"",
+                first.getHeaders().getFirst(HttpHeaders.LINK));
+        assertTrue(filmController.getAllFilms(new FilmFilter(null, null, 1, 10)).isEmpty());
+    }
+
+    @Test
+    void streamFilmsWritesOneJsonLinePerFilm() throws IOException {
+        for (int i = 0; i < 1200; i++) {
+            filmController.addFilm(createTestFilm("Film " + i));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filmController.streamFilms().getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1200, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,\"name\":\"Film 0\""));
+        assertTrue(lines[1199].contains("\"releaseDate\":\"2000-01-01\""));
+    }
+
+    @Test
+    void popularFilmsAnswerNotModifiedUntilFilmsChange() {
+        Film film = filmController.addFilm(createTestFilm("Film 1"));
+        filmController.addFilm(createTestFilm("Film 2"));
+
+        ResponseEntity<byte[]> first = filmController.getPopularFilms(10, null, null, null);
+        String etag = first.getHeaders().getETag();
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, filmController.getPopularFilms(10, null, etag, null).getStatusCode());
+        assertEquals(HttpStatus.OK, filmController.getPopularFilms(1, null, etag, null).getStatusCode());
+
+        film.setName("Film 1, updated");
+        filmController.updateFilm(film);
+
+        ResponseEntity<byte[]> changed = filmController.getPopularFilms(10, null, etag, null);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        assertTrue(new String(changed.getBody(), StandardCharsets.UTF_8).contains("Film 1, updated"));
+    }
+
+    @Test
+    void batchLikesOfUnknownUsersAreNotApplied() {
+        Film film = filmController.addFilm(createTestFilm("Film"));
+
+        List<LikeOperationResult> results = filmController.applyLikes(List.of(
+                new LikeOperation(film.getId(), 1L, LikeOperation.Action.ADD)));
+
+        assertEquals(List.of(new LikeOperationResult(film.getId(), 1L, LikeOperationResult.Status.USER_NOT_FOUND)),
+                results);
+        assertEquals(List.of(film), filmController.getAllFilms(new FilmFilter()));
     }
 
     private Film createTestFilm(String name) {
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmRecommendations;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmRecommendationsTest {
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+    private final FilmRecommendations recommendations = new FilmRecommendations(storage, 5);
+    private final FilmService filmService = new FilmService(storage, List.of(recommendations));
+
+    @Test
+    void recommendsFilmsLikedByUsersWithSimilarTaste() {
+        for (int i = 1; i <= 4; i++) {
+            filmService.addFilm(TestData.film("Film " + i));
+        }
+        like(1, 1, 2, 3);
+        like(2, 1, 2);
+        like(3, 1, 4);
+        like(4, 4);
+
+        assertEquals(List.of(2L, 3L, 4L), recommendations.similar(1, 10));
+        assertEquals(List.of(1L), recommendations.similar(2, 1));
+        assertEquals(List.of(3L, 4L), recommendations.recommendFor(2, 10));
+        assertEquals(List.of(1L), recommendations.recommendFor(4, 10));
+
+        filmService.removeFilm(1L);
+        assertEquals(List.of(3L), recommendations.similar(2, 10));
+        assertTrue(recommendations.recommendFor(4, 10).isEmpty());
+    }
+
+    @Test
+    void incrementalUpdatesMatchFullRebuild() {
+        for (int i = 0; i < 40; i++) {
+            filmService.addFilm(TestData.film("Film " + i));
+        }
+        Random random = new Random(11);
+        for (int i = 0; i < 3000; i++) {
+            long filmId = 1 + random.nextInt(40);
+            long userId = 1 + random.nextInt(60);
+            if (random.nextInt(3) > 0) {
+                filmService.addLike(filmId, userId);
+            } else {
+                filmService.removeLike(filmId, userId);
+            }
+        }
+        filmService.removeFilm(7L);
+        filmService.removeFilm(21L);
+
+        FilmRecommendations rebuilt = new FilmRecommendations(storage, 5);
+        rebuilt.rebuild();
+        for (long filmId = 1; filmId <= 40; filmId++) {
+            assertEquals(rebuilt.similar(filmId, 5), recommendations.similar(filmId, 5), "film " + filmId);
+        }
+        for (long userId = 1; userId <= 60; userId++) {
+            assertEquals(rebuilt.recommendFor(userId, 5), recommendations.recommendFor(userId, 5), "user " + userId);
+        }
+    }
+
+    @Test
+    void concurrentLikesDuringRebuildMatchFullRebuild() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            filmService.addFilm(TestData.film("Film " + i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(thread);
+                    for (int i = 0; i < 5000; i++) {
+                        long filmId = 1 + random.nextInt(40);
+                        long userId = 1 + random.nextInt(60);
+                        if (random.nextInt(3) > 0) {
+                            filmService.addLike(filmId, userId);
+                        } else {
+                            filmService.removeLike(filmId, userId);
+                        }
+                        if (thread == 0 && i % 1000 == 0) {
+                            recommendations.rebuild();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        FilmRecommendations rebuilt = new FilmRecommendations(storage, 5);
+        rebuilt.rebuild();
+        for (long filmId = 1; filmId <= 40; filmId++) {
+            assertEquals(rebuilt.similar(filmId, 5), recommendations.similar(filmId, 5), "film " + filmId);
+        }
+        for (long userId = 1; userId <= 60; userId++) {
+            assertEquals(rebuilt.recommendFor(userId, 5), recommendations.recommendFor(userId, 5), "user " + userId);
+        }
+    }
+
+    @Test
+    void eventsOfRacingChangesFollowTheStorage() {
+        for (int i = 1; i <= 3; i++) {
+            filmService.addFilm(TestData.film("Film " + i));
+        }
+        like(1, 1, 2);
+        // The storage adds and then removes the like of film 3, but the events arrive the other way round.
+        storage.addLike(3L, 1L);
+        storage.removeLike(3L, 1L);
+        recommendations.likeRemoved(3, 1);
+        recommendations.likeAdded(3, 1);
+
+        assertEquals(List.of(2L), recommendations.similar(1, 10));
+        assertTrue(recommendations.similar(3, 10).isEmpty());
+        like(2, 1);
+        assertEquals(List.of(2L), recommendations.recommendFor(2, 10));
+    }
+
+    private void like(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            filmService.addLike(filmId, userId);
+        }
+    }
+}
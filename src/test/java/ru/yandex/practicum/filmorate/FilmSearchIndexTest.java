@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+    private static final int FILM_NAME_WEIGHT = 3;
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+    private final FilmSearchIndex index = new FilmSearchIndex(storage);
+    private final FilmService filmService = new FilmService(storage, List.of(index));
+
+    @Test
+    void findsFilmsContainingEveryWordRankedByRelevanceAndLikes() {
+        Film matrix = filmService.addFilm(createTestFilm("The Matrix", "A hacker learns the truth"));
+        Film reloaded = filmService.addFilm(createTestFilm("The Matrix Reloaded", "Neo fights on"));
+        Film hackers = filmService.addFilm(createTestFilm("Hackers", "Teenagers hack into the matrix"));
+
+        assertEquals(List.of(matrix.getId(), reloaded.getId(), hackers.getId()), index.search("MATRIX", 10));
+        assertEquals(List.of(reloaded.getId()), index.search("matrix, reloaded!", 10));
+        assertTrue(index.search("matrix revolutions", 10).isEmpty());
+
+        filmService.addLike(reloaded.getId(), 1L);
+        filmService.addLike(hackers.getId(), 1L);
+        filmService.addLike(hackers.getId(), 2L);
+        filmService.addLike(hackers.getId(), 3L);
+        assertEquals(List.of(reloaded.getId(), matrix.getId()), index.search("matrix", 2));
+        assertEquals(List.of(matrix.getId()), index.search("hacker", 10));
+    }
+
+    @Test
+    void foldsCaseAndYoInCyrillicText() {
+        Film film = filmService.addFilm(createTestFilm("Ёлки", "Новогодняя комедия"));
+
+        assertEquals(List.of(film.getId()), index.search("елки", 10));
+        assertEquals(List.of(film.getId()), index.search("НОВОГОДНЯЯ ЁЛКИ", 10));
+        assertEquals(List.of(film.getId()), index.complete("ёл", 10));
+        assertTrue(index.complete("ново", 10).isEmpty());
+    }
+
+    @Test
+    void followsUpdatesAndRemovals() {
+        Film film = filmService.addFilm(createTestFilm("Brother", "Danila comes to Petersburg"));
+        Film sequel = filmService.addFilm(createTestFilm("Brother 2", "Danila goes to America"));
+
+        assertEquals(List.of(film.getId(), sequel.getId()), index.complete("bro", 10));
+        assertEquals(List.of(sequel.getId()), index.complete("brother 2", 10));
+
+        film.setName("Sister");
+        filmService.updateFilm(film);
+        assertEquals(List.of(sequel.getId()), index.complete("bro", 10));
+        assertEquals(List.of(film.getId()), index.search("sister petersburg", 10));
+
+        filmService.removeFilm(sequel.getId());
+        assertTrue(index.complete("bro", 10).isEmpty());
+        assertEquals(List.of(film.getId()), index.search("danila", 10));
+
+        index.rebuild();
+        assertEquals(List.of(film.getId()), index.search("danila", 10));
+        assertEquals(List.of(film.getId()), index.complete("s", 10));
+    }
+
+    @Test
+    void rankingOfCommonWordsMatchesFullScan() {
+        Random random = new Random(1);
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = 0; i < 6000; i++) {
+            boolean inName = random.nextBoolean();
+            Film film = filmService.addFilm(createTestFilm(inName ? "Common " + i : "Film " + i,
+                    random.nextInt(3) == 0 ? "Rare" : "Common text"));
+            int likes = random.nextInt(4) == 0 ? random.nextInt(20) : 0;
+            for (long userId = 1; userId <= likes; userId++) {
+                filmService.addLike(film.getId(), userId);
+            }
+            int weight = (inName ? FILM_NAME_WEIGHT : 0) + (film.getDescription().equals("Common text") ? 1 : 0);
+            if (weight > 0) {
+                scores.put(film.getId(), weight * (1 + Math.log1p(likes)));
+            }
+        }
+        List<Long> expected = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(50)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        assertEquals(expected, index.search("common", 50));
+    }
+
+    @Test
+    void completionOfShortPrefixMatchesFullScan() {
+        String[] words = {"star", "sun", "storm", "moon", "sky", "river", "stone", "sea"};
+        Random random = new Random(2);
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = 0; i < 6000; i++) {
+            String word = words[random.nextInt(words.length)];
+            Film film = filmService.addFilm(createTestFilm(word + " " + i, "Some story"));
+            int likes = random.nextInt(4) == 0 ? random.nextInt(20) : 0;
+            for (long userId = 1; userId <= likes; userId++) {
+                filmService.addLike(film.getId(), userId);
+            }
+            if (word.startsWith("s")) {
+                scores.put(film.getId(), FILM_NAME_WEIGHT * (1 + Math.log1p(likes)));
+            }
+        }
+        List<Long> expected = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        assertEquals(expected, index.complete("s", 10));
+        index.rebuild();
+        assertEquals(expected, index.complete("s", 10));
+    }
+
+    private Film createTestFilm(String name, String description) {
+        Film film = TestData.film(name);
+        film.setDescription(description);
+        return film;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Heap per friendship is reported by FriendGraphFootprint in the jmh profile.
+class FriendGraphTest {
+    private static final int USERS = 2_000;
+    private static final int EDGES = 20_000;
+
+    @Test
+    void friendGraphMatchesBoxedSets() {
+        Map<Long, Set<Long>> expected = new HashMap<>();
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        for (int i = 0; i < USERS; i++) {
+            expected.put(storage.addUser(TestData.user("user" + i)).getId(), new TreeSet<>());
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < EDGES; i++) {
+            long a = random.nextInt(USERS) + 1;
+            long b = random.nextInt(USERS) + 1;
+            if (a == b) {
+                continue;
+            }
+            if (random.nextInt(4) == 0) {
+                storage.removeFriend(a, b);
+                expected.get(a).remove(b);
+                expected.get(b).remove(a);
+            } else {
+                storage.addFriend(a, b);
+                expected.get(a).add(b);
+                expected.get(b).add(a);
+            }
+        }
+
+        for (long id = 1; id <= USERS; id++) {
+            List<Long> friends = storage.getFriends(id).stream().map(User::getId).toList();
+            assertEquals(new ArrayList<>(expected.get(id)), friends, "user " + id);
+        }
+    }
+}
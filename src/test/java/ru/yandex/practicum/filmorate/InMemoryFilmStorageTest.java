@@ -0,0 +1,222 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmStorageTest {
+    private InMemoryFilmStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage();
+    }
+
+    @Test
+    void popularFilmsMatchSortByLikes() {
+        Random random = new Random(42);
+        Map<Long, Set<Long>> expectedLikes = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            Film film = storage.addFilm(TestData.film("Film " + i));
+            expectedLikes.put(film.getId(), new HashSet<>());
+        }
+        List<Long> ids = new ArrayList<>(expectedLikes.keySet());
+        for (int i = 0; i < 5000; i++) {
+            Long filmId = ids.get(random.nextInt(ids.size()));
+            Long userId = (long) random.nextInt(50) + 1;
+            if (random.nextInt(4) == 0) {
+                storage.removeLike(filmId, userId);
+                expectedLikes.get(filmId).remove(userId);
+            } else {
+                storage.addLike(filmId, userId);
+                expectedLikes.get(filmId).add(userId);
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            Long filmId = ids.remove(random.nextInt(ids.size()));
+            storage.removeFilm(filmId);
+            expectedLikes.remove(filmId);
+        }
+
+        for (int count : new int[]{1, 10, 50, 180, 500}) {
+            List<Film> expected = storage.getAllFilms().stream()
+                    .sorted(Comparator.comparing(Film::getId))
+                    .sorted((f1, f2) -> Integer.compare(
+                            expectedLikes.get(f2.getId()).size(), expectedLikes.get(f1.getId()).size()))
+                    .limit(count)
+                    .toList();
+            assertEquals(expected, storage.getPopularFilms(count));
+        }
+    }
+
+    @Test
+    void popularFilmsIgnoreRepeatedLikes() {
+        Film first = storage.addFilm(TestData.film("First"));
+        Film second = storage.addFilm(TestData.film("Second"));
+
+        storage.addLike(second.getId(), 1L);
+        storage.addLike(second.getId(), 1L);
+        storage.addLike(first.getId(), 1L);
+        storage.addLike(first.getId(), 2L);
+        storage.removeLike(second.getId(), 2L);
+
+        assertEquals(List.of(first, second), storage.getPopularFilms(10));
+    }
+
+    @Test
+    void pagesWalkAllFilmsInIdOrder() {
+        for (int i = 0; i < 25; i++) {
+            storage.addFilm(TestData.film("Film " + i));
+        }
+        storage.removeFilm(3L);
+        storage.removeFilm(7L);
+        storage.removeFilm(25L);
+
+        List<Film> walked = new ArrayList<>();
+        List<Film> page;
+        long afterId = 0;
+        do {
+            page = storage.getFilmsPage(afterId, 7);
+            walked.addAll(page);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 7);
+
+        List<Film> expected = storage.getAllFilms().stream()
+                .sorted(Comparator.comparing(Film::getId))
+                .toList();
+        assertEquals(expected, walked);
+        assertEquals(22, walked.size());
+        assertTrue(storage.getFilmsPage(24, 7).isEmpty());
+    }
+
+    @Test
+    void batchLikesMatchOneByOneLikes() {
+        InMemoryFilmStorage reference = new InMemoryFilmStorage();
+        for (int i = 0; i < 20; i++) {
+            storage.addFilm(TestData.film("Film " + i));
+            reference.addFilm(TestData.film("Film " + i));
+        }
+        Random random = new Random(7);
+        List<LikeOperation> operations = new ArrayList<>();
+        List<LikeOperationResult.Status> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long filmId = 1 + random.nextInt(22);
+            long userId = 1 + random.nextInt(15);
+            boolean add = random.nextInt(4) > 0;
+            operations.add(new LikeOperation(filmId, userId,
+                    add ? LikeOperation.Action.ADD : LikeOperation.Action.REMOVE));
+            if (filmId > 20) {
+                expected.add(LikeOperationResult.Status.FILM_NOT_FOUND);
+                continue;
+            }
+            int before = reference.getLikes(filmId).size();
+            if (add) {
+                reference.addLike(filmId, userId);
+            } else {
+                reference.removeLike(filmId, userId);
+            }
+            expected.add(reference.getLikes(filmId).size() == before
+                    ? LikeOperationResult.Status.UNCHANGED
+                    : LikeOperationResult.Status.APPLIED);
+        }
+
+        assertEquals(expected, storage.applyLikes(operations));
+        assertEquals(reference.getPopularFilms(20), storage.getPopularFilms(20));
+        for (long filmId = 1; filmId <= 20; filmId++) {
+            assertEquals(reference.getLikes(filmId), storage.getLikes(filmId));
+        }
+    }
+
+    @Test
+    void rangeQueriesMatchFilteringAllFilms() {
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            Film film = TestData.film("Film " + i);
+            film.setReleaseDate(LocalDate.of(1980 + random.nextInt(40), 1 + random.nextInt(12), 1));
+            film.setDuration(60 + random.nextInt(120));
+            storage.addFilm(film);
+        }
+        for (int i = 0; i < 100; i++) {
+            long filmId = 1 + random.nextInt(300);
+            try {
+                if (random.nextInt(5) == 0) {
+                    storage.removeFilm(filmId);
+                    continue;
+                }
+                // A changed copy, and the stored object changed in place, must both move in the indexes.
+                Film film = random.nextBoolean() ? storage.getFilmById(filmId) : copy(storage.getFilmById(filmId));
+                film.setReleaseDate(film.getReleaseDate().plusYears(random.nextInt(21) - 10));
+                film.setDuration(60 + random.nextInt(120));
+                storage.updateFilm(film);
+            } catch (NotFoundException ignore) {
+                // Removed earlier.
+            }
+        }
+        List<FilmFilter> filters = List.of(
+                new FilmFilter(LocalDate.of(1990, 1, 1), LocalDate.of(1999, 12, 31), null, 100),
+                new FilmFilter(LocalDate.of(2015, 6, 1), null, null, null),
+                new FilmFilter(null, null, 170, null),
+                new FilmFilter(LocalDate.of(1985, 1, 1), LocalDate.of(2005, 1, 1), 90, 150),
+                new FilmFilter(LocalDate.of(2000, 1, 1), LocalDate.of(1999, 1, 1), null, null));
+
+        for (FilmFilter filter : filters) {
+            List<Film> expected = storage.getAllFilms().stream().filter(filter::matches).toList();
+            List<Film> walked = new ArrayList<>();
+            List<Film> page;
+            long afterId = 0;
+            do {
+                page = storage.findFilms(filter, afterId, 9);
+                walked.addAll(page);
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == 9);
+            assertEquals(expected, walked, filter.toString());
+        }
+    }
+
+    @Test
+    void popularFilmsOfYearFollowReleaseDateChanges() {
+        Film old = TestData.film("Old");
+        old.setReleaseDate(LocalDate.of(1999, 5, 1));
+        storage.addFilm(old);
+        Film first = storage.addFilm(TestData.film("First"));
+        Film second = storage.addFilm(TestData.film("Second"));
+        storage.addLike(second.getId(), 1L);
+        storage.addLike(old.getId(), 1L);
+        storage.addLike(old.getId(), 2L);
+
+        assertEquals(List.of(second, first), storage.getPopularFilms(10, 2000));
+        assertEquals(List.of(old), storage.getPopularFilms(10, 1999));
+
+        Film moved = copy(old);
+        moved.setReleaseDate(LocalDate.of(2000, 12, 31));
+        storage.updateFilm(moved);
+        storage.removeFilm(second.getId());
+
+        assertEquals(List.of(moved, first), storage.getPopularFilms(10, 2000));
+        assertTrue(storage.getPopularFilms(10, 1999).isEmpty());
+    }
+
+    private static Film copy(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        return copy;
+    }
+}
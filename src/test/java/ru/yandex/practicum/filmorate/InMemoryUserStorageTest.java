@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.TimeBudgetExceededException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserStorageTest {
+    private static final int USERS = 12_000;
+
+    private InMemoryUserStorage storage;
+    private Map<Long, Set<Long>> expectedFriends;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryUserStorage();
+        expectedFriends = new HashMap<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = storage.addUser(TestData.user("user" + i));
+            expectedFriends.put(user.getId(), new HashSet<>());
+        }
+        Random random = new Random(11);
+        // Users 1..4 are dense hubs, 5..20 have a handful of friends, the rest are random.
+        for (long hub = 1; hub <= 4; hub++) {
+            for (int i = 0; i < 3000; i++) {
+                befriend(hub, 21 + random.nextInt(USERS - 21));
+            }
+        }
+        for (long user = 5; user <= 20; user++) {
+            for (int i = 0; i < 5; i++) {
+                befriend(user, 21 + random.nextInt(USERS - 21));
+            }
+        }
+        for (int i = 0; i < 30_000; i++) {
+            befriend(21 + random.nextInt(USERS - 21), 21 + random.nextInt(USERS - 21));
+        }
+    }
+
+    @Test
+    void commonFriendsMatchSetIntersection() {
+        long[][] pairs = {{1, 2}, {3, 4}, {1, 5}, {5, 1}, {5, 6}, {30, 40}, {1, 30}, {7, 7}};
+        for (long[] pair : pairs) {
+            Set<Long> expected = new TreeSet<>(expectedFriends.get(pair[0]));
+            expected.retainAll(expectedFriends.get(pair[1]));
+            List<Long> actual = storage.getCommonFriends(pair[0], pair[1]).stream()
+                    .map(User::getId)
+                    .toList();
+            assertEquals(new ArrayList<>(expected), actual);
+        }
+    }
+
+    @Test
+    void commonFriendCountsMatchForManyCandidates() {
+        List<Long> candidates = new ArrayList<>();
+        for (long id = 2; id <= 200; id++) {
+            candidates.add(id);
+        }
+        candidates.add(USERS + 100L);
+
+        Map<Long, Integer> counts = storage.getCommonFriendCounts(1L, candidates);
+
+        assertEquals(candidates.size() - 1, counts.size());
+        assertFalse(counts.containsKey(USERS + 100L));
+        for (Long candidate : counts.keySet()) {
+            Set<Long> expected = new HashSet<>(expectedFriends.get(1L));
+            expected.retainAll(expectedFriends.get(candidate));
+            assertEquals(expected.size(), counts.get(candidate), "candidate " + candidate);
+        }
+    }
+
+    @Test
+    void removedFriendshipIsNotCommonAnymore() {
+        long common = expectedFriends.get(5L).iterator().next();
+        befriend(6, common);
+        assertTrue(storage.getCommonFriends(5L, 6L).stream().anyMatch(user -> user.getId() == common));
+
+        storage.removeFriend(6L, common);
+
+        assertTrue(storage.getCommonFriends(5L, 6L).stream().noneMatch(user -> user.getId() == common));
+    }
+
+    @Test
+    void suggestionsRankFriendsOfFriendsByMutualFriends() {
+        for (long userId = 5; userId <= 20; userId++) {
+            assertEquals(expectedSuggestions(userId, 10), suggestedIds(userId, 10), "user " + userId);
+        }
+        assertTrue(storage.getFriendSuggestions(USERS - 1L, 5).size() <= 5);
+    }
+
+    @Test
+    void suggestionsForLargeNeighborhoodMatchSequentialCount() {
+        Random random = new Random(3);
+        List<Long> friends = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            long friendId = 21 + random.nextInt(USERS - 21);
+            befriend(5, friendId);
+            friends.add(friendId);
+        }
+        for (long friendId : friends) {
+            for (int i = 0; i < 220; i++) {
+                befriend(friendId, 21 + random.nextInt(2000));
+            }
+        }
+
+        assertEquals(expectedSuggestions(5L, 50), suggestedIds(5L, 50));
+    }
+
+    @Test
+    void friendPathsAreShortestChains() {
+        long[][] pairs = {{5, 6}, {7, 3000}, {21, 11_999}, {1, 2}, {9, 9}, {100, 200}};
+        for (long[] pair : pairs) {
+            List<Long> path = storage.getFriendPath(pair[0], pair[1], 10, Duration.ofSeconds(10)).stream()
+                    .map(User::getId)
+                    .toList();
+            assertEquals(pair[0], path.get(0));
+            assertEquals(pair[1], path.get(path.size() - 1));
+            for (int i = 1; i < path.size(); i++) {
+                assertTrue(expectedFriends.get(path.get(i - 1)).contains(path.get(i)), "chain " + path);
+            }
+            assertEquals(distance(pair[0], pair[1]), path.size() - 1, "pair " + Arrays.toString(pair));
+        }
+        int distance = distance(5, 6);
+        assertTrue(storage.getFriendPath(5L, 6L, distance - 1, Duration.ofSeconds(10)).isEmpty());
+        // A spent budget is not the same answer as no path.
+        assertThrows(TimeBudgetExceededException.class,
+                () -> storage.getFriendPath(5L, 6L, 10, Duration.ofNanos(-1)));
+    }
+
+    private int distance(long from, long to) {
+        Map<Long, Integer> depths = new HashMap<>(Map.of(from, 0));
+        Deque<Long> queue = new ArrayDeque<>(List.of(from));
+        while (!queue.isEmpty()) {
+            long current = queue.poll();
+            if (current == to) {
+                return depths.get(current);
+            }
+            for (long friendId : expectedFriends.get(current)) {
+                if (depths.putIfAbsent(friendId, depths.get(current) + 1) == null) {
+                    queue.add(friendId);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private List<Long> suggestedIds(long userId, int limit) {
+        return storage.getFriendSuggestions(userId, limit).stream()
+                .map(User::getId)
+                .toList();
+    }
+
+    private List<Long> expectedSuggestions(long userId, int limit) {
+        Set<Long> friends = expectedFriends.get(userId);
+        Map<Long, Integer> mutual = new HashMap<>();
+        for (long friendId : friends) {
+            for (long candidate : expectedFriends.get(friendId)) {
+                if (candidate != userId && !friends.contains(candidate)) {
+                    mutual.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return mutual.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private void befriend(long userId, long friendId) {
+        if (userId == friendId) {
+            return;
+        }
+        storage.addFriend(userId, friendId);
+        expectedFriends.get(userId).add(friendId);
+        expectedFriends.get(friendId).add(userId);
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikePipeline;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikePipelineTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final FilmService filmService = new FilmService(filmStorage);
+    private LikePipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    void queuedLikesAreVisibleToTheActingUser() {
+        pipeline = asyncPipeline(LikePipeline.Backpressure.BLOCK, 16);
+        pipeline.start();
+        Film first = filmService.addFilm(TestData.film("First"));
+        Film second = filmService.addFilm(TestData.film("Second"));
+
+        for (long userId = 1; userId <= 100; userId++) {
+            assertTrue(pipeline.submit(new LikeOperation(second.getId(), userId, LikeOperation.Action.ADD)));
+        }
+        pipeline.submit(new LikeOperation(first.getId(), 1L, LikeOperation.Action.ADD));
+        pipeline.submit(new LikeOperation(second.getId(), 100L, LikeOperation.Action.REMOVE));
+        pipeline.awaitApplied(100L);
+
+        assertEquals(List.of(second, first), filmService.getPopularFilms(10));
+        assertThrows(NotFoundException.class,
+                () -> pipeline.submit(new LikeOperation(42L, 1L, LikeOperation.Action.ADD)));
+    }
+
+    @Test
+    void fullQueueRejectsOperations() throws InterruptedException {
+        pipeline = asyncPipeline(LikePipeline.Backpressure.REJECT, 2);
+        Film film = filmService.addFilm(TestData.film("Film"));
+
+        pipeline.submit(new LikeOperation(film.getId(), 1L, LikeOperation.Action.ADD));
+        pipeline.submit(new LikeOperation(film.getId(), 2L, LikeOperation.Action.ADD));
+        assertThrows(OverloadedException.class,
+                () -> pipeline.submit(new LikeOperation(film.getId(), 3L, LikeOperation.Action.ADD)));
+        assertEquals(2, pipeline.getStats().queueDepth());
+        assertEquals(1, pipeline.getStats().rejected());
+
+        pipeline.start();
+        pipeline.stop();
+
+        assertEquals(0, pipeline.getStats().queueDepth());
+        assertEquals(Set.of(1L, 2L), filmStorage.getLikes(film.getId()));
+        assertEquals(2, pipeline.getStats().applied());
+    }
+
+    private LikePipeline asyncPipeline(LikePipeline.Backpressure backpressure, int capacity) {
+        return new LikePipeline(filmService, true, backpressure, capacity, Duration.ofSeconds(5),
+                Duration.ofSeconds(5), 8);
+    }
+}
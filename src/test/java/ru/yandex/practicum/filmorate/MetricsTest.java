@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmorateMetrics;
+import ru.yandex.practicum.filmorate.service.LikePipeline;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final FilmService filmService = new FilmService(filmStorage, List.of(), registry);
+    private final UserService userService = new UserService(userStorage, 6, Duration.ofMillis(200), registry);
+
+    @Test
+    void timesOperationsPerStorageIncludingFailedOnes() {
+        Film film = filmService.addFilm(TestData.film("Film"));
+        filmService.addLike(film.getId(), 1L);
+        filmService.addLike(film.getId(), 1L);
+        assertThrows(NotFoundException.class, () -> filmService.addLike(film.getId() + 1, 1L));
+
+        assertEquals(1, timerCount("films.add"));
+        assertEquals(3, timerCount("films.addLike"));
+        assertEquals(0, timerCount("films.removeLike"));
+        assertEquals("InMemoryFilmStorage", registry.get("filmorate.operation").tag("operation", "films.add")
+                .timer().getId().getTag("storage"));
+    }
+
+    @Test
+    void storageTagNamesTheClassBehindAProxy() {
+        ProxyFactory proxyFactory = new ProxyFactory(new InMemoryFilmStorage());
+        proxyFactory.setProxyTargetClass(true);
+        MeterRegistry proxied = new SimpleMeterRegistry();
+        new FilmService((InMemoryFilmStorage) proxyFactory.getProxy(), List.of(), proxied);
+
+        assertEquals(List.of("InMemoryFilmStorage"), proxied.find("filmorate.operation").timers().stream()
+                .map(timer -> timer.getId().getTag("storage"))
+                .distinct()
+                .toList());
+    }
+
+    @Test
+    void gaugesFollowStoredData() {
+        new FilmorateMetrics(filmStorage, userStorage, new LikePipeline(filmService)).bindTo(registry);
+        Film first = filmService.addFilm(TestData.film("First"));
+        Film second = filmService.addFilm(TestData.film("Second"));
+        User alice = userService.createUser(TestData.user("alice"));
+        User bob = userService.createUser(TestData.user("bob"));
+        User carol = userService.createUser(TestData.user("carol"));
+        filmService.addLike(first.getId(), alice.getId());
+        filmService.addLike(first.getId(), bob.getId());
+        filmService.addLike(second.getId(), bob.getId());
+        userService.addFriend(alice.getId(), bob.getId());
+        userService.addFriend(alice.getId(), carol.getId());
+
+        assertEquals(2, gauge("filmorate.films"));
+        assertEquals(3, gauge("filmorate.likes"));
+        assertEquals(2, gauge("filmorate.likes.max.per.film"));
+        assertEquals(3, gauge("filmorate.users"));
+        assertEquals(2, gauge("filmorate.friendships"));
+        assertEquals(2, gauge("filmorate.friends.max.per.user"));
+
+        filmService.removeFilm(first.getId());
+        userService.removeUser(alice.getId());
+        assertEquals(1, gauge("filmorate.likes"));
+        assertEquals(1, gauge("filmorate.likes.max.per.film"));
+        assertEquals(0, gauge("filmorate.friendships"));
+        assertEquals(0, gauge("filmorate.friends.max.per.user"));
+    }
+
+    private long timerCount(String operation) {
+        return registry.get("filmorate.operation").tag("operation", operation).timer().count();
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+}
@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.PartitionedUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedStorageTest {
+    private static final int PARTITIONS = 4;
+    private static final int THREADS = 8;
+
+    @Test
+    void filmsMatchInMemoryStorage() {
+        InMemoryFilmStorage expected = new InMemoryFilmStorage();
+        PartitionedFilmStorage actual = new PartitionedFilmStorage(PARTITIONS);
+        Random random = new Random(3);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int year = 2000 + random.nextInt(5);
+            long id = expected.addFilm(TestData.film("Film " + i, year)).getId();
+            assertEquals(id, actual.addFilm(TestData.film("Film " + i, year)).getId());
+            ids.add(id);
+        }
+        for (int i = 0; i < 10000; i++) {
+            long filmId = ids.get(random.nextInt(ids.size()));
+            long userId = 1 + random.nextInt(100);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.removeLike(filmId, userId), actual.removeLike(filmId, userId));
+            } else {
+                assertEquals(expected.addLike(filmId, userId), actual.addLike(filmId, userId));
+            }
+        }
+        List<LikeOperation> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            batch.add(new LikeOperation(1L + random.nextInt(1100), 1L + random.nextInt(100),
+                    random.nextBoolean() ? LikeOperation.Action.ADD : LikeOperation.Action.REMOVE));
+        }
+        assertEquals(expected.applyLikes(batch), actual.applyLikes(batch));
+        for (int i = 0; i < 50; i++) {
+            long filmId = ids.remove(random.nextInt(ids.size()));
+            expected.removeFilm(filmId);
+            actual.removeFilm(filmId);
+        }
+
+        assertEquals(expected.getAllFilms(), actual.getAllFilms());
+        for (int count : new int[]{1, 10, 100, 2000}) {
+            assertEquals(expected.getPopularFilms(count), actual.getPopularFilms(count));
+            assertEquals(expected.getPopularFilms(count, 2003), actual.getPopularFilms(count, 2003));
+        }
+        FilmFilter filter = new FilmFilter(LocalDate.of(2001, 1, 1), LocalDate.of(2002, 12, 31), null, null);
+        for (long afterId : new long[]{0, 17, 500, 999}) {
+            assertEquals(expected.getFilmsPage(afterId, 25), actual.getFilmsPage(afterId, 25));
+            assertEquals(expected.findFilms(filter, afterId, 25), actual.findFilms(filter, afterId, 25));
+        }
+        assertEquals(expected.countFilms(), actual.countFilms());
+        assertEquals(expected.countLikes(), actual.countLikes());
+        assertEquals(expected.maxLikesPerFilm(), actual.maxLikesPerFilm());
+        assertThrows(NotFoundException.class, () -> actual.getFilmById(5000L));
+    }
+
+    @Test
+    void usersMatchInMemoryStorage() {
+        InMemoryUserStorage expected = new InMemoryUserStorage();
+        PartitionedUserStorage actual = new PartitionedUserStorage(PARTITIONS);
+        Random random = new Random(5);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            long id = expected.addUser(TestData.user("user" + i)).getId();
+            assertEquals(id, actual.addUser(TestData.user("user" + i)).getId());
+            ids.add(id);
+        }
+        for (int i = 0; i < 3000; i++) {
+            long a = ids.get(random.nextInt(ids.size()));
+            long b = ids.get(random.nextInt(ids.size()));
+            if (a == b) {
+                continue;
+            }
+            if (random.nextInt(4) == 0) {
+                expected.removeFriend(a, b);
+                actual.removeFriend(a, b);
+            } else {
+                expected.addFriend(a, b);
+                actual.addFriend(a, b);
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            long id = ids.remove(random.nextInt(ids.size()));
+            expected.removeUser(id);
+            actual.removeUser(id);
+        }
+
+        assertEquals(expected.getAllUsers(), actual.getAllUsers());
+        assertEquals(expected.getUsersPage(100, 30), actual.getUsersPage(100, 30));
+        for (long id : ids) {
+            long other = ids.get(random.nextInt(ids.size()));
+            assertEquals(expected.getFriends(id), actual.getFriends(id));
+            assertEquals(expected.getCommonFriends(id, other), actual.getCommonFriends(id, other));
+            assertEquals(expected.getFriendSuggestions(id, 5), actual.getFriendSuggestions(id, 5));
+            assertEquals(expected.getFriendPath(id, other, 6, Duration.ofSeconds(10)).size(),
+                    actual.getFriendPath(id, other, 6, Duration.ofSeconds(10)).size());
+        }
+        assertEquals(expected.countUsers(), actual.countUsers());
+        assertEquals(expected.countFriendships(), actual.countFriendships());
+        assertEquals(expected.maxFriendsPerUser(), actual.maxFriendsPerUser());
+    }
+
+    @Test
+    void concurrentFriendshipsAcrossPartitionsStaySymmetric() throws Exception {
+        PartitionedUserStorage storage = new PartitionedUserStorage(PARTITIONS);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(storage.addUser(TestData.user("user" + i)).getId());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(thread);
+                    for (int i = 0; i < 5000; i++) {
+                        Long a = ids.get(random.nextInt(ids.size()));
+                        Long b = ids.get(random.nextInt(ids.size()));
+                        if (a.equals(b)) {
+                            continue;
+                        }
+                        if (random.nextInt(3) == 0) {
+                            storage.removeFriend(b, a);
+                        } else {
+                            storage.addFriend(a, b);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long degreeSum = 0;
+        for (Long id : ids) {
+            List<User> friends = storage.getFriends(id);
+            degreeSum += friends.size();
+            for (User friend : friends) {
+                assertTrue(storage.getFriends(friend.getId()).stream().anyMatch(user -> user.getId().equals(id)));
+            }
+        }
+        assertEquals(degreeSum, storage.countFriendships() * 2);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.SampledLogStrategy;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampledLogStrategyTest {
+
+    @Test
+    void alwaysLogsFailedAndSlowRequests() {
+        SampledLogStrategy strategy = new SampledLogStrategy(0, Duration.ofMillis(500), 400);
+
+        assertFalse(strategy.shouldLog(200, Duration.ofMillis(10)));
+        assertFalse(strategy.shouldLog(304, Duration.ofMillis(499)));
+        assertTrue(strategy.shouldLog(404, Duration.ofMillis(1)));
+        assertTrue(strategy.shouldLog(503, Duration.ZERO));
+        assertTrue(strategy.shouldLog(200, Duration.ofMillis(500)));
+    }
+
+    @Test
+    void samplesTheRemainingRequestsAtTheConfiguredRate() {
+        SampledLogStrategy all = new SampledLogStrategy(1, Duration.ofSeconds(1), 400);
+        SampledLogStrategy tenth = new SampledLogStrategy(0.1, Duration.ofSeconds(1), 400);
+
+        int logged = 0;
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(all.shouldLog(200, Duration.ZERO));
+            if (tenth.shouldLog(200, Duration.ZERO)) {
+                logged++;
+            }
+        }
+        assertEquals(10_000, logged, 1_000);
+    }
+}
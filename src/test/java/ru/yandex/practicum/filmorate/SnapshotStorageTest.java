@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.SnapshotFilmStorage;
+import ru.yandex.practicum.filmorate.storage.SnapshotUserStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStorageTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void filmsMatchInMemoryStorage() {
+        InMemoryFilmStorage expected = new InMemoryFilmStorage();
+        SnapshotFilmStorage actual = new SnapshotFilmStorage();
+        Random random = new Random(7);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int year = 2000 + random.nextInt(5);
+            expected.addFilm(TestData.film("Film " + i, year));
+            ids.add(actual.addFilm(TestData.film("Film " + i, year)).getId());
+        }
+        for (int i = 0; i < 20000; i++) {
+            long filmId = ids.get(random.nextInt(ids.size()));
+            long userId = 1 + random.nextInt(100);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.removeLike(filmId, userId), actual.removeLike(filmId, userId));
+            } else {
+                assertEquals(expected.addLike(filmId, userId), actual.addLike(filmId, userId));
+            }
+        }
+        List<LikeOperation> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            batch.add(new LikeOperation(1L + random.nextInt(2100), 1L + random.nextInt(100),
+                    random.nextBoolean() ? LikeOperation.Action.ADD : LikeOperation.Action.REMOVE));
+        }
+        assertEquals(expected.applyLikes(batch), actual.applyLikes(batch));
+        for (int i = 0; i < 100; i++) {
+            long filmId = ids.remove(random.nextInt(ids.size()));
+            expected.removeFilm(filmId);
+            actual.removeFilm(filmId);
+        }
+        for (int i = 0; i < 100; i++) {
+            long filmId = ids.get(random.nextInt(ids.size()));
+            int year = 2000 + random.nextInt(5);
+            Film film = TestData.film("Updated " + i, year);
+            film.setId(filmId);
+            expected.updateFilm(film);
+            actual.updateFilm(film);
+        }
+
+        assertEquals(expected.getAllFilms(), actual.getAllFilms());
+        for (int count : new int[]{1, 10, 100, 5000}) {
+            assertEquals(expected.getPopularFilms(count), actual.getPopularFilms(count));
+            for (int year = 2000; year <= 2005; year++) {
+                assertEquals(expected.getPopularFilms(count, year), actual.getPopularFilms(count, year));
+            }
+        }
+        for (long afterId : new long[]{0, 31, 32, 1023, 1024, 1999, 5000}) {
+            assertEquals(expected.getFilmsPage(afterId, 37), actual.getFilmsPage(afterId, 37));
+            FilmFilter filter = new FilmFilter(LocalDate.of(2002, 1, 1), LocalDate.of(2003, 12, 31), null, null);
+            assertEquals(expected.findFilms(filter, afterId, 50), actual.findFilms(filter, afterId, 50));
+        }
+        for (long filmId : ids) {
+            assertEquals(expected.getLikes(filmId), actual.getLikes(filmId));
+        }
+        assertEquals(expected.countFilms(), actual.countFilms());
+        assertEquals(expected.countLikes(), actual.countLikes());
+        assertEquals(expected.maxLikesPerFilm(), actual.maxLikesPerFilm());
+        assertThrows(NotFoundException.class, () -> actual.getFilmById(5000L));
+        assertThrows(NotFoundException.class, () -> actual.addLike(5000L, 1L));
+    }
+
+    @Test
+    void usersMatchInMemoryStorage() {
+        InMemoryUserStorage expected = new InMemoryUserStorage();
+        SnapshotUserStorage actual = new SnapshotUserStorage();
+        Random random = new Random(11);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            expected.addUser(TestData.user("user" + i));
+            ids.add(actual.addUser(TestData.user("user" + i)).getId());
+        }
+        for (int i = 0; i < 3000; i++) {
+            long a = ids.get(random.nextInt(ids.size()));
+            long b = ids.get(random.nextInt(ids.size()));
+            if (a == b) {
+                continue;
+            }
+            if (random.nextInt(4) == 0) {
+                expected.removeFriend(a, b);
+                actual.removeFriend(a, b);
+            } else {
+                expected.addFriend(a, b);
+                actual.addFriend(a, b);
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            long id = ids.remove(random.nextInt(ids.size()));
+            expected.removeUser(id);
+            actual.removeUser(id);
+        }
+
+        assertEquals(expected.getAllUsers(), actual.getAllUsers());
+        for (long id : ids) {
+            long other = ids.get(random.nextInt(ids.size()));
+            assertEquals(expected.getFriends(id), actual.getFriends(id));
+            assertEquals(expected.getCommonFriends(id, other), actual.getCommonFriends(id, other));
+            assertEquals(expected.getFriendSuggestions(id, 5), actual.getFriendSuggestions(id, 5));
+        }
+        assertEquals(expected.getCommonFriendCounts(ids.get(0), ids), actual.getCommonFriendCounts(ids.get(0), ids));
+        assertEquals(expected.countUsers(), actual.countUsers());
+        assertEquals(expected.countFriendships(), actual.countFriendships());
+        assertEquals(expected.maxFriendsPerUser(), actual.maxFriendsPerUser());
+        assertThrows(NotFoundException.class, () -> actual.addFriend(ids.get(0), 1000L));
+    }
+
+    @Test
+    void unchangedSnapshotReturnsCachedLists() {
+        SnapshotFilmStorage storage = new SnapshotFilmStorage();
+        Film film = storage.addFilm(TestData.film("Film", 2000));
+        storage.addLike(film.getId(), 1L);
+
+        List<Film> all = storage.getAllFilms();
+        List<Film> popular = storage.getPopularFilms(10);
+        assertSame(all, storage.getAllFilms());
+        assertSame(popular, storage.getPopularFilms(10));
+        assertThrows(UnsupportedOperationException.class, () -> all.add(film));
+
+        storage.addLike(film.getId(), 2L);
+        assertNotSame(popular, storage.getPopularFilms(10));
+        assertEquals(all, storage.getAllFilms());
+    }
+
+    @Test
+    void unchangedSnapshotReturnsCachedFriendLists() {
+        SnapshotUserStorage storage = new SnapshotUserStorage();
+        User alice = storage.addUser(TestData.user("alice"));
+        User bob = storage.addUser(TestData.user("bob"));
+        User carol = storage.addUser(TestData.user("carol"));
+        storage.addFriend(alice.getId(), bob.getId());
+
+        List<User> friends = storage.getFriends(alice.getId());
+        assertSame(friends, storage.getFriends(alice.getId()));
+        assertThrows(UnsupportedOperationException.class, () -> friends.add(carol));
+
+        storage.addFriend(alice.getId(), carol.getId());
+        assertEquals(List.of(bob, carol), storage.getFriends(alice.getId()));
+        assertEquals(List.of(bob), friends);
+    }
+
+    @Test
+    void readersSeeWholeBatchesWhileWritersRun() throws Exception {
+        SnapshotFilmStorage storage = new SnapshotFilmStorage();
+        long first = storage.addFilm(TestData.film("First", 2000)).getId();
+        long second = storage.addFilm(TestData.film("Second", 2000)).getId();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            // Every batch likes both films, so no published snapshot holds an odd number of likes.
+            Future<Integer> reader = executor.submit(() -> {
+                int reads = 0;
+                while (writing.get()) {
+                    assertEquals(0, storage.countLikes() % 2);
+                    reads++;
+                }
+                return reads;
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                long userBase = t * 1000L;
+                writers.add(executor.submit(() -> {
+                    for (long user = 1; user <= 500; user++) {
+                        storage.applyLikes(List.of(
+                                new LikeOperation(first, userBase + user, LikeOperation.Action.ADD),
+                                new LikeOperation(second, userBase + user, LikeOperation.Action.ADD)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS * 500, storage.getLikes(first).size());
+        assertEquals(THREADS * 500, storage.getLikes(second).size());
+        assertEquals(THREADS * 1000L, storage.countLikes());
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Valid films and users for the storage and service tests.
+ */
+final class TestData {
+    private TestData() {
+    }
+
+    static Film film(String name) {
+        return film(name, 2000);
+    }
+
+    static Film film(String name, int year) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(year, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+
+    static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.TrendingFilms;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingFilmsTest {
+    private final MutableClock clock = new MutableClock();
+    private final TrendingFilms trending = new TrendingFilms(clock);
+
+    @Test
+    void windowsForgetLikesAsHoursPass() {
+        like(1, 3);
+        clock.advance(Duration.ofHours(2));
+        like(2, 2);
+        like(3, 1);
+
+        assertEquals(List.of(2L, 3L), trending.top(TrendingFilms.Window.HOUR, 10));
+        assertEquals(List.of(1L, 2L, 3L), trending.top(TrendingFilms.Window.DAY, 10));
+        assertEquals(List.of(1L, 2L), trending.top(TrendingFilms.Window.WEEK, 2));
+
+        clock.advance(Duration.ofHours(23));
+        assertEquals(List.of(2L, 3L), trending.top(TrendingFilms.Window.DAY, 10));
+        assertTrue(trending.top(TrendingFilms.Window.HOUR, 10).isEmpty());
+
+        clock.advance(Duration.ofDays(6));
+        assertEquals(List.of(2L, 3L), trending.top(TrendingFilms.Window.WEEK, 10));
+        clock.advance(Duration.ofHours(1));
+        assertTrue(trending.top(TrendingFilms.Window.WEEK, 10).isEmpty());
+    }
+
+    @Test
+    void removedLikesAndFilmsLeaveTheRanking() {
+        like(1, 2);
+        like(2, 3);
+        trending.likeRemoved(2, 100);
+        trending.likeRemoved(2, 101);
+
+        assertEquals(List.of(1L, 2L), trending.top(TrendingFilms.Window.HOUR, 10));
+
+        trending.filmRemoved(1);
+        trending.likeRemoved(2, 102);
+        assertTrue(trending.top(TrendingFilms.Window.DAY, 10).isEmpty());
+
+        clock.advance(Duration.ofDays(30));
+        like(2, 1);
+        assertEquals(List.of(2L), trending.top(TrendingFilms.Window.WEEK, 10));
+    }
+
+    private void like(long filmId, int times) {
+        for (int i = 0; i < times; i++) {
+            trending.likeAdded(filmId, i);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:30:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}